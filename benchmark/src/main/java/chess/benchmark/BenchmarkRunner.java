@@ -0,0 +1,47 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The BenchmarkRunner class, the main class of benchmarks.jar. It takes the
+ * usual JMH command line options and always adds the GC profiler, so every
+ * run reports the allocation rate (gc.alloc.rate.norm is the number of bytes
+ * allocated per operation) next to the throughput.
+ *
+ * @author Asus
+ */
+public class BenchmarkRunner {
+
+    /**
+     * The main method of the benchmarks.
+     *
+     * @param args - The JMH command line options
+     * @throws Exception - If the options are invalid or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        //The host JVM never opens a window either
+        System.setProperty("java.awt.headless", "true");
+
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp()) {
+            cmd.showHelp();
+            return;
+        }
+        Options options = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build();
+        Runner runner = new Runner(options);
+        if (cmd.shouldList()) {
+            runner.list();
+            return;
+        }
+        runner.run();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.benchmark;
+
+import chess.chessboard.ChessBoard;
+import chess.chessboard.Color;
+import chess.chessboard.Piece;
+import chess.chessboard.Point;
+import chess.chessboard.Rank;
+import chess.tools.BenchPositions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ChessBoardBenchmark class, which measures the hot paths of ChessBoard
+ * on the representative positions of BenchPositions.
+ *
+ * @author Asus
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ChessBoardBenchmark {
+
+    //The number of plies played by the movePiece benchmark
+    private static final int LINE_LENGTH = 8;
+
+    //The position being measured
+    @Param({BenchPositions.OPENING, BenchPositions.MIDDLEGAME, BenchPositions.ENDGAME, BenchPositions.CHECKS})
+    public String position;
+
+    //The board set up on the position
+    private ChessBoard board;
+    //The King of the side to move
+    private Piece king;
+    //The legal moves of the side to move: the piece and the destination
+    private Piece[] movers;
+    private Point[] targets;
+    //The line played by movePiece, as {fromRow, fromCol, toRow, toCol} per ply
+    private int[][] line;
+
+    /**
+     * Set up the board and precompute the legal moves and the line.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        String fen = BenchPositions.fen(this.position);
+        this.board = new ChessBoard();
+        this.board.loadFen(fen);
+        boolean white = fen.split("\\s+")[1].equals("w");
+        this.king = white ? this.board.getWhiteKing() : this.board.getBlackKing();
+
+        //The legal moves of the side to move
+        List<Piece> pieces = new ArrayList<>();
+        List<Point> points = new ArrayList<>();
+        collectLegalMoves(this.board, white, pieces, points);
+        this.movers = pieces.toArray(new Piece[0]);
+        this.targets = points.toArray(new Point[0]);
+
+        //A fixed line from the position on a scratch board, spreading the choices over the move list
+        ChessBoard scratch = new ChessBoard();
+        scratch.loadFen(fen);
+        this.line = new int[LINE_LENGTH][];
+        boolean side = white;
+        int length = 0;
+        for (int ply = 0; ply < LINE_LENGTH; ply++) {
+            pieces.clear();
+            points.clear();
+            collectLegalMoves(scratch, side, pieces, points);
+            if (pieces.isEmpty()) {
+                break;
+            }
+            int index = (ply * 7) % pieces.size();
+            Piece piece = pieces.get(index);
+            Point to = points.get(index);
+            this.line[length++] = new int[]{piece.getPosition().getRow(), piece.getPosition().getCol(), to.getRow(), to.getCol()};
+            play(scratch, this.line[length - 1]);
+            side = !side;
+        }
+        this.line = java.util.Arrays.copyOf(this.line, length);
+    }
+
+    /**
+     * Helper method, collect the legal moves of one side through the
+     * ChessBoard API (candidates filtered by simulateMove).
+     *
+     * @param board - The board
+     * @param white - The side, true for WHITE
+     * @param pieces - The list receiving the moving pieces
+     * @param points - The list receiving the destinations
+     */
+    static void collectLegalMoves(ChessBoard board, boolean white, List<Piece> pieces, List<Point> points) {
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                Piece piece = board.getPieceAt(row, col);
+                if (piece == null || piece.getColor() != (white ? Color.WHITE : Color.BLACK)) {
+                    continue;
+                }
+                for (Point to : piece.getCandidates()) {
+                    if (board.simulateMove(piece, to.getRow(), to.getCol())) {
+                        pieces.add(piece);
+                        points.add(to);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method, play one move the way Game does (select, move, promote
+     * to a Queen on the last row, release).
+     *
+     * @param board - The board
+     * @param move - The move as {fromRow, fromCol, toRow, toCol}
+     */
+    static void play(ChessBoard board, int[] move) {
+        Piece piece = board.getPieceAt(move[0], move[1]);
+        board.setSelectedPiece(piece);
+        board.movePiece(move[2], move[3]);
+        if (piece.getRank() == Rank.PAWN && (move[2] == 0 || move[2] == 7)) {
+            board.promote(Rank.QUEEN);
+        }
+        board.setSelectedPiece(null);
+    }
+
+    /**
+     * Rebuild every attack map and candidates list.
+     *
+     * @return - The board, so the work is not eliminated
+     */
+    @Benchmark
+    public ChessBoard updateAllMoves() {
+        this.board.updateAllMoves();
+        return this.board;
+    }
+
+    /**
+     * Validate every legal move of the side to move.
+     *
+     * @return - The number of valid moves
+     */
+    @Benchmark
+    public int simulateMove() {
+        int valid = 0;
+        for (int i = 0; i < this.movers.length; i++) {
+            if (this.board.simulateMove(this.movers[i], this.targets[i].getRow(), this.targets[i].getCol())) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Check detection for the side to move.
+     *
+     * @return - The result of isChecked
+     */
+    @Benchmark
+    public boolean isChecked() {
+        return this.board.isChecked(this.king);
+    }
+
+    /**
+     * Checkmate detection for the side to move.
+     *
+     * @return - The result of isCheckmate
+     */
+    @Benchmark
+    public boolean isCheckmate() {
+        return this.board.isCheckmate(this.king);
+    }
+
+    /**
+     * The state of the movePiece benchmark: a board reset to the position
+     * before each call. The reset is not timed, but its allocations are
+     * counted by the GC profiler (about one Piece per piece on the board).
+     */
+    @State(Scope.Thread)
+    public static class MoveState {
+
+        //The board played on
+        ChessBoard board = new ChessBoard();
+
+        /**
+         * Reset the board to the measured position.
+         *
+         * @param bench - The benchmark state, which holds the position
+         */
+        @Setup(Level.Invocation)
+        public void reset(ChessBoardBenchmark bench) {
+            this.board.loadFen(BenchPositions.fen(bench.position));
+        }
+    }
+
+    /**
+     * Play the fixed line of moves with movePiece (and promote).
+     *
+     * @param state - The board reset to the position
+     * @return - The Zobrist key of the final position
+     */
+    @Benchmark
+    public long movePiece(MoveState state) {
+        for (int[] move : this.line) {
+            play(state.board, move);
+        }
+        return state.board.getKey();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.benchmark;
+
+import chess.chessboard.Game;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The GameLoadBenchmark class, which measures Game.load replaying a long save
+ * file (407 records with castling and promotions). The newGame benchmark
+ * loads a player pair without a save file, so the difference between the two
+ * is the cost of the replay itself.
+ *
+ * @author Asus
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dchess.clock=none"})
+public class GameLoadBenchmark {
+
+    //The players of the save file, Game reads ./data/incomplete/<player1>_<player2>.txt
+    private static final String PLAYER1 = "bench", PLAYER2 = "replay";
+
+    //The save file written for the benchmark
+    private File saveFile;
+
+    /**
+     * Copy the long game from the resources to the data directory of the
+     * game.
+     *
+     * @throws IOException - If the file cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        File dir = new File("./data/incomplete");
+        dir.mkdirs();
+        this.saveFile = new File(dir, PLAYER1 + "_" + PLAYER2 + ".txt");
+        try (InputStream in = GameLoadBenchmark.class.getResourceAsStream("long_game.txt")) {
+            Files.copy(in, this.saveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Remove the save file written by setup.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.saveFile.delete();
+    }
+
+    /**
+     * Create a game and replay the long save file.
+     *
+     * @return - The loaded game
+     */
+    @Benchmark
+    public Game load() {
+        Game game = new Game(null);
+        game.load(PLAYER1, PLAYER2);
+        return game;
+    }
+
+    /**
+     * Create a game without a save file (the baseline of load).
+     *
+     * @return - The new game
+     */
+    @Benchmark
+    public Game newGame() {
+        Game game = new Game(null);
+        game.load(PLAYER1, "missing");
+        return game;
+    }
+}
@@ -122,7 +122,7 @@ public class Chess extends JFrame {
                 "Player Name Entry",
                 Dialog.ModalityType.APPLICATION_MODAL);
         popup.setLayout(new BorderLayout());
-        popup.setSize(400, 350);
+        popup.setSize(400, 380);
 
         //Use BoxLayout for vertical stacking
         JPanel mainPanel = new JPanel();
@@ -151,6 +151,11 @@ public class Chess extends JFrame {
         player2Field.setMaximumSize(new Dimension(300, 40));
         player2Field.setAlignmentX(Component.CENTER_ALIGNMENT);
 
+        //Create the hint about the computer player and styling
+        JLabel hint = new JLabel(String.format("Name a player \"%s\" to play the computer", Game.COMPUTER));
+        hint.setFont(new Font("Arial", Font.ITALIC, 14));
+        hint.setAlignmentX(Component.CENTER_ALIGNMENT);
+
         //Create submit button and styling
         JButton submitButton = new JButton("Submit");
         submitButton.setFont(new Font("Arial", Font.BOLD, 20));
@@ -179,7 +184,9 @@ public class Chess extends JFrame {
         mainPanel.add(label2);
         mainPanel.add(Box.createRigidArea(new Dimension(0, 10)));
         mainPanel.add(player2Field);
-        mainPanel.add(Box.createRigidArea(new Dimension(0, 30)));
+        mainPanel.add(Box.createRigidArea(new Dimension(0, 15)));
+        mainPanel.add(hint);
+        mainPanel.add(Box.createRigidArea(new Dimension(0, 15)));
         mainPanel.add(submitButton);
 
         //Add the main panel to JDialog and setting the attribute of JDialog
@@ -5,13 +5,14 @@
  */
 package chess.chessboard;
 
+import chess.util.BitboardLib;
 import chess.util.ModelLib;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
+import java.util.Arrays;
 import javax.swing.JPanel;
 
 /**
@@ -21,8 +22,19 @@ import javax.swing.JPanel;
  */
 public class ChessBoard extends JPanel {
 
-    //The 2D 8x8 array that acts as the chessboard
-    private final Piece[][] board;
+    //The colors used for painting, created once instead of on every repaint
+    private static final java.awt.Color LIGHT_SQUARE = new java.awt.Color(210, 165, 125);
+    private static final java.awt.Color DARK_SQUARE = new java.awt.Color(175, 115, 70);
+    private static final java.awt.Color HIGHLIGHT = new java.awt.Color(230, 255, 230, 70);
+
+    //The bitboard model of the chessboard, used for move generation and attack queries
+    private final Position position;
+    //The Piece object standing on each square (index row * 8 + col), kept for the view
+    private final Piece[] pieces;
+    //The attack map of each square: the squares the piece standing there attacks (0 if empty)
+    private final long[] attacksFrom;
+    //The reverse attack map of each square: the squares of the pieces that attack it
+    private final long[] attacksTo;
     //The selected piece
     private Piece selectedPiece;
     //Since we need to check for Kings status every action so having their references is more efficient that searching through array
@@ -30,11 +42,56 @@ public class ChessBoard extends JPanel {
     //The listener object, used to communicate with the Game object
     private Listener listener;
 
-    private final Boolean[] canCastle = new Boolean[6];
-    private boolean isWhiteTurn = true;
+    /**
+     * Method for getting the castling rights that are still available.
+     *
+     * @return - The castling rights bits (see Position.WHITE_SHORT and so on)
+     */
+    public int getCastlingRights() {
+        return this.position.getCastlingRights();
+    }
+
+    /**
+     * Method for setting the castling rights. This method mostly used for
+     * replay/new game.
+     *
+     * @param rights - The castling rights bits (see Position.WHITE_SHORT and so
+     * on)
+     */
+    public void setCastlingRights(int rights) {
+        this.position.setCastlingRights(rights);
+    }
+
+    /**
+     * Method for getting the Zobrist key of the current position. The key is
+     * updated by each move, castling and promotion (and by the board setup),
+     * so two boards with the same pieces, turn, castling rights and en passant
+     * capture have the same key.
+     *
+     * @return - The 64-bit key of the position
+     */
+    public long getKey() {
+        return this.position.getKey();
+    }
+
+    /**
+     * Method for getting a copy of the model, for example to search it on
+     * another thread. The copy has no Piece and no view, and changing it does
+     * not change this board.
+     *
+     * @return - The independent copy of the position
+     */
+    public Position getPositionCopy() {
+        return new Position(this.position);
+    }
 
-    public Boolean[] getCanCastle() {
-        return canCastle;
+    /**
+     * Helper method, check whose turn it is in the model.
+     *
+     * @return - The boolean value, true if it is WHITE's turn
+     */
+    private boolean isWhiteTurn() {
+        return this.position.getSideToMove() == Position.WHITE;
     }
 
     /**
@@ -42,8 +99,11 @@ public class ChessBoard extends JPanel {
      * and setup layout.
      */
     public ChessBoard() {
-        //Initialize the 8x8 array 
-        this.board = new Piece[8][8];
+        //Initialize the empty model and the 64 squares of the view
+        this.position = new Position();
+        this.pieces = new Piece[64];
+        this.attacksFrom = new long[64];
+        this.attacksTo = new long[64];
         //Setting the selected piece to null
         this.selectedPiece = null;
         //Initialize the empty array kings
@@ -99,7 +159,7 @@ public class ChessBoard extends JPanel {
         if (!ModelLib.isCoorValid(row, col)) {
             throw new IllegalArgumentException("Row or column invalid");
         }
-        return this.board[row][col];
+        return this.pieces[BitboardLib.square(row, col)];
     }
 
     /**
@@ -109,7 +169,34 @@ public class ChessBoard extends JPanel {
      * @param piece - The piece for placing into the board
      */
     public void setPieceAt(Piece piece) {
-        this.board[piece.getPosition().getRow()][piece.getPosition().getCol()] = piece;
+        int sq = squareOf(piece);
+        this.pieces[sq] = piece;
+        this.position.put(sq, piece.getColor().ordinal(), piece.getRank().ordinal());
+    }
+
+    /**
+     * Helper method, get the square index of a piece.
+     *
+     * @param piece - The piece
+     * @return - The square index (row * 8 + col) of the piece
+     */
+    private static int squareOf(Piece piece) {
+        return piece.getPosition().getSquare();
+    }
+
+    /**
+     * Helper method, move a piece to a new square in the view only, the model
+     * is updated by the Position itself. The destination must be empty in the
+     * view.
+     *
+     * @param piece - The piece to be moved
+     * @param row - The destination row
+     * @param col - The destination column
+     */
+    private void placePiece(Piece piece, int row, int col) {
+        this.pieces[squareOf(piece)] = null;
+        piece.setPosition(Point.of(row, col));
+        this.pieces[BitboardLib.square(row, col)] = piece;
     }
 
     /**
@@ -117,11 +204,42 @@ public class ChessBoard extends JPanel {
      * it).
      */
     public void clearBoard() {
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                this.board[row][col] = null;
-            }
+        Arrays.fill(this.pieces, null);
+        Arrays.fill(this.attacksFrom, 0L);
+        Arrays.fill(this.attacksTo, 0L);
+        this.position.clear();
+    }
+
+    /**
+     * Method for setting up the board from a FEN string (see
+     * Position.loadFen), including the turn, the castling rights and the en
+     * passant square. The view pieces, the Kings and all candidates lists are
+     * rebuilt.
+     *
+     * @param fen - The FEN string
+     * @throws IllegalArgumentException - If the FEN is invalid, throws
+     * IllegalArgumentException
+     */
+    public void loadFen(String fen) throws IllegalArgumentException {
+        clearBoard();
+        this.position.loadFen(fen);
+        this.kings[0] = null;
+        this.kings[1] = null;
+        //Create the view piece of each occupied square
+        for (long o = this.position.occupied(); o != 0; o &= o - 1) {
+            int sq = BitboardLib.first(o);
+            int code = this.position.pieceAt(sq);
+            Piece piece = new Piece(Color.values()[Position.colorOf(code)], Rank.values()[Position.rankOf(code)],
+                    BitboardLib.row(sq), BitboardLib.col(sq));
+            this.pieces[sq] = piece;
+            if (piece.getRank() == Rank.KING) {
+                this.kings[piece.getColor().ordinal()] = piece;
+            }
+        }
+        if (this.kings[0] == null || this.kings[1] == null) {
+            throw new IllegalArgumentException("Both sides must have a King: " + fen);
         }
+        updateAllMoves();
     }
 
     /**
@@ -183,434 +301,88 @@ public class ChessBoard extends JPanel {
     }
 
     /**
-     * Method for calculating the potential position a Pawn can move to. This
-     * method will populate the candidates list attribute in the Piece object,
-     * so there no return value
+     * Method for update the candidates list of a piece. The candidates are
+     * taken from the attack map (or from the model for a Pawn, which cannot
+     * move where it attacks) as a mask, so no list is built here.
      *
-     * @param pawn - The pawn to be calculated
-     */
-    private void getPawnMove(Piece pawn) {
-        /*
-         * Algorithm explain: since the pawn can only move to one direction depend on the size, so we: 
-         * 1. Calculate the unit vector depend on 'color' 
-         * 2. Check if the square ahead can be moved to
-         * 3. Edge case: at row 1 and row 6, a pawn can move to 2 squares ahead, so we also check for it
-         * 4. Finally, we check for the two diagonal ahead, if there is an opponent piece there, count that square as valid
-         * NOTE: A square that can be moved to must sastifies 3 criterias: 
-         * a. That square still in the board 
-         * b. There is no piece of our side blocking that square
-         * c. The move shouldn't lead to a checked or checkmate 
-         * (in this method, we won't check for checked or checkmate here. It will be calculated isChecked and isCheckmate methods)
-         */
-
-        //Clear the candidates list
-        pawn.clearAllPositions();
-
-        //Get the initial coordinates of pawn
-        int row = pawn.getPosition().getRow(), col = pawn.getPosition().getCol();
-
-        //Temporary piece object 
-        Piece p;
-
-        //The direction unit vector
-        int forward = (pawn.getColor() == Color.BLACK) ? 1 : -1;
-
-        //Check one square forward
-        if (ModelLib.isCoorValid(row + forward, col) && getPieceAt(row + forward, col) == null) {
-            pawn.addNewPosition(new Point(row + forward, col));
-
-            //Check two squares forward if it's the pawn's first move (row 1 if BLACK or row 6 if WHITE)
-            if ((pawn.getColor() == Color.BLACK && row == 1) || (pawn.getColor() == Color.WHITE && row == 6)) {
-                if (ModelLib.isCoorValid(row + 2 * forward, col) && getPieceAt(row + 2 * forward, col) == null) {
-                    pawn.addNewPosition(new Point(row + 2 * forward, col));
-                }
-            }
-        }
-
-        //Check diagonal captures
-        Color oppositeColor = (pawn.getColor() == Color.BLACK) ? Color.WHITE : Color.BLACK;
-
-        //Check right diagonal
-        if (ModelLib.isCoorValid(row + forward, col + 1)) {
-            p = getPieceAt(row + forward, col + 1);
-            if (p != null && p.getColor() == oppositeColor) {
-                pawn.addNewPosition(new Point(row + forward, col + 1));
-            }
-        }
-
-        //Check left diagonal
-        if (ModelLib.isCoorValid(row + forward, col - 1)) {
-            p = getPieceAt(row + forward, col - 1);
-            if (p != null && p.getColor() == oppositeColor) {
-                pawn.addNewPosition(new Point(row + forward, col - 1));
-            }
-        }
-    }
-
-    /**
-     * Method for calculating the potential position a Rook can move to. This
-     * method will populate the candidates list attribute in the Piece object,
-     * so there no return value
-     *
-     * @param rook - The rook to be calculated
+     * @param piece - The piece to be updated
      */
-    private void getRookMove(Piece rook) {
-        /*
-         * Algorithm explain: The Rook can move horizontally or vertically, so we handle 4 direction: 
-         * North (up -> row decrement),
-         * East (right -> col increment),
-         * South (down -> row increment),
-         * West (left -> col decrement)
-         * The flow of logic should be: 
-         * 1. Calculate the directional unit vectors of each direction
-         * 2. Move along each direction, if the square is valid (can be moved to), we add it to 'candidates' list
-         */
-
-        //Clear the moves list
-        rook.clearAllPositions();
-
-        //The direction 2D array, respectively: N, E, S, W {row, col}
-        int[][] dir = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
-
-        //The coordinate of the Rook
-        int row = rook.getPosition().getRow();
-        int col = rook.getPosition().getCol();
-        Piece p;
-
-        //We handle each directionin this order: N -> E-> S -> W
-        for (int i = 0; i < 4; i++) {
-            while (ModelLib.isCoorValid(row + dir[i][0], col + dir[i][1]) && getPieceAt(row + dir[i][0], col + dir[i][1]) == null) {
-                //Update startPoint
-                row += dir[i][0];
-                col += dir[i][1];
-                //Add to moves list
-                rook.addNewPosition(new Point(row, col));
-            }
-
-            /*
-             * If the while loop is break out, then there are two cases: 
-             * 1. The NEXT square is outside the board (we don't care about this case)
-             * 2. The NEXT square has an obsatcle (we're interested about this case)
-             * Whichever the case is, we have to move forward 1 square before checking
-             */
-            row += dir[i][0];
-            col += dir[i][1];
-
-            //Check if the obstacle is our side or opponent side
-            if (ModelLib.isCoorValid(row, col) && (p = getPieceAt(row, col)) != null && p.getColor() != rook.getColor()) {
-                rook.addNewPosition(new Point(row, col));
-            }
-
-            //Reset the x and y coordinate to the rook position
-            row = rook.getPosition().getRow();
-            col = rook.getPosition().getCol();
+    private void updateMove(Piece piece) {
+        int sq = squareOf(piece);
+        if (piece.getRank() == Rank.PAWN) {
+            piece.setCandidateMask(this.position.movesFrom(sq));
+        } else {
+            piece.setCandidateMask(this.attacksFrom[sq] & ~this.position.pieces(piece.getColor().ordinal()));
         }
     }
 
     /**
-     * Method for calculating the potential position a Knight can move to. This
-     * method will populate the candidates list attribute in the Piece object,
-     * so there no return value
+     * Helper method, replace the attack map of a square and keep the reverse
+     * maps in sync. Only the squares that actually changed are visited.
      *
-     * @param knight - The knight to be calculated
+     * @param sq - The square of the piece
+     * @param attacks - The new attack mask (0 if the square is now empty)
      */
-    private void getKnightMove(Piece knight) {
-        /*
-         * Algorithm explain: since the Knight can oly move to AT MOST 8 squares, and the Knight cannot be blocked in its path
-         * So we just have to checked for each square if it can be moved to
-         */
-
-        //Clear the moves list
-        knight.clearAllPositions();
-
-        //Get the intial position of knight
-        int row = knight.getPosition().getRow();
-        int col = knight.getPosition().getCol();
-
-        //Get the color of the knight
-        Color c = knight.getColor();
-
-        //The temporary piece 
-        Piece p;
-
-        //(row - 1, col - 2)
-        if (ModelLib.isCoorValid(row - 1, col - 2) && ((p = getPieceAt(row - 1, col - 2)) == null || p.getColor() != c)) {
-            knight.addNewPosition(new Point(row - 1, col - 2));
-        }
-
-        //(row - 2, col - 1)
-        if (ModelLib.isCoorValid(row - 2, col - 1) && ((p = getPieceAt(row - 2, col - 1)) == null || p.getColor() != c)) {
-            knight.addNewPosition(new Point(row - 2, col - 1));
-        }
-
-        //(row - 2, col + 1)
-        if (ModelLib.isCoorValid(row - 2, col + 1) && ((p = getPieceAt(row - 2, col + 1)) == null || p.getColor() != c)) {
-            knight.addNewPosition(new Point(row - 2, col + 1));
-        }
-
-        //(row - 1, col + 2)
-        if (ModelLib.isCoorValid(row - 1, col + 2) && ((p = getPieceAt(row - 1, col + 2)) == null || p.getColor() != c)) {
-            knight.addNewPosition(new Point(row - 1, col + 2));
+    private void setAttacks(int sq, long attacks) {
+        long b = BitboardLib.bit(sq);
+        //The squares that are no longer attacked from sq
+        for (long lost = this.attacksFrom[sq] & ~attacks; lost != 0; lost &= lost - 1) {
+            this.attacksTo[BitboardLib.first(lost)] &= ~b;
         }
-
-        //(row + 1, col + 2)
-        if (ModelLib.isCoorValid(row + 1, col + 2) && ((p = getPieceAt(row + 1, col + 2)) == null || p.getColor() != c)) {
-            knight.addNewPosition(new Point(row + 1, col + 2));
-        }
-
-        //(row + 2, col + 1)
-        if (ModelLib.isCoorValid(row + 2, col + 1) && ((p = getPieceAt(row + 2, col + 1)) == null || p.getColor() != c)) {
-            knight.addNewPosition(new Point(row + 2, col + 1));
-        }
-
-        //(row + 2, col - 1)
-        if (ModelLib.isCoorValid(row + 2, col - 1) && ((p = getPieceAt(row + 2, col - 1)) == null || p.getColor() != c)) {
-            knight.addNewPosition(new Point(row + 2, col - 1));
-        }
-
-        //(row + 1, col - 2)
-        if (ModelLib.isCoorValid(row + 1, col - 2) && ((p = getPieceAt(row + 1, col - 2)) == null || p.getColor() != c)) {
-            knight.addNewPosition(new Point(row + 1, col - 2));
+        //The squares that are newly attacked from sq
+        for (long gained = attacks & ~this.attacksFrom[sq]; gained != 0; gained &= gained - 1) {
+            this.attacksTo[BitboardLib.first(gained)] |= b;
         }
+        this.attacksFrom[sq] = attacks;
     }
 
     /**
-     * Method for calculating the potential position a Bishop can move to. This
-     * method will populate the candidates list attribute in the Piece object,
-     * so there no return value
+     * Helper method, refresh the attack maps and candidates after some squares
+     * changed in the model. Only the pieces standing on those squares, the
+     * pieces whose rays or jumps reach them and the Pawns that push onto them
+     * are recalculated, not the whole board.
      *
-     * @param bishop - The bishop to be calculated
+     * @param changed - The mask of squares whose content changed
      */
-    private void getBishopMove(Piece bishop) {
+    private void refreshAttacks(long changed) {
         /*
-         * Algorithm explain: The Bishop can move diagonally, so we handle 4 direction:
-         * North - West (up - left -> row decrement and col decrement),
-         * North - East (up - right -> row decrement and col increment),
-         * South - East (down - right -> row increment and col increment),
-         * South - West (down - left -> row increment and col decrement)
-         * The flow of logic should be: 
-         * 1. Calculate the directional unit vectors of each direction
-         * 2. Move along each direction, if the square is valid (can be moved to), we add it to 'candidates' list
+         * Algorithm explain: a piece can only see a difference if one of the changed squares is in its attack mask
+         * (a slider ray that was blocked there or passed through there, a jump onto it), or if it is a Pawn whose
+         * push squares changed. We collect them BEFORE updating any map, using the reverse maps.
          */
-
-        //Clear the moves list
-        bishop.clearAllPositions();
-
-        //The direction 2D array, respectively: NW, NE, SE, SW {row, col}
-        int[][] dir = {{-1, -1}, {-1, 1}, {1, 1}, {1, -1}};
-
-        //The coordinate of the Bishop
-        int row = bishop.getPosition().getRow();
-        int col = bishop.getPosition().getCol();
-        Piece p;
-
-        //We handle each directionin this order: NW -> NE-> SE -> SW
-        for (int i = 0; i < 4; i++) {
-            while (ModelLib.isCoorValid(row + dir[i][0], col + dir[i][1]) && getPieceAt(row + dir[i][0], col + dir[i][1]) == null) {
-                //Update startPoint
-                row += dir[i][0];
-                col += dir[i][1];
-                //Add to move
-                bishop.addNewPosition(new Point(row, col));
-            }
-
-            /*
-             * If the while loop is break out, then there are two cases: 
-             * 1. The NEXT square is outside the board (we don't care about this case)
-             * 2. The NEXT square has an obsatcle (we're interested about this case)
-             * Whichever the case is, we have to move forward 1 square before checking
-             */
-            //Move to the next square
-            row += dir[i][0];
-            col += dir[i][1];
-
-            //Check if the obstacle is our side or opponent side
-            if (ModelLib.isCoorValid(row, col) && (p = getPieceAt(row, col)) != null && p.getColor() != bishop.getColor()) {
-                bishop.addNewPosition(new Point(row, col));
-            }
-
-            //Reset the x and y to Bishop position
-            row = bishop.getPosition().getRow();
-            col = bishop.getPosition().getCol();
+        long affected = changed;
+        for (long c = changed; c != 0; c &= c - 1) {
+            affected |= this.attacksTo[BitboardLib.first(c)];
         }
-    }
+        //BLACK pawns push to sq + 8 and sq + 16, WHITE pawns push to sq - 8 and sq - 16
+        affected |= this.position.pieces(Position.BLACK, Position.PAWN) & ((changed >>> 8) | (changed >>> 16));
+        affected |= this.position.pieces(Position.WHITE, Position.PAWN) & ((changed << 8) | (changed << 16));
 
-    /**
-     * Method for calculating the potential position a Queen can move to. This
-     * method will populate the candidates list attribute in the Piece object,
-     * so there no return value
-     *
-     * @param queen - The queen to be calculated
-     */
-    private void getQueenMove(Piece queen) {
-        /*
-         * Algorithm explain: The Queen can move horizontally, vertically and diagonally, so we handle 8
-         * direction:
-         * North - West (up - left -> row decrement and col decrement),
-         * North - East (up - right -> row decrement and col increment),
-         * South - East (down - left -> row increment and col increment),
-         * South - West (down - left -> row increment and col decrement),
-         * North (up -> row decrement)
-         * East (right -> col increment)
-         * South (down -> row increment)
-         * West (right -> col decrement)
-         * The flow of logic should be: 
-         * 1. Calculate the directional unit vectors of each direction
-         * 2. Move along each direction, if the square is valid (can be moved to), we add it to 'candidates' list
-         */
-
-        //Clear the moves list
-        queen.clearAllPositions();
-
-        //The direction 2D array, respectively: NW, NE, SE, SW, N, E, S, W {rol, col}
-        int[][] dir = {{-1, -1}, {-1, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, 1}, {1, 0}, {0, -1}};
-
-        //The coordinate of the Queen
-        int row = queen.getPosition().getRow();
-        int col = queen.getPosition().getCol();
-        Piece p;
-
-        //We handle each directionin this order: NW -> NE-> SE -> SW 
-        for (int i = 0; i < 8; i++) {
-            while (ModelLib.isCoorValid(row + dir[i][0], col + dir[i][1]) && getPieceAt(row + dir[i][0], col + dir[i][1]) == null) {
-                //Update startPoint
-                row += dir[i][0];
-                col += dir[i][1];
-                //Add to move
-                queen.addNewPosition(new Point(row, col));
+        for (; affected != 0; affected &= affected - 1) {
+            int sq = BitboardLib.first(affected);
+            setAttacks(sq, this.position.attacksFrom(sq));
+            if (this.pieces[sq] != null) {
+                updateMove(this.pieces[sq]);
             }
-
-            /*
-             * If the while loop is break out, then there are two cases: 
-             * 1. The NEXT square is outside the board (we don't care about this case)
-             * 2. The NEXT square has an obsatcle (we're interested about this case)
-             * Whichever the case is, we have to move forward 1 square before checking
-             */
-            row += dir[i][0];
-            col += dir[i][1];
-
-            //Check if the obstacle is our side or opponent side
-            if (ModelLib.isCoorValid(row, col) && (p = getPieceAt(row, col)) != null && p.getColor() != queen.getColor()) {
-                queen.addNewPosition(new Point(row, col));
-            }
-
-            //Reset the x and y coordinate to queen position
-            row = queen.getPosition().getRow();
-            col = queen.getPosition().getCol();
-        }
-    }
-
-    /**
-     * Method for calculating the potential position a King can move to. This
-     * method will populate the candidates list attribute in the Piece object,
-     * so there no return value
-     *
-     * @param king - The king to be calculated
-     */
-    private void getKingMove(Piece king) {
-        /*
-         * Algorithm explain: since the King can oly move to AT MOST 8 squares, and the King cannot be blocked
-         * So we just have to checked for each square if it can be moved to
-         */
-
-        //Clear the moves list
-        king.clearAllPositions();
-
-        //Get the intial position of King
-        int row = king.getPosition().getRow();
-        int col = king.getPosition().getCol();
-
-        //Get the color of the king
-        Color c = king.getColor();
-
-        //Temporary piece
-        Piece p;
-
-        //(row - 1, col - 1)
-        if (ModelLib.isCoorValid(row - 1, col - 1) && ((p = getPieceAt(row - 1, col - 1)) == null || p.getColor() != c)) {
-            king.addNewPosition(new Point(row - 1, col - 1));
-        }
-
-        //(row - 1, col)
-        if (ModelLib.isCoorValid(row - 1, col) && ((p = getPieceAt(row - 1, col)) == null || p.getColor() != c)) {
-            king.addNewPosition(new Point(row - 1, col));
-        }
-
-        //(row - 1, col + 1)
-        if (ModelLib.isCoorValid(row - 1, col + 1) && ((p = getPieceAt(row - 1, col + 1)) == null || p.getColor() != c)) {
-            king.addNewPosition(new Point(row - 1, col + 1));
-        }
-
-        //(row, col + 1)
-        if (ModelLib.isCoorValid(row, col + 1) && ((p = getPieceAt(row, col + 1)) == null || p.getColor() != c)) {
-            king.addNewPosition(new Point(row, col + 1));
-        }
-
-        //(row + 1, col + 1)
-        if (ModelLib.isCoorValid(row + 1, col + 1) && ((p = getPieceAt(row + 1, col + 1)) == null || p.getColor() != c)) {
-            king.addNewPosition(new Point(row + 1, col + 1));
-        }
-
-        //(row + 1, col)
-        if (ModelLib.isCoorValid(row + 1, col) && ((p = getPieceAt(row + 1, col)) == null || p.getColor() != c)) {
-            king.addNewPosition(new Point(row + 1, col));
-        }
-
-        //(row + 1, col - 1)
-        if (ModelLib.isCoorValid(row + 1, col - 1) && ((p = getPieceAt(row + 1, col - 1)) == null || p.getColor() != c)) {
-            king.addNewPosition(new Point(row + 1, col - 1));
-        }
-
-        //(row, col - 1)
-        if (ModelLib.isCoorValid(row, col - 1) && ((p = getPieceAt(row, col - 1)) == null || p.getColor() != c)) {
-            king.addNewPosition(new Point(row, col - 1));
         }
     }
 
     /**
-     * Method for update the candidates list of a piece based on their Rank.
-     *
-     * @param piece - The piece to be updated
-     */
-    private void updateMove(Piece piece) {
-        switch (piece.getRank()) {
-            case PAWN:
-                getPawnMove(piece);
-                break;
-            case ROOK:
-                getRookMove(piece);
-                break;
-            case KNIGHT:
-                getKnightMove(piece);
-                break;
-            case BISHOP:
-                getBishopMove(piece);
-                break;
-            case QUEEN:
-                getQueenMove(piece);
-                break;
-            case KING:
-                getKingMove(piece);
-                break;
-            default:
-                break;
-        }
-    }
-
-    /**
-     * Method for updating all candidates list of all pieces in the board.
+     * Method for updating all candidates list of all pieces in the board. This
+     * rebuilds the attack maps from scratch, so it is only needed after setting
+     * up a board: movePiece, Castling and promote keep them up to date.
      */
     public void updateAllMoves() {
-        // Update affected piece
-        Piece piece;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                piece = getPieceAt(row, col);
-                //If we found a piece, update its candidates list
-                if (piece != null) {
-                    updateMove(piece);
-                }
-            }
+        Arrays.fill(this.attacksFrom, 0L);
+        Arrays.fill(this.attacksTo, 0L);
+        //Only visit the occupied squares
+        long occupied = this.position.occupied();
+        for (long o = occupied; o != 0; o &= o - 1) {
+            int sq = BitboardLib.first(o);
+            setAttacks(sq, this.position.attacksFrom(sq));
+        }
+        for (long o = occupied; o != 0; o &= o - 1) {
+            updateMove(this.pieces[BitboardLib.first(o)]);
         }
     }
 
@@ -622,29 +394,24 @@ public class ChessBoard extends JPanel {
      * otherwise
      */
     public boolean isChecked(Piece king) {
-        /*
-         * Algorithm explain: We perform a loop through the board and check 3 things: 
-         * 1. If the current square has no piece or our side (same color), ignore
-         * 2. If we found the opponent piece, then we check if that opponent's candidates list contains the king's position
-         * 3. If we can find at least one opponent that is currently checking the King, return true, else return false;
-         */
-
-        Piece p;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                //Ignore non-oppponent piece
-                if ((p = getPieceAt(row, col)) == null || p.getColor() == king.getColor()) {
-                    continue;
-                }
+        //The King is checked if its square is attacked by the opponent
+        return isSquareAttacked(squareOf(king), king.getColor() == Color.BLACK ? Color.WHITE : Color.BLACK);
+    }
 
-                //Check if the King cooridnate is in the moves list
-                if (p.hasPosition(king.getPosition())) {
-                    //If yes, then we simply return here, no need to check more
-                    return true;
-                }
-            }
-        }
-        return false;
+    /**
+     * Method for checking if a square is attacked by one side. It looks
+     * outward from the square for the pieces that could attack it (like a
+     * Knight jump, a Pawn capture or a free ray to a Rook, Bishop or Queen),
+     * so the cost is constant and nothing is changed, not even the selected
+     * piece.
+     *
+     * @param square - The square index (row * 8 + col)
+     * @param byColor - The attacking side
+     * @return - The boolean value, true if a piece of that side attacks the
+     * square, false otherwise
+     */
+    public boolean isSquareAttacked(int square, Color byColor) {
+        return this.position.isSquareAttacked(square, byColor.ordinal());
     }
 
     /**
@@ -666,41 +433,33 @@ public class ChessBoard extends JPanel {
          * Here, we assume that the row and col (destination position) is valid, so we check for the other criterias
          */
 
-        //First, get the old coordinate of the current selected piece
-        int oldRow = piece.getPosition().getRow();
-        int oldCol = piece.getPosition().getCol();
-
-        /*We perform the simulated move*/
-        //Get the king 
-        Piece king = piece.getColor() == Color.BLACK ? this.kings[0] : this.kings[1];
-
-        //Set the current square that the selected piece is in to null
-        this.board[oldRow][oldCol] = null;
-
-        //Get the taken piece (if existed)
-        Piece takenPiece = getPieceAt(row, col);
-
-        //Update the internal coordinate of the selected piece
-        piece.setPosition(new Point(row, col));
+        //Get the color of the piece
+        int color = piece.getColor().ordinal();
 
-        //Move the piece 
-        this.board[row][col] = piece;
-
-        //Update the moves list of all piece (since the state of the board is changed, so we have to update)
-        updateAllMoves();
-
-        //Get the new state of the King
-        boolean newState = isChecked(king);
-
-        //Whether or not the move is valid, we RESTORE the ORIGINAL state of the board, since this is just a simulation
-        piece.setPosition(new Point(oldRow, oldCol));
-        this.board[oldRow][oldCol] = piece;
-        this.board[row][col] = takenPiece;
-        updateAllMoves();
+        //We make the move on the model, check the King, then take the move back. No candidates list is touched
+        this.position.makeMove(toMove(squareOf(piece), BitboardLib.square(row, col)));
+        boolean newState = this.position.isInCheck(color);
+        this.position.unmakeMove();
 
         return !newState;
     }
 
+    /**
+     * Helper method, count the legal moves of one side with the move generator
+     * of the model.
+     *
+     * @param side - The side for counting
+     * @return - The number of legal moves of that side
+     */
+    private int countLegalMoves(Color side) {
+        //The generator works for the side to move, so we give the turn to that side for the count
+        int sideToMove = this.position.getSideToMove();
+        this.position.setSideToMove(side.ordinal());
+        int count = this.position.countLegalMoves();
+        this.position.setSideToMove(sideToMove);
+        return count;
+    }
+
     /**
      * Method for calculating if the King is being checkmate.
      *
@@ -710,102 +469,22 @@ public class ChessBoard extends JPanel {
      */
     public boolean isCheckmate(Piece king) {
         /*
-         * The idea for this algorithm is:
-         * 1. First, we check if the king is being checked using isChecked method
-         * 2. If yes, then we check that, for all the moves that the King can make, is there a move that can make the
-         * King to escaped from being checked
-         * 3. If no (all squares around the King can move still make the King checked), then can any piece of our side can capture
-         * the opponent
-         * 4. If no either, then we finally check that, if any piece in our side can block the path of the opponent 
-         * (Note that, the 3. and 4. only true if the King is only checked by at most 1 opponent)
-         * NOTE: there is a case, where the King is not checked, but it cannot make any valid moves (Every squares it can move to
-         * will lead to a checked). In the official rule, that would be statement, but for simplicity, we still count that as lost 
-         */
-
-        //We have to create a copy of King's move instead of using it directly, since the simulateMove is modifying 
-        //the king's candidates list directly (by calling updateAllMoves method), so if we the king's candidates list directly
-        //it will throw ConcurrentModificationException
-        ArrayList<Point> temp = new ArrayList<>(king.getCandidates());
-        for (Point p : temp) {
-            if (simulateMove(king, p.getRow(), p.getCol())) {
-                //If found at least one move to escape, then there is no need to check more
-                return false;
-            }
-        }
-
-        /*
-         * Next, we check if we can take the opponent piece to save the King
-         * This is only in the case where the King currently be checked
+         * The King is checkmate if it is being checked and its side has no legal move. The legal moves come from
+         * the generator of the model, which already knows the pinned pieces and the squares that stop the check
+         * (capture the checker, block its ray or move the King), so no move has to be tried.
          */
-        if (isChecked(king)) {
-            //First, we found the current opponent that is checking the king
-            Piece opponent = null;
-            boolean found = false;
-            for (int row = 0; row < 8 && !found; row++) {
-                for (int col = 0; col < 8 && !found; col++) {
-                    opponent = getPieceAt(row, col);
-                    if (opponent != null && opponent.getColor() != king.getColor() && opponent.hasPosition(king.getPosition())) {
-                        found = true;
-                    }
-                }
-            }
-
-            //Next, we find a piece in our side that has the opponent position in the candidates list, and perform simulate move
-            Piece ourPiece;
-            for (int row = 0; row < 8; row++) {
-                for (int col = 0; col < 8; col++) {
-                    ourPiece = getPieceAt(row, col);
-                    //Since the king is being checked -> opponent must exist -> there is no need to handle NullPointerException
-                    if (ourPiece != null && ourPiece.getColor() == king.getColor() && ourPiece.hasPosition(opponent.getPosition())) {
-                        //We check that the our piece can actually capture the opponent
-                        if (ourPiece.hasPosition(new Point(opponent.getPosition().getRow(), opponent.getPosition().getCol()))) {
-                            //We check if taking the opponent piece still make the King being checked
-                            if (simulateMove(ourPiece, opponent.getPosition().getRow(), opponent.getPosition().getCol())) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            }
-
-            //Check if we can block the path of the opponent (only for Rook, Bishop or Queen)
-            if (opponent.getRank() == Rank.ROOK || opponent.getRank() == Rank.BISHOP || opponent.getRank() == Rank.QUEEN) {
-                //Calculate the direction in which the opponent piece is checking the king
-                int rowDiff = Integer.compare(king.getPosition().getRow(), opponent.getPosition().getRow());
-                int colDiff = Integer.compare(king.getPosition().getCol(), opponent.getPosition().getCol());
-
-                for (int row = 0; row < 8; row++) {
-                    for (int col = 0; col < 8; col++) {
-                        int curRow = opponent.getPosition().getRow() + rowDiff;
-                        int curCol = opponent.getPosition().getCol() + colDiff;
-
-                        while (curRow != king.getPosition().getRow() || curCol != king.getPosition().getCol()) {
-                            //For each square along the path, check if one of our pieces can block the check piece
-                            ourPiece = getPieceAt(row, col);
-                            if (ourPiece != null && ourPiece.getColor() == king.getColor() && ourPiece.hasPosition(new Point(curRow, curCol))) {
-                                //Check if the current position in the opponent path can be reach by the current our piece
-                                if (ourPiece.hasPosition(new Point(curRow, curCol))) {
-                                    //If yes, the we perform simulate move (simulate move is true if that move didn't lead to check)
-                                    if (simulateMove(ourPiece, curRow, curCol)) {
-                                        return false;
-                                    }
-                                }
-                            }
-
-                            //Move along the path
-                            curRow += rowDiff;
-                            curCol += colDiff;
-                        }
-                    }
-                }
-            }
-        } else {
-            //If the King is not checked, then it cannot be end game
-            return false;
-        }
+        return isChecked(king) && countLegalMoves(king.getColor()) == 0;
+    }
 
-        //If the King cannot make a move, or there is no other piece of our side can solve the checked state, end game
-        return true;
+    /**
+     * Method for calculating if the side of a King is stalemate.
+     *
+     * @param king - The King for calculation
+     * @return - The boolean, true if the king is not checked but its side has
+     * no legal move, false otherwise
+     */
+    public boolean isStalemate(Piece king) {
+        return !isChecked(king) && countLegalMoves(king.getColor()) == 0;
     }
 
     /**
@@ -817,62 +496,53 @@ public class ChessBoard extends JPanel {
      * capture any piece.
      */
     public Piece movePiece(int row, int col) {
-        //Record the old position of selected piece
-        int oldRow = this.selectedPiece.getPosition().getRow();
-        int oldCol = this.selectedPiece.getPosition().getCol();
+        int from = squareOf(this.selectedPiece), to = BitboardLib.square(row, col);
+        int move = toMove(from, to);
 
-        Piece takenPiece = null;
-        //Set the old position to null
-        this.board[oldRow][oldCol] = null;
-        //Update the internal position of the piece
-        this.selectedPiece.setPosition(new Point(row, col));
-        //We record the taken piece (if has) and return it later
-        takenPiece = getPieceAt(row, col);
-        //We set the new position to selected piece
-        this.board[row][col] = this.selectedPiece;
-
-        //If the moving piece is either Rook or King, disqualified it from castling
-        if (selectedPiece.getRank() == Rank.ROOK && oldRow == 0 && oldCol == 0) {
-            if (takenPiece != null && takenPiece.getRank() == Rank.ROOK && takenPiece.getPosition().equals(new Point(0, 0))) {
-                canCastle[0] = null;
-            } else {
-                canCastle[0] = false;
-            }
-        } else if (selectedPiece.getRank() == Rank.KING && oldRow == 0 && oldCol == 4) {
-            if (takenPiece != null && takenPiece.getRank() == Rank.KING && takenPiece.getPosition().equals(new Point(0, 4))) {
-                canCastle[1] = null;
-            } else {
-                canCastle[1] = false;
-            }
-        } else if (selectedPiece.getRank() == Rank.ROOK && oldRow == 0 && oldCol == 7) {
-            if (takenPiece != null && takenPiece.getRank() == Rank.ROOK && takenPiece.getPosition().equals(new Point(0, 7))) {
-                canCastle[2] = null;
-            } else {
-                canCastle[2] = false;
-            }
-        } else if (selectedPiece.getRank() == Rank.ROOK && oldRow == 7 && oldCol == 0) {
-            if (takenPiece != null && takenPiece.getRank() == Rank.ROOK && takenPiece.getPosition().equals(new Point(7, 0))) {
-                canCastle[3] = null;
-            } else {
-                canCastle[3] = false;
-            }
-        } else if (selectedPiece.getRank() == Rank.KING && oldRow == 7 && oldCol == 4) {
-            if (takenPiece != null && takenPiece.getRank() == Rank.KING && takenPiece.getPosition().equals(new Point(7, 4))) {
-                canCastle[4] = null;
-            } else {
-                canCastle[4] = false;
-            }
-        } else if (selectedPiece.getRank() == Rank.ROOK && oldRow == 7 && oldCol == 7) {
-            if (takenPiece != null && takenPiece.getRank() == Rank.ROOK && takenPiece.getPosition().equals(new Point(7, 7))) {
-                canCastle[5] = null;
-            } else {
-                canCastle[5] = false;
-            }
+        //We record the taken piece (if has) and return it later. An en passant capture takes the Pawn behind the destination
+        int takenSquare = Move.isEnPassant(move) ? BitboardLib.square(BitboardLib.row(from), col) : to;
+        Piece takenPiece = this.pieces[takenSquare];
+        if (takenPiece != null) {
+            this.pieces[takenSquare] = null;
         }
-        isWhiteTurn = !isWhiteTurn;
+
+        //Make the move in the model (which also updates the castling rights and the turn), then in the view
+        long oldEp = epMask();
+        this.position.makeMove(move);
+        placePiece(this.selectedPiece, row, col);
+
+        //Only the pieces touching the changed squares need new attacks and candidates. The en passant squares are
+        //included so the Pawns that could (or no longer can) capture there are refreshed
+        refreshAttacks(BitboardLib.bit(from) | BitboardLib.bit(to) | BitboardLib.bit(takenSquare) | oldEp | epMask());
         return takenPiece;
     }
 
+    /**
+     * Helper method, encode a move of the piece on a square for the model. A
+     * Pawn moving diagonally to an empty square is an en passant capture.
+     *
+     * @param from - The source square
+     * @param to - The destination square
+     * @return - The packed move
+     */
+    private int toMove(int from, int to) {
+        if (Position.rankOf(this.position.pieceAt(from)) == Position.PAWN && BitboardLib.col(from) != BitboardLib.col(to)
+                && this.position.pieceAt(to) == Position.EMPTY) {
+            return Move.enPassant(from, to);
+        }
+        return Move.of(from, to);
+    }
+
+    /**
+     * Helper method, return the mask of the en passant square of the model.
+     *
+     * @return - The mask of the en passant square, 0 if there is none
+     */
+    private long epMask() {
+        int ep = this.position.getEpSquare();
+        return ep < 0 ? 0L : BitboardLib.bit(ep);
+    }
+
     /**
      * Method for pawn promotion.
      *
@@ -880,28 +550,26 @@ public class ChessBoard extends JPanel {
      */
     public void promote(Rank newRank) {
         /*
-         * Algorithm explain: We first found the pawn at the final row. 
-         * Logically, whenever a pawn reach the end side, this method must be called. We assume that the logic is handled correctly
-         * so there is no need to worry about multiple pawn at the same end 
+         * Algorithm explain: Logically, whenever a pawn reach the end side, this method must be called right after the move.
+         * So the pawn is the piece on the destination of the last move in the model.
          * Then we just have to change the Type to whatever the user select, and update it moves list
          */
-        Piece pawn;
-        for (int col = 0; col < 8; col++) {
-            if (this.selectedPiece.getColor() == Color.WHITE) {
-                pawn = getPieceAt(0, col);
-            } else {
-                pawn = getPieceAt(7, col);
-            }
-            //If we find a pawn, update rank
-            if (pawn != null && pawn.getRank() == Rank.PAWN) {
-                //Set the type
-                pawn.setRank(newRank);
-                updateMove(pawn);
-                return;
-            }
+        Piece pawn = this.pieces[Move.to(this.position.getLastMove())];
+        if (pawn != null && pawn.getRank() == Rank.PAWN) {
+            //Set the type in the view and in the model (the model records it in the last move)
+            pawn.setRank(newRank);
+            this.position.setPromotion(newRank.ordinal());
+            refreshAttacks(BitboardLib.bit(squareOf(pawn)));
         }
     }
 
+    /**
+     * Helper method, check if a side can perform a short castling.
+     *
+     * @param side - The side of the player for determining
+     * @return - Boolean value, true if that player can perform short castling,
+     * false otherwise
+     */
     private boolean CanShortCastling(Color side) {
         /*
              * Algorithm explains: a castiling (whichever side) can only be performed if it meets these requirement
@@ -911,161 +579,93 @@ public class ChessBoard extends JPanel {
              * 3. The King must not be in checked state
              * 4. The Square that the King passes through must not be under attack of the opponent
              * 5. The destination of the King must not be under attack of the opponent
-             * So we check for each condition
+             * The model checks each condition: 1 with the castling rights it keeps, 2 with the occupancy and 3 to 5
+             * with isSquareAttacked on the three King squares
          */
-
-        //If the Rook (right) has been taken before they can move, we invalid the short castling
-        if (canCastle[side == Color.BLACK ? 1 : 4] == null) {
-            return false;
-        }
-
-        //If either Rook (right) or King has moved, return false
-        if (canCastle[side == Color.BLACK ? 1 : 4] == false || canCastle[side == Color.BLACK ? 2 : 5] == false) {
-            return false;
-        }
-
-        //If the King is currently being checked, return false
-        if (isChecked(side == Color.BLACK ? this.getBlackKing() : this.getWhiteKing())) {
-            return false;
-        }
-
-        //Check if the next two square to the right is under attack
-        Piece piece, oldSelectedPiece = getSelectedPiece();
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                piece = getPieceAt(row, col);
-                if (piece != null && piece.getColor() != side) {
-                    //Select the piece to calculate the move it can actually move
-                    setSelectedPiece(piece);
-                    //Check if the next 2 square (0, 5) / (7, 5) and (0, 6) / (7, 6) are under attack
-                    if (piece.hasPosition(side == Color.BLACK ? 0 : 7, 5) || piece.hasPosition(side == Color.BLACK ? 0 : 7, 6)) {
-                        return false;
-                    }
-                }
-
-            }
-        }
-
-        //Restore the selected piece 
-        setSelectedPiece(oldSelectedPiece);
-        return true;
+        return this.position.canCastle(side.ordinal(), false);
     }
 
-    /// <summary>
-    /// Method for checking if the current player can perform a long castling
-    /// </summary>
-    /// <param name="side">The side of the player for determining</param>
-    /// <returns>Boolean value, true if that player can perfor short castling, false otherwise</returns>
+    /**
+     * Helper method, check if a side can perform a long castling.
+     *
+     * @param side - The side of the player for determining
+     * @return - Boolean value, true if that player can perform long castling,
+     * false otherwise
+     */
     private boolean CanLongCastling(Color side) {
-        /*
-             * Algorithm explains: a castiling (whichever side) can only be performed if it meets these requirement
-             * 1. Both the King and the Rook must not be moved (which means, move a King/Rook, then return them to the initial Position also
-             * not valid)
-             * 2. There is no Piece stand between them
-             * 3. The King must not be in checked state
-             * 4. The Square that the King passes through must not be under attack of the opponent
-             * 5. The destination of the King must not be under attack of the opponent
-             * So we check for each condition
-         */
-
-        //If the Rook (left) has been taken before they can move, we invalid the short castling
-        if (canCastle[side == Color.BLACK ? 1 : 4] == null) {
-            return false;
-        }
+        //Same conditions as the short castling, on the Queen side (the King passes through column 3 and lands on 2)
+        return this.position.canCastle(side.ordinal(), true);
+    }
 
-        //If either Rook (left) or King has moved, return false
-        if (canCastle[side == Color.BLACK ? 1 : 4] == false || canCastle[side == Color.BLACK ? 0 : 3] == false) {
-            return false;
-        }
+    /**
+     * Method for checking if a side can castle now, without changing
+     * anything: the same conditions as a castling click, at a constant cost.
+     *
+     * @param side - The side of the player
+     * @param isLongCastling - True for a long castling, false for a short
+     * castling
+     * @return - Boolean value, true if that player can perform the castling
+     */
+    public boolean canCastle(Color side, boolean isLongCastling) {
+        return isLongCastling ? CanLongCastling(side) : CanShortCastling(side);
+    }
 
-        //If the King is currently being checked, return false
-        if (isChecked(side == Color.BLACK ? getBlackKing() : getWhiteKing())) {
+    /**
+     * Helper method, perform a castling for the side to move if it is legal.
+     *
+     * @param isLongCastling - True for a long castling, false for a short
+     * castling
+     * @return - The boolean value, true if the castling was performed
+     */
+    private boolean performCastling(boolean isLongCastling) {
+        Color side = isWhiteTurn() ? Color.WHITE : Color.BLACK;
+        if (isLongCastling ? !CanLongCastling(side) : !CanShortCastling(side)) {
+            //Nothing is changed, the player can still make another move
             return false;
         }
+        int row = side == Color.WHITE ? 7 : 0;
+        int rookFrom = isLongCastling ? 0 : 7, rookTo = isLongCastling ? 3 : 5, kingTo = isLongCastling ? 2 : 6;
+        Piece rook = getPieceAt(row, rookFrom);
+        Piece king = side == Color.WHITE ? getWhiteKing() : getBlackKing();
 
-        //Check if the next two square to the right is under attack
-        Piece piece, oldSelectedPiece = getSelectedPiece();
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                piece = getPieceAt(row, col);
-                if (piece != null && piece.getColor() != side) {
-                    //Select the piece to calculate the move it can actually move
-                    setSelectedPiece(piece);
-                    //Check if the next 2 square (0, 1) / (7, 1) and (0, 2) / (7, 2) and (0, 3) / (7, 3) are under attack
-                    if (piece.hasPosition(side == Color.BLACK ? 0 : 7, 1)
-                            || piece.hasPosition(side == Color.BLACK ? 0 : 7, 2)
-                            || piece.hasPosition(side == Color.BLACK ? 0 : 7, 3)) {
-                        return false;
-                    }
-                }
+        //Make the castling in the model, which moves both the King and the Rook
+        long oldEp = epMask();
+        this.position.makeMove(Move.castling(BitboardLib.square(row, 4), BitboardLib.square(row, kingTo)));
 
-            }
-        }
+        //Move the rook and king in the view
+        placePiece(rook, row, rookTo);
+        placePiece(king, row, kingTo);
 
-        //Restore the selected piece 
-        setSelectedPiece(oldSelectedPiece);
+        //Only the pieces touching the King and Rook squares need new attacks and candidates
+        refreshAttacks(BitboardLib.bit(BitboardLib.square(row, 4)) | BitboardLib.bit(BitboardLib.square(row, kingTo))
+                | BitboardLib.bit(BitboardLib.square(row, rookFrom)) | BitboardLib.bit(BitboardLib.square(row, rookTo)) | oldEp);
         return true;
     }
 
-    /// <summary>
-    /// Method for perform long castling
-    /// </summary>
-    private void LongCastling() {
-        if (CanLongCastling(isWhiteTurn ? Color.WHITE : Color.BLACK)) {
-            Piece rook = getPieceAt(isWhiteTurn ? 7 : 0, 0);
-            Piece king = isWhiteTurn ? getWhiteKing() : getBlackKing();
-
-            //Update the internal coordinate of the rook and king
-            if (rook != null) {
-                //This is just for type safe checking, if CanShortCastling is true, then rook is guaranteed is not null
-                rook.getPosition().setCol(3);
-            }
-            king.getPosition().setCol(2);
-
-            board[isWhiteTurn ? 7 : 0][3] = rook;
-            board[isWhiteTurn ? 7 : 0][2] = king;
-
-            board[isWhiteTurn ? 7 : 0][4] = null;
-            board[isWhiteTurn ? 7 : 0][0] = null;
-        }
-    }
-
-    /// <summary>
-    /// Method for perform short catsling
-    /// </summary>
-    private void ShortCastling() {
-        if (CanShortCastling(isWhiteTurn ? Color.WHITE : Color.BLACK)) {
-            Piece rook = getPieceAt(isWhiteTurn ? 7 : 0, 7);
-            Piece king = isWhiteTurn ? getWhiteKing() : getBlackKing();
-
-            //Update the internal coordinate of the rook and king
-            if (rook != null) {
-                //This is just for type safe checking, if CanShortCastling is true, then rook is guaranteed is not null
-                rook.getPosition().setCol(5);
-            }
-            king.getPosition().setCol(6);
-
-            board[isWhiteTurn ? 7 : 0][5] = rook;
-            board[isWhiteTurn ? 7 : 0][6] = king;
-
-            board[isWhiteTurn ? 7 : 0][4] = null;
-            board[isWhiteTurn ? 7 : 0][7] = null;
-        }
+    /**
+     * The actual method for perform castling. If the castling is not legal,
+     * nothing happens (the turn stays with the same player).
+     *
+     * @param isLongCastling - Boolean value to signify if this is a long
+     * castling (true) or short castling (false)
+     * @return - The boolean value, true if the castling was performed, false
+     * if it is not legal
+     */
+    public boolean Castling(boolean isLongCastling) {
+        boolean done = performCastling(isLongCastling);
+        setSelectedPiece(null);
+        return done;
     }
 
-    /// <summary>
-    /// The actual method for perform castling
-    /// </summary>
-    /// <param name="isLongCastling">Boolean value to signify if this is a long castling (true) or short castling (false)</param>
-    public void Castling(boolean isLongCastling) {
-        if (isLongCastling) {
-            LongCastling();
-        } else {
-            ShortCastling();
-        }
-        
-        isWhiteTurn = !isWhiteTurn;
-        setSelectedPiece(null);
+    /**
+     * Method for giving the turn to the other player without a move. Older
+     * versions saved a castling that was not legal as a move that only passed
+     * the turn, so this is only used to replay those records.
+     */
+    public void passTurn() {
+        this.position.setSideToMove(this.position.getSideToMove() ^ 1);
+        //The Pawns next to the en passant square change with the turn
+        refreshAttacks(epMask());
     }
 
     /**
@@ -1078,7 +678,7 @@ public class ChessBoard extends JPanel {
         int size = 100; //square size in pixel
         for (int i = 0; i < 8; i++) {
             for (int j = 0; j < 8; j++) {
-                g2.setColor(isLight ? new java.awt.Color(210, 165, 125) : new java.awt.Color(175, 115, 70));
+                g2.setColor(isLight ? LIGHT_SQUARE : DARK_SQUARE);
                 g2.fillRect(i * size, j * size, size, size);
                 isLight = !isLight;
             }
@@ -1093,21 +693,17 @@ public class ChessBoard extends JPanel {
      */
     private void drawPieces(Graphics2D g2) {
         Piece p;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                p = getPieceAt(row, col);
-                //If we found a piece
-                if (p != null) {
-                    //Get image
-                    p.getImage();
-                    //Calculate the yOffSet (if the piece is selected piece)
-                    int yOffSet = 0;
-                    if (p.equals(this.selectedPiece)) {
-                        yOffSet = this.selectedPiece.getColor().equals(Color.BLACK) ? 10 : -10;
-                    }
-                    p.draw(g2, yOffSet);
-                }
+        //Only visit the occupied squares
+        for (long occupied = this.position.occupied(); occupied != 0; occupied &= occupied - 1) {
+            p = this.pieces[BitboardLib.first(occupied)];
+            //Get image
+            p.getImage();
+            //Calculate the yOffSet (if the piece is selected piece)
+            int yOffSet = 0;
+            if (p.equals(this.selectedPiece)) {
+                yOffSet = this.selectedPiece.getColor().equals(Color.BLACK) ? 10 : -10;
             }
+            p.draw(g2, yOffSet);
         }
     }
 
@@ -1121,10 +717,11 @@ public class ChessBoard extends JPanel {
         //Only when a piece is selected that we need highlight
         int size = 100;
         if (this.selectedPiece != null) {
-            for (Point pos : this.selectedPiece.getCandidates()) {
-                g2.setColor(new java.awt.Color(230, 255, 230, 70));
+            g2.setColor(HIGHLIGHT);
+            for (long moves = this.selectedPiece.getCandidateMask(); moves != 0; moves &= moves - 1) {
+                int sq = BitboardLib.first(moves);
                 //x coordinate is associated with COLUMN and y coordinate is associated with ROW
-                g2.fillOval(pos.getCol() * size + size / 4, pos.getRow() * size + size / 4, size / 2, size / 2);
+                g2.fillOval(BitboardLib.col(sq) * size + size / 4, BitboardLib.row(sq) * size + size / 4, size / 2, size / 2);
             }
         }
     }
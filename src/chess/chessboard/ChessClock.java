@@ -0,0 +1,264 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.chessboard;
+
+import chess.engine.Engine;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * The ChessClock class, the clocks of both players. Only the clock of the side
+ * to move runs; pressing it (after a move) stops it and starts the other one.
+ * With the Fischer mode, every move adds the increment to the clock of the
+ * player who made it; with the Bronstein mode, the time used for the move is
+ * given back, up to the increment (the delay).
+ *
+ * The times are counted with System.nanoTime, not with the ticks of a timer,
+ * so they are exact however late the screen is updated. The fall of a flag is
+ * not found by the screen updates either: a task is scheduled on the clock
+ * thread at the very time the running clock reaches zero, so the flag falls
+ * on time even when the event dispatch thread is busy, and a move arriving
+ * after that (or pressed later than the time left) is too late.
+ *
+ * @author Asus
+ */
+public class ChessClock {
+
+    /**
+     * The ways a clock gives time back after a move.
+     */
+    public enum Mode {
+        //The increment is added after every move
+        FISCHER,
+        //The time used is given back, up to the increment
+        BRONSTEIN
+    }
+
+    //The thread falling the flags, shared by every clock
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, Engine.daemon("clock"));
+
+    static {
+        //A cancelled fall leaves the queue at once, else it would keep its clock (and the game) until its time
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    //The mode and the increment (or delay) in nanoseconds
+    private final Mode mode;
+    private final long increment;
+    //The callback told which side (color ordinal) lost on time, called on the clock thread
+    private final IntConsumer onFlag;
+    //The time left on each clock in nanoseconds, indexed by color ordinal (for the running one, when its turn began)
+    private final long[] remaining;
+    //The side whose clock runs, or -1 if both are stopped
+    private int running;
+    //The time (System.nanoTime) the running clock was started
+    private long turnStart;
+    //The side whose flag fell, or -1
+    private int flagged;
+    //The task falling the flag of the running clock, null if none is running
+    private ScheduledFuture<?> flagTask;
+
+    /**
+     * Constructor of class ChessClock, both clocks stopped with the same time.
+     *
+     * @param mode - The mode
+     * @param baseMs - The time of each player in milliseconds
+     * @param incrementMs - The increment (or delay) per move in milliseconds
+     * @param onFlag - The callback told which side (color ordinal) lost on
+     * time, called on the clock thread
+     * @throws IllegalArgumentException - If the time is not positive or the
+     * increment negative, throws IllegalArgumentException
+     */
+    public ChessClock(Mode mode, long baseMs, long incrementMs, IntConsumer onFlag) throws IllegalArgumentException {
+        if (baseMs <= 0 || incrementMs < 0) {
+            throw new IllegalArgumentException("The time must be positive and the increment not negative");
+        }
+        this.mode = mode;
+        this.increment = TimeUnit.MILLISECONDS.toNanos(incrementMs);
+        this.onFlag = onFlag;
+        long base = TimeUnit.MILLISECONDS.toNanos(baseMs);
+        this.remaining = new long[]{base, base};
+        this.running = -1;
+        this.flagged = -1;
+    }
+
+    /**
+     * Method for starting the clock of one side, the other one being stopped.
+     * Nothing happens once a flag has fallen.
+     *
+     * @param color - The color ordinal of the side to move
+     */
+    public synchronized void start(int color) {
+        if (this.flagged >= 0) {
+            return;
+        }
+        stop();
+        this.running = color;
+        this.turnStart = System.nanoTime();
+        schedule();
+    }
+
+    /**
+     * Method for pressing the clock after a move: the clock of the side that
+     * moved stops (getting its increment) and the other one starts. If the
+     * time of the side that moved ran out before the press, its flag falls
+     * instead (the callback is told).
+     *
+     * @return - The boolean value, false if the move was too late (or a flag
+     * had already fallen)
+     */
+    public boolean press() {
+        int loser;
+        synchronized (this) {
+            if (this.flagged >= 0 || this.running < 0) {
+                return this.flagged < 0;
+            }
+            long used = System.nanoTime() - this.turnStart;
+            int side = this.running;
+            if (used < this.remaining[side]) {
+                long back = this.mode == Mode.FISCHER ? this.increment : Math.min(used, this.increment);
+                this.remaining[side] += back - used;
+                cancel();
+                this.running = 1 - side;
+                this.turnStart += used;
+                schedule();
+                return true;
+            }
+            loser = fall(side);
+        }
+        this.onFlag.accept(loser);
+        return false;
+    }
+
+    /**
+     * Method for stopping the running clock (the end of a game), keeping the
+     * time left.
+     */
+    public synchronized void stop() {
+        if (this.running >= 0) {
+            this.remaining[this.running] = Math.max(0L, this.remaining[this.running] - (System.nanoTime() - this.turnStart));
+            this.running = -1;
+            cancel();
+        }
+    }
+
+    /**
+     * Method for getting the time left on the clock of one side, counted up
+     * to now for the running clock.
+     *
+     * @param color - The color ordinal
+     * @return - The time left in milliseconds, 0 if it ran out
+     */
+    public synchronized long getRemainingMs(int color) {
+        long left = this.remaining[color];
+        if (color == this.running) {
+            left -= System.nanoTime() - this.turnStart;
+        }
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(left));
+    }
+
+    /**
+     * Getter method of 'increment' field.
+     *
+     * @return - The increment (or delay) per move in milliseconds
+     */
+    public long getIncrementMs() {
+        return TimeUnit.NANOSECONDS.toMillis(increment);
+    }
+
+    /**
+     * Getter method of 'mode' field.
+     *
+     * @return - The mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Getter method of 'flagged' field.
+     *
+     * @return - The color ordinal of the side that lost on time, or -1
+     */
+    public synchronized int getFlagged() {
+        return flagged;
+    }
+
+    /**
+     * Method for writing the time left on a clock for the player: minutes and
+     * seconds, with tenths under ten seconds.
+     *
+     * @param ms - The time left in milliseconds
+     * @return - The time text
+     */
+    public static String format(long ms) {
+        if (ms < 10_000L) {
+            return String.format("0:%02d.%d", ms / 1000L, ms / 100L % 10L);
+        }
+        long seconds = ms / 1000L;
+        return String.format("%d:%02d", seconds / 60L, seconds % 60L);
+    }
+
+    /**
+     * Helper method, schedule the fall of the flag of the running clock at
+     * the time it reaches zero. The caller holds the lock.
+     */
+    private void schedule() {
+        int side = this.running;
+        long left = this.remaining[side] - (System.nanoTime() - this.turnStart);
+        this.flagTask = TIMER.schedule(() -> expire(side), Math.max(0L, left), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Helper method, cancel the fall of the flag of the running clock. The
+     * caller holds the lock.
+     */
+    private void cancel() {
+        if (this.flagTask != null) {
+            this.flagTask.cancel(false);
+            this.flagTask = null;
+        }
+    }
+
+    /**
+     * Helper method, fall the flag of a side. The caller holds the lock.
+     *
+     * @param side - The color ordinal of the side
+     * @return - The side
+     */
+    private int fall(int side) {
+        this.remaining[side] = 0L;
+        this.running = -1;
+        this.flagged = side;
+        cancel();
+        return side;
+    }
+
+    /**
+     * Helper method, the task on the clock thread at the time a clock reaches
+     * zero. The clock may have been pressed or stopped just before, so the
+     * flag only falls if that clock still runs and is really out of time.
+     *
+     * @param side - The color ordinal of the side whose clock was running
+     */
+    private void expire(int side) {
+        synchronized (this) {
+            if (this.running != side) {
+                return;
+            }
+            if (System.nanoTime() - this.turnStart < this.remaining[side]) {
+                //Woken a little early, wait for the rest
+                cancel();
+                schedule();
+                return;
+            }
+            fall(side);
+        }
+        this.onFlag.accept(side);
+    }
+}
@@ -6,6 +6,13 @@
 package chess.chessboard;
 
 import chess.Chess;
+import chess.engine.Analysis;
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.Tablebase;
+import chess.engine.TimeManager;
 import chess.util.ModelLib;
 import chess.util.ViewLib;
 import java.awt.BorderLayout;
@@ -24,8 +31,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import javax.imageio.ImageIO;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -35,6 +45,7 @@ import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 
 /**
@@ -55,6 +66,41 @@ public class Game extends JPanel implements Listener {
     private String player1, player2;
     //The reference to the Chess object, for returning to menu operation
     private final Chess app;
+    //The player name that lets the computer play that side
+    public static final String COMPUTER = "Computer";
+    //The computer player, which searches on its own thread, made the first time it is needed (see engine())
+    private Engine engine;
+    //The endgame tables, or null if there are none
+    private Tablebase tablebase;
+    //The time the computer may think for each move, in milliseconds
+    private long engineBudget;
+    //The number of searches started, the result of an older search (from a game left since) is ignored
+    private int searchId;
+    //The number of best lines the analysis shows, and the time between two updates of the lines in milliseconds
+    private static final int ANALYSIS_LINES = 3, ANALYSIS_REFRESH_MS = 250;
+    //The flag for analysing the position on the board
+    private boolean analyzing;
+    //The latest lines of the running analysis not shown yet: the search thread puts them there and the timer takes
+    //them, so the search never floods the event dispatch thread. Each analysis gets its own holder, so the lines of
+    //a position left since are never shown
+    private AtomicReference<Analysis> pendingAnalysis;
+    //The timer showing the latest lines a few times per second while the analysis is on
+    private final Timer analysisTimer;
+    //The number of moves played, a hint found for an earlier position is dropped
+    private int hintId;
+    //The flag telling a hint is being searched
+    private boolean hintPending;
+    //The mode of the clocks (null for a game without them), the time of each player and the increment in milliseconds
+    private final ChessClock.Mode clockMode;
+    private final long clockBaseMs, clockIncrementMs;
+    //The clocks of the running game, null if there are none
+    private ChessClock clock;
+    //The number of clocks made, the flag of the clock of a game left since is ignored
+    private int clockId;
+    //The time between two updates of the clock labels in milliseconds, only the labels are repainted
+    private static final int CLOCK_REFRESH_MS = 100;
+    //The timer updating the clock labels while a clock runs
+    private final Timer clockTimer;
 
     /**
      * Helper method, setup the layout of Game panel.
@@ -112,10 +158,100 @@ public class Game extends JPanel implements Listener {
         //Set the turn to WHITE first
         this.isWhiteTurn = true;
 
+        //The computer player is only made when a game needs it, its budget can be changed with -Dchess.engine.millis
+        this.engine = null;
+        this.engineBudget = Long.getLong("chess.engine.millis", 2000L);
+        this.searchId = 0;
+        this.analyzing = false;
+        this.pendingAnalysis = new AtomicReference<>();
+        this.hintId = 0;
+        this.hintPending = false;
+        this.analysisTimer = new Timer(ANALYSIS_REFRESH_MS, (ActionEvent e) -> {
+            Analysis latest = this.pendingAnalysis.getAndSet(null);
+            if (latest != null) {
+                this.sidePanel.showAnalysis(latest.toString());
+            }
+        });
+
+        //The game is played without clocks unless they are asked for with -Dchess.clock=fischer|bronstein, the time
+        //is 10 minutes and 5 seconds per move, which can be changed with -Dchess.clock.minutes and
+        //-Dchess.clock.increment (in seconds). The save file has no clock, a loaded game starts both at full time
+        String mode = System.getProperty("chess.clock", "none");
+        if ("fischer".equalsIgnoreCase(mode)) {
+            this.clockMode = ChessClock.Mode.FISCHER;
+        } else if ("bronstein".equalsIgnoreCase(mode)) {
+            this.clockMode = ChessClock.Mode.BRONSTEIN;
+        } else {
+            this.clockMode = null;
+        }
+        this.clockBaseMs = Long.getLong("chess.clock.minutes", 10L) * 60_000L;
+        this.clockIncrementMs = Long.getLong("chess.clock.increment", 5L) * 1000L;
+        this.clock = null;
+        this.clockId = 0;
+        this.clockTimer = new Timer(CLOCK_REFRESH_MS, (ActionEvent e) -> showClocks());
+
+        //The small endings are read from the endgame tables if they were made (another directory can be given with
+        //-Dchess.engine.tablebases, see chess.tools.TablebaseGenerator)
+        this.tablebase = null;
+        File tablebaseDir = new File(System.getProperty("chess.engine.tablebases", "./data/tablebases"));
+        if (tablebaseDir.isDirectory()) {
+            try {
+                this.tablebase = new Tablebase(Paths.get(tablebaseDir.getPath()));
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("Error opening tablebases");
+                System.out.println(e);
+            }
+        }
+
         //Initialize the layout
         initLayout();
     }
 
+    /**
+     * Helper method, get the computer player, making it the first time. A game
+     * between two humans that never asks for a hint or an analysis never makes
+     * it, so it does not pay for the threads and the tables.
+     *
+     * @return - The engine
+     */
+    private Engine engine() {
+        if (this.engine != null) {
+            return this.engine;
+        }
+        //Initialize the computer player on every core, the table size and threads can be changed with
+        //-Dchess.engine.hash and -Dchess.engine.threads, the pruning and pondering turned off with
+        //-Dchess.engine.nullmove=false, -Dchess.engine.lmr=false and -Dchess.engine.ponder=false
+        this.engine = new Engine(Integer.getInteger("chess.engine.hash", Engine.DEFAULT_HASH_MB),
+                Integer.getInteger("chess.engine.threads", Runtime.getRuntime().availableProcessors()));
+        this.engine.setNullMove(!"false".equalsIgnoreCase(System.getProperty("chess.engine.nullmove")));
+        this.engine.setReductions(!"false".equalsIgnoreCase(System.getProperty("chess.engine.lmr")));
+        this.engine.setPondering(!"false".equalsIgnoreCase(System.getProperty("chess.engine.ponder")));
+        this.engine.setTablebase(this.tablebase);
+
+        //The computer plays the opening from the book file if there is one (another file can be given with
+        //-Dchess.engine.book, see chess.tools.BookBuilder)
+        File bookFile = new File(System.getProperty("chess.engine.book", "./data/book.bin"));
+        if (bookFile.isFile()) {
+            try {
+                this.engine.setBook(new OpeningBook(Paths.get(bookFile.getPath())));
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("Error opening book");
+                System.out.println(e);
+            }
+        }
+        return this.engine;
+    }
+
+    /**
+     * Helper method, stop the search of the computer player, if it was ever
+     * made.
+     */
+    private void stopEngine() {
+        if (this.engine != null) {
+            this.engine.stop();
+        }
+    }
+
     /**
      * Helper method, used to setup a new chessboard in default state.
      */
@@ -161,12 +297,8 @@ public class Game extends JPanel implements Listener {
         this.chessboard.setBlackKing(blackKing);
         this.chessboard.setWhiteKing(whiteKing);
 
-        this.chessboard.getCanCastle()[0] = true;
-        this.chessboard.getCanCastle()[1] = true;
-        this.chessboard.getCanCastle()[2] = true;
-        this.chessboard.getCanCastle()[3] = true;
-        this.chessboard.getCanCastle()[4] = true;
-        this.chessboard.getCanCastle()[5] = true;
+        //Both sides can castle on both wings in a new game
+        this.chessboard.setCastlingRights(Position.ALL_CASTLING);
 
         //Update all the pieces candidates list
         this.chessboard.updateAllMoves();
@@ -184,6 +316,10 @@ public class Game extends JPanel implements Listener {
         this.player1 = player1;
         this.player2 = player2;
 
+        //A search of the previous game is no longer wanted, nor its clocks
+        stopComputer();
+        stopClock();
+
         //Initialize the default board first
         initNewBoard();
         //this.chessboard.update();
@@ -214,10 +350,9 @@ public class Game extends JPanel implements Listener {
                     }
                     this.chessboard.promote(rank);
                 } else if (move[2].equalsIgnoreCase("Castling")) {
-                    if (move[1].equalsIgnoreCase("Long")) {
-                        this.chessboard.Castling(true);
-                    } else {
-                        this.chessboard.Castling(false);
+                    //Older versions saved a castling that was not legal, which only passed the turn
+                    if (!this.chessboard.Castling(move[1].equalsIgnoreCase("Long"))) {
+                        this.chessboard.passTurn();
                     }
                     isWhiteTurn = !isWhiteTurn;
                 } else {
@@ -234,9 +369,8 @@ public class Game extends JPanel implements Listener {
                 }
             }
 
-            //Release the piece and update all pieces candidates list
+            //Release the piece (the candidates list are kept up to date by each move)
             this.chessboard.setSelectedPiece(null);
-            this.chessboard.updateAllMoves();
         } catch (FileNotFoundException e) {
         }
 
@@ -245,6 +379,10 @@ public class Game extends JPanel implements Listener {
         this.moveRecords.forEach(this.sidePanel::addMove);
         String turn = String.format("%s turn", this.isWhiteTurn ? this.player1 + ": WHITE's" : this.player2 + ": BLACK's");
         this.sidePanel.changeTurn(turn);
+
+        //The clock of the side to move starts, then the computer may be the one to move first
+        startClock();
+        startComputerTurn();
     }
 
     /**
@@ -287,21 +425,27 @@ public class Game extends JPanel implements Listener {
          * 2. Check for release action then
          * 3. Finally, check for selected action
          */
+        //The board belongs to the computer while it is its turn, and to no one once a flag has fallen
+        if (isComputer(this.isWhiteTurn) || (this.clock != null && this.clock.getFlagged() >= 0)) {
+            return;
+        }
+
         Piece selectedPiece = this.chessboard.getSelectedPiece();
 
         //Check for special case (castling)
         if (selectedPiece != null && selectedPiece.getRank() == Rank.KING
                 && chessboard.getPieceAt(row, col) != null && chessboard.getPieceAt(row, col).getRank() == Rank.ROOK
                 && chessboard.getPieceAt(row, col).getColor() == selectedPiece.getColor()) {
-            if ((row == 0 || row == 7) && col == 0) {
-                chessboard.Castling(true);
-                this.moveRecords.add(String.format("%s Long Castling", isWhiteTurn ? "White" : "Black"));
-            } else if ((row == 0 || row == 7) && col == 7) {
-                chessboard.Castling(false);
-                this.moveRecords.add(String.format("%s Short Castling", isWhiteTurn ? "White" : "Black"));
+            //A castling that is not legal changes nothing: no record, and the turn stays with the same player
+            boolean isLong = col == 0;
+            Color side = this.isWhiteTurn ? Color.WHITE : Color.BLACK;
+            if ((row == 0 || row == 7) && (col == 0 || col == 7) && chessboard.canCastle(side, isLong) && pressClock()) {
+                chessboard.Castling(isLong);
+                this.moveRecords.add(String.format("%s %s Castling", isWhiteTurn ? "White" : "Black", isLong ? "Long" : "Short"));
+                endTurn(1);
+                return;
             }
-            this.sidePanel.addMove(this.moveRecords.get(this.moveRecords.size() - 1));
-            isWhiteTurn = !isWhiteTurn;
+            chessboard.setSelectedPiece(null);
 
             //Update the state of the board
             chessboard.update();
@@ -309,56 +453,36 @@ public class Game extends JPanel implements Listener {
         }
 
         //Check for move action
-        if (selectedPiece != null && selectedPiece.hasPosition(new Point(row, col))) {
+        if (selectedPiece != null && selectedPiece.hasPosition(row, col)) {
             //First check if the move is valid by running simulate move
             if (this.chessboard.simulateMove(selectedPiece, row, col)) {
+                //If this move leads to Pawn promotion, the player chooses the piece first, on their own time
+                boolean hasPromotion = selectedPiece.getRank() == Rank.PAWN && (row == 0 || row == 7);
+                Rank promoteRank = hasPromotion ? showPromotionPopup() : null;
+
+                //A move made after the time ran out is not played, nor a promotion whose popup was closed
+                if ((hasPromotion && promoteRank == null) || !pressClock()) {
+                    this.chessboard.setSelectedPiece(null);
+                    this.chessboard.update();
+                    return;
+                }
+
                 //Add move to move records 
                 this.moveRecords.add(String.format("%s moves to (%d,%d)", selectedPiece.toString(), row, col));
 
                 //If this move is valid, perform the actual move
                 this.chessboard.movePiece(row, col);
 
-                //If this move leads to Pawn promotion, run Pawn promotion
-                boolean hasPromotion = selectedPiece.getRank() == Rank.PAWN && (row == 0 || row == 7);
-                Rank promoteRank = null;
+                //Then the Pawn becomes the chosen piece
                 if (hasPromotion) {
-                    promoteRank = showPromotionPopup();
+                    this.chessboard.promote(promoteRank);
                     this.moveRecords.add("Promote to " + promoteRank);
                 }
-                //Update all piece's candidates list
-                this.chessboard.updateAllMoves();
-
                 //After moving, we release the piece
                 this.chessboard.setSelectedPiece(null);
 
-                //Change turn
-                this.isWhiteTurn = !this.isWhiteTurn;
-
-                /*Update the view*/
-                this.chessboard.update();
-                String turn = String.format("%s turn", this.isWhiteTurn ? this.player1 + ": WHITE's" : this.player2 + ": BLACK's");
-                this.sidePanel.changeTurn(turn);
-                int len = this.moveRecords.size();
-                if (hasPromotion) {
-                    this.sidePanel.addMove(this.moveRecords.get(len - 2));
-                }
-                this.sidePanel.addMove(this.moveRecords.get(len - 1));
-
-                //If the new move lead to a checkmate, show popup
-                if (this.chessboard.isCheckmate(this.isWhiteTurn ? this.chessboard.getWhiteKing() : this.chessboard.getBlackKing())) {
-                    //Since this is a checkmate -> end game -> complete folder
-                    String path = String.format("./data/complete/%s_%s_%s.txt",
-                            this.player1, this.player2, ModelLib.getCurrentDateTime());
-                    save(path);
-                    showEndgamePopup(!this.isWhiteTurn ? "WHITE" : "BLACK");
-                    return;
-                }
-
-                //If the new move check the opponent, update it in the side panel (but not adding it to the move records)
-                if (this.chessboard.isChecked(this.isWhiteTurn ? this.chessboard.getWhiteKing() : this.chessboard.getBlackKing())) {
-                    this.sidePanel.addMove("Checked!");
-                }
-
+                //Change turn and update the view
+                endTurn(hasPromotion ? 2 : 1);
                 return;
             }
         }
@@ -382,9 +506,328 @@ public class Game extends JPanel implements Listener {
     }
 
     /**
-     * Method for showing the pawn promotion pop up.
+     * Helper method, finish a turn once its move is made and recorded: give
+     * the turn to the other player, update the view and check the end of the
+     * game. If the game goes on and the other player is the computer, it starts
+     * thinking.
      *
-     * @return - The Rank that player selected
+     * @param records - The number of new move records to show in the side
+     * panel
+     */
+    private void endTurn(int records) {
+        //A hint still searched or shown is for the position before the move
+        this.hintId++;
+        this.sidePanel.showStatus("");
+
+        //The analysis of the position before the move is no longer wanted
+        if (this.analyzing) {
+            this.pendingAnalysis = new AtomicReference<>();
+            stopEngine();
+        }
+
+        //Change turn
+        this.isWhiteTurn = !this.isWhiteTurn;
+
+        /*Update the view*/
+        this.chessboard.update();
+        String turn = String.format("%s turn", this.isWhiteTurn ? this.player1 + ": WHITE's" : this.player2 + ": BLACK's");
+        this.sidePanel.changeTurn(turn);
+        int len = this.moveRecords.size();
+        for (int i = len - records; i < len; i++) {
+            this.sidePanel.addMove(this.moveRecords.get(i));
+        }
+
+        //If the new move lead to a checkmate, show popup
+        if (this.chessboard.isCheckmate(this.isWhiteTurn ? this.chessboard.getWhiteKing() : this.chessboard.getBlackKing())) {
+            //Since this is a checkmate -> end game -> complete folder
+            String path = String.format("./data/complete/%s_%s_%s.txt",
+                    this.player1, this.player2, ModelLib.getCurrentDateTime());
+            save(path);
+            //A pondering search for the reply that was not played would run on while the popup is open
+            stopComputer();
+            stopClock();
+            showEndgamePopup((!this.isWhiteTurn ? "WHITE" : "BLACK") + " wins!");
+            return;
+        }
+
+        //If the new move leaves the opponent without any legal move while not checked, it is a draw
+        if (this.chessboard.isStalemate(this.isWhiteTurn ? this.chessboard.getWhiteKing() : this.chessboard.getBlackKing())) {
+            String path = String.format("./data/complete/%s_%s_%s.txt",
+                    this.player1, this.player2, ModelLib.getCurrentDateTime());
+            save(path);
+            //A pondering search for the reply that was not played would run on while the popup is open
+            stopComputer();
+            stopClock();
+            showEndgamePopup("Stalemate, draw!");
+            return;
+        }
+
+        //If the new move check the opponent, update it in the side panel (but not adding it to the move records)
+        if (this.chessboard.isChecked(this.isWhiteTurn ? this.chessboard.getWhiteKing() : this.chessboard.getBlackKing())) {
+            this.sidePanel.addMove("Checked!");
+        }
+
+        //In an ending of the endgame tables, show how it ends with the best play (but not adding it to the move records)
+        showTablebaseResult();
+
+        startComputerTurn();
+    }
+
+    /**
+     * Helper method, show the exact result of the position in the side panel
+     * if it is an ending of the endgame tables.
+     */
+    private void showTablebaseResult() {
+        Tablebase tables = this.tablebase;
+        Position pos = this.chessboard.getPositionCopy();
+        int table = Tablebase.tableOf(pos);
+        if (tables == null || table < 0 || !tables.has(table)) {
+            return;
+        }
+        int score = tables.probe(pos);
+        if (score == 0) {
+            this.sidePanel.addMove(String.format("Tablebase: %s, draw", Tablebase.NAMES[table]));
+            return;
+        }
+        //The score is from the side to move, the plies to the mate are turned into moves of the winner
+        boolean whiteWins = (score > 0) == this.isWhiteTurn;
+        int plies = Search.MATE - Math.abs(score);
+        this.sidePanel.addMove(String.format("Tablebase: %s, %s mates in %d", Tablebase.NAMES[table],
+                whiteWins ? "WHITE" : "BLACK", (plies + 1) / 2));
+    }
+
+    /**
+     * Helper method, check if a side is played by the computer.
+     *
+     * @param white - True for WHITE (player 1), false for BLACK (player 2)
+     * @return - The boolean value, true if that player is the computer
+     */
+    private boolean isComputer(boolean white) {
+        String player = white ? this.player1 : this.player2;
+        return COMPUTER.equalsIgnoreCase(player);
+    }
+
+    /**
+     * Helper method, start the computer search if it is the computer's turn.
+     * The search runs on the engine thread on a copy of the board, so the
+     * window stays responsive, and its move is played on the event dispatch
+     * thread when the budget is spent. With a clock, the time manager sets the
+     * limits of the search from the time left instead of the budget. If a
+     * human plays against the computer and it is the human's turn, the
+     * computer ponders meanwhile.
+     */
+    private void startComputerTurn() {
+        if (!isComputer(this.isWhiteTurn)) {
+            startIdleSearch();
+            return;
+        }
+        //The analysis waits for the computer's move
+        if (this.analyzing) {
+            this.pendingAnalysis = new AtomicReference<>();
+            this.sidePanel.showAnalysis("The computer is thinking...");
+        }
+        final int id = ++this.searchId;
+        Position pos = this.chessboard.getPositionCopy();
+        Consumer<SearchResult> onDone = (SearchResult result) -> {
+            //The board may have been replaced (replay, new game, a flag fell) while the computer was thinking
+            if (id == this.searchId && result.getBestMove() != Move.NONE) {
+                playComputerMove(result);
+            }
+        };
+        if (this.clock != null) {
+            int side = this.isWhiteTurn ? Position.WHITE : Position.BLACK;
+            TimeManager time = new TimeManager(pos, this.clock.getRemainingMs(side), this.clock.getIncrementMs());
+            engine().think(pos, time.getSoftMs(), time.getHardMs(), onDone);
+        } else {
+            engine().think(pos, this.engineBudget, onDone);
+        }
+    }
+
+    /**
+     * Helper method, use the time of a human's turn: analyse the position on
+     * the board if the analysis is on, else ponder if the opponent is the
+     * computer. Either replaces the search running before, at once.
+     */
+    private void startIdleSearch() {
+        if (this.analyzing) {
+            Position pos = this.chessboard.getPositionCopy();
+            if (pos.countLegalMoves() == 0) {
+                stopEngine();
+                this.sidePanel.showAnalysis("No legal move");
+                return;
+            }
+            AtomicReference<Analysis> holder = new AtomicReference<>();
+            this.pendingAnalysis = holder;
+            this.sidePanel.showAnalysis("Analysing...");
+            engine().analyze(pos, ANALYSIS_LINES, holder::set);
+        } else if (isComputer(!this.isWhiteTurn)) {
+            engine().ponder(this.chessboard.getPositionCopy());
+        } else {
+            stopEngine();
+        }
+    }
+
+    /**
+     * Helper method, stop the computer search and drop its result.
+     */
+    private void stopComputer() {
+        this.searchId++;
+        this.hintId++;
+        this.sidePanel.showStatus("");
+        this.pendingAnalysis = new AtomicReference<>();
+        stopEngine();
+    }
+
+    /**
+     * Helper method, make new clocks for the game on the board (if it is
+     * played with clocks) and start the one of the side to move.
+     */
+    private void startClock() {
+        if (this.clockMode == null) {
+            this.clock = null;
+            this.sidePanel.hideClocks();
+            return;
+        }
+        final int id = ++this.clockId;
+        //The flag falls on the clock thread, the game is ended on the event dispatch thread
+        this.clock = new ChessClock(this.clockMode, this.clockBaseMs, this.clockIncrementMs,
+                (int side) -> SwingUtilities.invokeLater(() -> onFlag(id, side)));
+        this.clock.start(this.isWhiteTurn ? Position.WHITE : Position.BLACK);
+        showClocks();
+        this.clockTimer.start();
+    }
+
+    /**
+     * Helper method, press the clock for a legal move about to be played, so
+     * the move and the board never disagree: a move too late is not played at
+     * all, and the fall of the flag ends the game on the position before it.
+     *
+     * @return - The boolean value, true if the move can be played (there is no
+     * clock, or time was left)
+     */
+    private boolean pressClock() {
+        //The flag falls inside press, its callback ends the game on the event dispatch thread
+        return this.clock == null || this.clock.press();
+    }
+
+    /**
+     * Helper method, stop the clocks of the game (if any), keeping the time
+     * left on the labels, and drop them: neither the clock thread nor the
+     * timer keeps the game reachable once it is left.
+     */
+    private void stopClock() {
+        this.clockTimer.stop();
+        if (this.clock != null) {
+            this.clock.stop();
+            showClocks();
+            this.clock = null;
+        }
+    }
+
+    /**
+     * Helper method, show the time left of both players in the side panel.
+     */
+    private void showClocks() {
+        if (this.clock != null) {
+            this.sidePanel.showClocks(ChessClock.format(this.clock.getRemainingMs(Position.WHITE)),
+                    ChessClock.format(this.clock.getRemainingMs(Position.BLACK)));
+        }
+    }
+
+    /**
+     * Helper method, end the game when the flag of a side falls: the side
+     * loses, unless the opponent only has its King left, which cannot mate
+     * (a draw).
+     *
+     * @param id - The number of the clock whose flag fell
+     * @param side - The color ordinal of the side out of time
+     */
+    private void onFlag(int id, int side) {
+        //The flag of the clock of a game left since changes nothing
+        if (id != this.clockId) {
+            return;
+        }
+        stopComputer();
+        stopClock();
+        Position pos = this.chessboard.getPositionCopy();
+        int winner = 1 - side;
+        boolean loneKing = pos.pieces(winner) == pos.pieces(winner, Position.KING);
+        String path = String.format("./data/complete/%s_%s_%s.txt",
+                this.player1, this.player2, ModelLib.getCurrentDateTime());
+        save(path);
+        this.sidePanel.addMove(String.format("%s ran out of time", side == Position.WHITE ? "WHITE" : "BLACK"));
+        showEndgamePopup(loneKing ? "Time out, draw!" : (winner == Position.WHITE ? "WHITE" : "BLACK") + " wins on time!");
+    }
+
+    /**
+     * Helper method, play the move found by the computer through the same
+     * board methods and records as a move of a player, so the game can be
+     * saved and loaded the same way.
+     *
+     * @param result - The result of the computer search
+     */
+    private void playComputerMove(SearchResult result) {
+        int move = result.getBestMove();
+        int from = Move.from(move), to = Move.to(move);
+        int row = to / 8, col = to % 8;
+
+        //A move found after the time ran out is not played
+        if (!pressClock()) {
+            return;
+        }
+
+        //Show the search figures (but not adding them to the move records)
+        if (result.isBook()) {
+            this.sidePanel.addMove("Computer: book move");
+        } else {
+            this.sidePanel.addMove(String.format("Computer: depth %d, %d nodes, %d nps",
+                    result.getDepth(), result.getNodes(), result.getNps()));
+        }
+
+        //The castling is recorded the same way as the click on the Rook
+        if (Move.isCastling(move)) {
+            boolean isLong = col == 2;
+            this.chessboard.Castling(isLong);
+            this.moveRecords.add(String.format("%s %s Castling", isWhiteTurn ? "White" : "Black", isLong ? "Long" : "Short"));
+            endTurn(1);
+            return;
+        }
+
+        Piece piece = this.chessboard.getPieceAt(from / 8, from % 8);
+        this.moveRecords.add(String.format("%s moves to (%d,%d)", piece.toString(), row, col));
+        this.chessboard.setSelectedPiece(piece);
+        this.chessboard.movePiece(row, col);
+        int records = 1;
+        if (Move.promotion(move) != 0) {
+            Rank promoteRank = Rank.values()[Move.promotion(move)];
+            this.chessboard.promote(promoteRank);
+            this.moveRecords.add("Promote to " + promoteRank);
+            records++;
+        }
+        this.chessboard.setSelectedPiece(null);
+        endTurn(records);
+    }
+
+    /**
+     * Method for setting the time the computer may think for each move.
+     *
+     * @param millis - The budget in milliseconds
+     * @throws IllegalArgumentException - If the budget is not positive, throws
+     * IllegalArgumentException
+     */
+    public void setEngineBudget(long millis) throws IllegalArgumentException {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("The budget must be positive");
+        }
+        this.engineBudget = millis;
+    }
+
+    /**
+     * Method for showing the pawn promotion pop up. The board is not changed,
+     * the caller promotes the Pawn once the move is played.
+     *
+     * @return - The Rank that player selected, or null if the pop up was
+     * closed without a choice
      */
     private Rank showPromotionPopup() {
         //We use JDialog for the popup
@@ -453,22 +896,18 @@ public class Game extends JPanel implements Listener {
         //Add action listeners for selecting pieces
         final Rank[] promoteRank = new Rank[1]; //We need a final variable to use in a lambda expression, so we use a final array
         queenBtn.addActionListener((ActionEvent e) -> {
-            this.chessboard.promote(Rank.QUEEN);
             promoteRank[0] = Rank.QUEEN;
             popup.dispose();
         });
         bishopBtn.addActionListener((ActionEvent e) -> {
-            this.chessboard.promote(Rank.BISHOP);
             promoteRank[0] = Rank.BISHOP;
             popup.dispose();
         });
         knightBtn.addActionListener((ActionEvent e) -> {
-            this.chessboard.promote(Rank.KNIGHT);
             promoteRank[0] = Rank.KNIGHT;
             popup.dispose();
         });
         rookBtn.addActionListener((ActionEvent e) -> {
-            this.chessboard.promote(Rank.ROOK);
             promoteRank[0] = Rank.ROOK;
             popup.dispose();
         });
@@ -492,9 +931,9 @@ public class Game extends JPanel implements Listener {
     /**
      * Method for showing the endgame pop up.
      *
-     * @param winner - The winner to be displayed in the pop up
+     * @param result - The result to be displayed in the pop up
      */
-    private void showEndgamePopup(String winner) {
+    private void showEndgamePopup(String result) {
         //We use the JDialog for this 
         JDialog popup = new JDialog(
                 SwingUtilities.getWindowAncestor(this), //The ancestor of the popup would be this class (Game)
@@ -521,7 +960,7 @@ public class Game extends JPanel implements Listener {
         mainPanel.setBorder(new EmptyBorder(20, 20, 20, 20));
 
         //Create and style label
-        JLabel resultLabel = new JLabel(winner + " wins!");
+        JLabel resultLabel = new JLabel(result);
         resultLabel.setFont(new Font("Arial", Font.BOLD, 35));
         resultLabel.setForeground(new java.awt.Color(50, 50, 50));
         resultLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -537,11 +976,16 @@ public class Game extends JPanel implements Listener {
             this.sidePanel.clearMoves();
             this.sidePanel.changeTurn("WHITE's turn");
             popup.dispose();
+            //The clocks start again, and the computer moves first if it plays WHITE
+            startClock();
+            startComputerTurn();
         });
 
         //Create and styling the exit button
         JButton exitButton = ViewLib.createButton("Menu");
         exitButton.addActionListener((ActionEvent e) -> {
+            stopComputer();
+            stopClock();
             this.app.returnToMenu();
             popup.dispose();
         });
@@ -586,4 +1030,57 @@ public class Game extends JPanel implements Listener {
         System.exit(0);
     }
 
+    /**
+     * Implemented method in interface Listener: method for handling the Hint
+     * button interaction. The hint is shown under the buttons of the side
+     * panel (not in the move records) until the next move; a hint asked before in the same position comes
+     * from the cache at once. Only a human to move gets a hint, one at a
+     * time.
+     */
+    @Override
+    public void onHint() {
+        Position pos = this.chessboard.getPositionCopy();
+        if (isComputer(this.isWhiteTurn) || this.hintPending || pos.countLegalMoves() == 0) {
+            return;
+        }
+        this.hintPending = true;
+        final int id = this.hintId;
+        engine().hint(pos, this.engineBudget, (SearchResult result) -> {
+            this.hintPending = false;
+            //The player may have moved meanwhile, the search was then stopped by the new position
+            if (id != this.hintId) {
+                return;
+            }
+            this.sidePanel.showStatus(String.format("Hint: %s, depth %d (cache: %s)", Move.toString(result.getBestMove()),
+                    result.getDepth(), this.engine.getHints()));
+            //A searched hint stopped the pondering or the analysis, a cached one did not
+            if (!this.engine.isThinking()) {
+                startIdleSearch();
+            }
+        });
+    }
+
+    /**
+     * Implemented method in interface Listener: method for handling the
+     * Analysis button interaction. On the computer's turn, the analysis only
+     * starts after its move.
+     *
+     * @param on - The boolean value, true if the analysis was turned on
+     */
+    @Override
+    public void onToggleAnalysis(boolean on) {
+        this.analyzing = on;
+        if (on) {
+            this.analysisTimer.start();
+        } else {
+            this.analysisTimer.stop();
+            this.pendingAnalysis = new AtomicReference<>();
+        }
+        if (!isComputer(this.isWhiteTurn)) {
+            startIdleSearch();
+        } else if (on) {
+            this.sidePanel.showAnalysis("The computer is thinking...");
+        }
+    }
+
 }
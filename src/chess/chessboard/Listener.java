@@ -26,4 +26,16 @@ public interface Listener {
      * Abstract handler method of the button "Save game" in side panel.
      */
     public abstract void onSaveGame();
+
+    /**
+     * Abstract handler method of the button "Hint" in side panel.
+     */
+    public abstract void onHint();
+
+    /**
+     * Abstract handler method of the button "Analysis" in side panel.
+     *
+     * @param on - The boolean value, true if the analysis was turned on
+     */
+    public abstract void onToggleAnalysis(boolean on);
 }
@@ -0,0 +1,153 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.chessboard;
+
+/**
+ * The Move class, which packs a move into a single integer so it can be stored
+ * in primitive arrays. Layout: bits 0-5 the source square, bits 6-11 the
+ * destination square, bits 12-14 the promotion Rank ordinal (0 if none, since a
+ * Pawn is never a promotion target), bit 15 the castling flag and bit 16 the
+ * en passant flag. For a castling move, the squares are the ones of the King.
+ *
+ * @author Asus
+ */
+public class Move {
+
+    //The value that means no move
+    public static final int NONE = 0;
+    //The flag marking a castling move
+    public static final int CASTLING = 1 << 15;
+    //The flag marking an en passant capture
+    public static final int EN_PASSANT = 1 << 16;
+
+    /**
+     * Private constructor, this class only has static methods.
+     */
+    private Move() {
+    }
+
+    /**
+     * Method for encoding a normal move.
+     *
+     * @param from - The source square
+     * @param to - The destination square
+     * @return - The packed move
+     */
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    /**
+     * Method for encoding a Pawn move with promotion.
+     *
+     * @param from - The source square
+     * @param to - The destination square
+     * @param promotion - The Rank ordinal of the new piece
+     * @return - The packed move
+     */
+    public static int of(int from, int to, int promotion) {
+        return from | (to << 6) | (promotion << 12);
+    }
+
+    /**
+     * Method for encoding a castling move.
+     *
+     * @param from - The source square of the King
+     * @param to - The destination square of the King
+     * @return - The packed move
+     */
+    public static int castling(int from, int to) {
+        return from | (to << 6) | CASTLING;
+    }
+
+    /**
+     * Method for encoding an en passant capture.
+     *
+     * @param from - The source square of the Pawn
+     * @param to - The destination square of the Pawn (the skipped square)
+     * @return - The packed move
+     */
+    public static int enPassant(int from, int to) {
+        return from | (to << 6) | EN_PASSANT;
+    }
+
+    /**
+     * Method for getting the source square of a move.
+     *
+     * @param move - The packed move
+     * @return - The source square
+     */
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    /**
+     * Method for getting the destination square of a move.
+     *
+     * @param move - The packed move
+     * @return - The destination square
+     */
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * Method for getting the promotion of a move.
+     *
+     * @param move - The packed move
+     * @return - The Rank ordinal of the new piece, 0 if there is no promotion
+     */
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    /**
+     * Method for checking if a move is a castling.
+     *
+     * @param move - The packed move
+     * @return - The boolean value, true if the move is a castling
+     */
+    public static boolean isCastling(int move) {
+        return (move & CASTLING) != 0;
+    }
+
+    /**
+     * Method for checking if a move is an en passant capture.
+     *
+     * @param move - The packed move
+     * @return - The boolean value, true if the move is an en passant capture
+     */
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    /**
+     * Method for writing a move in coordinate notation, for example e2e4 or
+     * e7e8q (column a is column 0, row 8 is row 0). This is the notation used
+     * by other chess programs, so tool outputs can be compared with them.
+     *
+     * @param move - The packed move
+     * @return - The move in coordinate notation
+     */
+    public static String toString(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        sb.append(squareName(from(move))).append(squareName(to(move)));
+        if (promotion(move) != 0) {
+            sb.append("?rnbqk".charAt(promotion(move)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Method for writing a square in coordinate notation, for example e2.
+     *
+     * @param sq - The square index
+     * @return - The name of the square
+     */
+    public static String squareName(int sq) {
+        return "" + (char) ('a' + (sq & 7)) + (char) ('8' - (sq >>> 3));
+    }
+}
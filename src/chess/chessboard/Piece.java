@@ -5,12 +5,12 @@
  */
 package chess.chessboard;
 
+import chess.util.BitboardLib;
 import chess.util.ModelLib;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Objects;
 import javax.imageio.ImageIO;
 
 /**
@@ -26,10 +26,12 @@ public class Piece {
     private Rank rank;
     //The piece's position: (row, col)
     private Point position;
-    //The list for containing the potential position a piece can move to
-    private final ArrayList<Point> candidates;
+    //The mask of the potential positions a piece can move to (bit row * 8 + col)
+    private long candidates;
     //The image of the piece for drawing
     private Image image;
+    //The images already read, shared by all pieces and indexed by [color ordinal][rank ordinal]
+    private static final Image[][] IMAGES = new Image[2][6];
 
     /**
      * The constructor of class Piece
@@ -51,15 +53,22 @@ public class Piece {
         //Set the rank (Rank is an enum so we don't have to check for validation)
         this.rank = rank;
         //Set the position to (row, col)
-        this.position = new Point(row, col);
-        //Initialize the candidate list as empty array list
-        this.candidates = new ArrayList<>();
+        this.position = Point.of(row, col);
+        //Initialize the candidates as empty mask
+        this.candidates = 0L;
     }
 
     /**
-     * The method for getting the image of the piece for UI rendering.
+     * The method for getting the image of the piece for UI rendering. Each
+     * image is only read once, then taken from the shared table.
      */
     public void getImage() {
+        Image cached = IMAGES[this.color.ordinal()][this.rank.ordinal()];
+        if (cached != null) {
+            this.image = cached;
+            return;
+        }
+
         //Get the image path based on color
         String path = String.format("/resource/chess/%s-", this.color == Color.BLACK ? "b" : "w");
 
@@ -96,6 +105,7 @@ public class Piece {
         //Get the image using the image path
         try {
             this.image = ImageIO.read(getClass().getResourceAsStream(path));
+            IMAGES[this.color.ordinal()][this.rank.ordinal()] = this.image;
         } catch (IOException e) {
             System.out.println("Error getting piece's image");
         }
@@ -149,14 +159,38 @@ public class Piece {
     }
 
     /**
-     * Getter method of 'candidates' field
+     * Getter method of 'candidates' field. The list is built from the
+     * candidates mask on every call, so it should only be used for displaying.
      *
      * @return - The candidates ArrayList
      */
     public ArrayList<Point> getCandidates() {
+        ArrayList<Point> list = new ArrayList<>();
+        for (long mask = this.candidates; mask != 0; mask &= mask - 1) {
+            int sq = BitboardLib.first(mask);
+            list.add(Point.of(sq));
+        }
+        return list;
+    }
+
+    /**
+     * Getter method of the candidates mask.
+     *
+     * @return - The mask of candidate squares
+     */
+    public long getCandidateMask() {
         return candidates;
     }
 
+    /**
+     * Setter method of the candidates mask.
+     *
+     * @param candidates - The new mask of candidate squares
+     */
+    public void setCandidateMask(long candidates) {
+        this.candidates = candidates;
+    }
+
     /**
      * Method for adding new position to the candidates list
      *
@@ -169,7 +203,7 @@ public class Piece {
         if (!ModelLib.isCoorValid(pos)) {
             throw new IllegalArgumentException("Invalid position in the chessboard");
         }
-        this.candidates.add(pos);
+        this.candidates |= BitboardLib.bit(BitboardLib.square(pos.getRow(), pos.getCol()));
     }
 
     /**
@@ -184,14 +218,14 @@ public class Piece {
         if (!ModelLib.isCoorValid(pos)) {
             throw new IllegalArgumentException("Invalid position in the chessboard");
         }
-        this.candidates.remove(pos);
+        this.candidates &= ~BitboardLib.bit(BitboardLib.square(pos.getRow(), pos.getCol()));
     }
 
     /**
      * Method for clearing all the positions in the candidates list.
      */
     public void clearAllPositions() {
-        this.candidates.clear();
+        this.candidates = 0L;
     }
 
     /**
@@ -206,11 +240,19 @@ public class Piece {
         if (!ModelLib.isCoorValid(pos)) {
             throw new IllegalArgumentException("Invalid position in the chessboard");
         }
-        return this.candidates.contains(pos);
+        return hasPosition(pos.getRow(), pos.getCol());
     }
-    
+
+    /**
+     * Method for checking if a position is in the candidates list
+     *
+     * @param row - The row of the position
+     * @param col - The column of the position
+     * @return - The boolean value, true if position contained in the list,
+     * false otherwise
+     */
     public boolean hasPosition(int row, int col) {
-        return hasPosition(new Point(row, col));
+        return ModelLib.isCoorValid(row, col) && (this.candidates & BitboardLib.bit(BitboardLib.square(row, col))) != 0;
     }
 
     /**
@@ -245,7 +287,8 @@ public class Piece {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(this.position, this.color, this.rank);
+        //Combined by hand, Objects.hash would box every field on each call
+        return (this.position.hashCode() * 31 + this.color.hashCode()) * 31 + this.rank.hashCode();
     }
 
     /**
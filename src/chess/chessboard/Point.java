@@ -5,63 +5,83 @@
  */
 package chess.chessboard;
 
-import java.util.Objects;
 import chess.util.ModelLib;
 
 /**
- * The Point class, which is used for coordination in the chess game. 
+ * The Point class, which is used for coordination in the chess game. A Point
+ * is immutable and there is only one instance per square, taken from a shared
+ * table with Point.of, so no Point is ever allocated after class loading.
  *
  * @author Danglnh2907
  */
 public class Point {
 
+    //The shared instances, indexed by square (row * 8 + col)
+    private static final Point[] POINTS = new Point[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            POINTS[sq] = new Point(sq >>> 3, sq & 7);
+        }
+    }
+
     //0-based value of row
-    private int row;
+    private final int row;
     //0-based value of column
-    private int col;
+    private final int col;
 
     /**
-     * The parametric constructor of class Point.
+     * The parametric constructor of class Point, only used to fill the shared
+     * table.
      *
      * @param row - An integer between 0 and 7, denote the value of row
      * @param col - An integer between 0 and 7, denote the value of column
+     */
+    private Point(int row, int col) {
+        //Set row and column
+        this.row = row;
+        this.col = col;
+    }
+
+    /**
+     * Method for getting the Point of a pair of coordinates.
+     *
+     * @param row - An integer between 0 and 7, denote the value of row
+     * @param col - An integer between 0 and 7, denote the value of column
+     * @return - The shared Point of that square
      * @throws IllegalArgumentException - If row or column is invalid, throw
      * IllegalArgumentException
      */
-    public Point(int row, int col) throws IllegalArgumentException {
+    public static Point of(int row, int col) throws IllegalArgumentException {
         //Check if x and y is valid
         if (!ModelLib.isCoorValid(row, col)) {
             throw new IllegalArgumentException("row and colummn must be integers between 0 and 7");
         }
-
-        //Set row and column
-        this.row = row;
-        this.col = col;
+        return POINTS[(row << 3) | col];
     }
 
     /**
-     * Getter method of 'row' field
+     * Method for getting the Point of a square index.
      *
-     * @return - The integer row
+     * @param sq - The square index (row * 8 + col), between 0 and 63
+     * @return - The shared Point of that square
+     * @throws IllegalArgumentException - If the square is invalid, throw
+     * IllegalArgumentException
      */
-    public int getRow() {
-        return this.row;
+    public static Point of(int sq) throws IllegalArgumentException {
+        if (sq < 0 || sq > 63) {
+            throw new IllegalArgumentException("square must be an integer between 0 and 63");
+        }
+        return POINTS[sq];
     }
 
     /**
-     * Setter method of 'row' field
+     * Getter method of 'row' field
      *
-     * @param row - The new integer value of row
-     * @throws IllegalArgumentException - If new row is not valid, throw
-     * IllegalArgumentException
+     * @return - The integer row
      */
-    public void setRow(int row) throws IllegalArgumentException {
-        //Check if row parameter is valid
-        if (!ModelLib.isCoorValid(row)) {
-            throw new IllegalArgumentException("Row must be an integer between 0 and 7");
-        }
-        //Set the new row value
-        this.row = row;
+    public int getRow() {
+        return this.row;
     }
 
     /**
@@ -74,19 +94,12 @@ public class Point {
     }
 
     /**
-     * Setter method of 'col' field
+     * Method for getting the square index of the Point.
      *
-     * @param col - The new integer value of column
-     * @throws IllegalArgumentException - If new col is invalid, throw
-     * IllegalArgumentException
+     * @return - The square index (row * 8 + col)
      */
-    public void setCol(int col) throws IllegalArgumentException {
-        //Check if col parameter is valid
-        if (!ModelLib.isCoorValid(col)) {
-            throw new IllegalArgumentException("Column must be an integer between 0 and 7");
-        }
-        //Set the new column value
-        this.col = col;
+    public int getSquare() {
+        return (this.row << 3) | this.col;
     }
 
     /**
@@ -120,7 +133,8 @@ public class Point {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(this.row, this.col);
+        //The square index is unique for each Point
+        return getSquare();
     }
 
     /**
@@ -0,0 +1,1077 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.chessboard;
+
+import chess.util.BitboardLib;
+import java.util.Arrays;
+
+/**
+ * The Position class, the model of the board without any UI. The pieces are
+ * kept as 64-bit masks per color and per Rank (bitboards), plus a small
+ * square-to-piece table for fast lookup. Colors and ranks are given as the
+ * ordinal of the Color and Rank enumerates.
+ *
+ * @author Asus
+ */
+public class Position {
+
+    //The value of an empty square in the piece table
+    public static final int EMPTY = -1;
+
+    //The ordinal of each color, cached for readability
+    public static final int BLACK = 0, WHITE = 1;
+    //The ordinal of each rank, cached for readability
+    public static final int PAWN = 0, ROOK = 1, KNIGHT = 2, BISHOP = 3, QUEEN = 4, KING = 5;
+
+    //The castling rights bits
+    public static final int WHITE_SHORT = 1, WHITE_LONG = 2, BLACK_SHORT = 4, BLACK_LONG = 8;
+    public static final int ALL_CASTLING = WHITE_SHORT | WHITE_LONG | BLACK_SHORT | BLACK_LONG;
+
+    //The castling rights kept when a piece leaves or arrives on each square (King and Rook home squares clear them)
+    private static final int[] CASTLING_MASK = new int[64];
+    //The number of plies the undo stack can hold before it has to grow
+    private static final int MAX_PLY = 1024;
+    //The maximum number of legal moves in any position (the known record is 218), the size of a move buffer
+    public static final int MAX_MOVES = 256;
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[BitboardLib.square(0, 0)] &= ~BLACK_LONG;
+        CASTLING_MASK[BitboardLib.square(0, 4)] &= ~(BLACK_LONG | BLACK_SHORT);
+        CASTLING_MASK[BitboardLib.square(0, 7)] &= ~BLACK_SHORT;
+        CASTLING_MASK[BitboardLib.square(7, 0)] &= ~WHITE_LONG;
+        CASTLING_MASK[BitboardLib.square(7, 4)] &= ~(WHITE_LONG | WHITE_SHORT);
+        CASTLING_MASK[BitboardLib.square(7, 7)] &= ~WHITE_SHORT;
+    }
+
+    //The occupancy mask of each side, indexed by color
+    private final long[] colors;
+    //The occupancy mask of each rank (both sides), indexed by rank
+    private final long[] ranks;
+    //The piece code standing on each square, or EMPTY
+    private final int[] board;
+    //The side to move (color ordinal)
+    private int sideToMove;
+    //The castling rights bits still available
+    private int castlingRights;
+    //The square skipped by a Pawn that just moved two squares (en passant target), or -1
+    private int epSquare;
+    //The number of plies since the last capture or Pawn move (for the fifty-move rule)
+    private int halfmoveClock;
+    //The number of the full move, starting at 1 and incremented after each BLACK move
+    private int fullmoveNumber;
+    //The Zobrist key of the position, updated with each change (see Zobrist)
+    private long key;
+    //The Zobrist key of the Pawns and Kings only, for caching the Pawn structure (see Zobrist.pawnKey)
+    private long pawnKey;
+    //The material and piece-square score for the middlegame and the endgame (from WHITE's side) and the game
+    //phase, updated with each piece put or removed (see PieceSquare)
+    private int mgScore;
+    private int egScore;
+    private int phase;
+
+    /*The undo stack, one entry per move made. It is preallocated so making a move allocates nothing*/
+    //The moves made
+    private int[] undoMove;
+    //The piece code taken by each move, or EMPTY
+    private int[] undoCaptured;
+    //The state before each move: castling rights in bits 0-3, side to move in bit 4, en passant square + 1 in
+    //bits 5-11 and the halfmove clock from bit 12
+    private int[] undoState;
+    //The Zobrist key before each move
+    private long[] undoKey;
+    //The number of entries in the undo stack
+    private int ply;
+
+    //Scratch table for the move generator: the squares a pinned piece may still move to
+    private final long[] pinRays;
+    //Scratch buffer for counting the legal moves
+    private final int[] countBuffer;
+
+    /**
+     * Constructor of class Position, create an empty board.
+     */
+    public Position() {
+        this.colors = new long[2];
+        this.ranks = new long[6];
+        this.board = new int[64];
+        this.undoMove = new int[MAX_PLY];
+        this.undoCaptured = new int[MAX_PLY];
+        this.undoState = new int[MAX_PLY];
+        this.undoKey = new long[MAX_PLY];
+        this.pinRays = new long[64];
+        this.countBuffer = new int[MAX_MOVES];
+        clear();
+    }
+
+    /**
+     * Copy constructor of class Position, create an independent copy of
+     * another position (including its undo stack), for example to give each
+     * thread its own board.
+     *
+     * @param other - The position to be copied
+     */
+    public Position(Position other) {
+        this.colors = other.colors.clone();
+        this.ranks = other.ranks.clone();
+        this.board = other.board.clone();
+        this.sideToMove = other.sideToMove;
+        this.castlingRights = other.castlingRights;
+        this.epSquare = other.epSquare;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+        this.key = other.key;
+        this.pawnKey = other.pawnKey;
+        this.mgScore = other.mgScore;
+        this.egScore = other.egScore;
+        this.phase = other.phase;
+        this.undoMove = other.undoMove.clone();
+        this.undoCaptured = other.undoCaptured.clone();
+        this.undoState = other.undoState.clone();
+        this.undoKey = other.undoKey.clone();
+        this.ply = other.ply;
+        this.pinRays = new long[64];
+        this.countBuffer = new int[MAX_MOVES];
+    }
+
+    /**
+     * Method for encoding a piece into a single integer.
+     *
+     * @param color - The color ordinal
+     * @param rank - The rank ordinal
+     * @return - The piece code
+     */
+    public static int pieceOf(int color, int rank) {
+        return (color << 3) | rank;
+    }
+
+    /**
+     * Method for getting the color ordinal of a piece code.
+     *
+     * @param piece - The piece code (must not be EMPTY)
+     * @return - The color ordinal
+     */
+    public static int colorOf(int piece) {
+        return piece >>> 3;
+    }
+
+    /**
+     * Method for getting the rank ordinal of a piece code.
+     *
+     * @param piece - The piece code (must not be EMPTY)
+     * @return - The rank ordinal
+     */
+    public static int rankOf(int piece) {
+        return piece & 7;
+    }
+
+    /**
+     * Method for clearing all pieces in the position. The side to move is set
+     * to WHITE, there is no castling rights and the undo stack is emptied.
+     */
+    public void clear() {
+        Arrays.fill(this.colors, 0L);
+        Arrays.fill(this.ranks, 0L);
+        Arrays.fill(this.board, EMPTY);
+        this.sideToMove = WHITE;
+        this.castlingRights = 0;
+        this.epSquare = -1;
+        this.halfmoveClock = 0;
+        this.fullmoveNumber = 1;
+        this.ply = 0;
+        //An empty board with WHITE to move
+        this.key = Zobrist.SIDE;
+        this.pawnKey = 0L;
+        this.mgScore = 0;
+        this.egScore = 0;
+        this.phase = 0;
+    }
+
+    /**
+     * Method for setting up the position from a FEN string (the standard
+     * notation of a chess position), for example the starting position is
+     * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". The first row
+     * of the FEN is row 0 of the board (BLACK's side).
+     *
+     * @param fen - The FEN string
+     * @throws IllegalArgumentException - If the FEN is invalid, throws
+     * IllegalArgumentException
+     */
+    public void loadFen(String fen) throws IllegalArgumentException {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        clear();
+
+        //The pieces, row by row from row 0
+        int row = 0, col = 0;
+        for (char c : fields[0].toCharArray()) {
+            if (c == '/') {
+                row++;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int rank = "prnbqk".indexOf(Character.toLowerCase(c));
+                if (rank < 0 || row > 7 || col > 7) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                put(BitboardLib.square(row, col), Character.isUpperCase(c) ? WHITE : BLACK, rank);
+                col++;
+            }
+        }
+
+        //The side to move
+        this.sideToMove = fields[1].equals("b") ? BLACK : WHITE;
+
+        //The castling rights
+        if (fields.length > 2) {
+            for (char c : fields[2].toCharArray()) {
+                int index = "KQkq".indexOf(c);
+                if (index >= 0) {
+                    this.castlingRights |= 1 << index;
+                }
+            }
+        }
+
+        //The en passant square
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            this.epSquare = BitboardLib.square('8' - fields[3].charAt(1), fields[3].charAt(0) - 'a');
+        }
+
+        //The clocks
+        if (fields.length > 5) {
+            this.halfmoveClock = Integer.parseInt(fields[4]);
+            this.fullmoveNumber = Integer.parseInt(fields[5]);
+        }
+        this.key = Zobrist.key(this);
+    }
+
+    /**
+     * Method for writing the position as a FEN string.
+     *
+     * @return - The FEN string of the position
+     */
+    public String toFen() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = this.board[BitboardLib.square(row, col)];
+                if (piece == EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char c = "prnbqk".charAt(rankOf(piece));
+                sb.append(colorOf(piece) == WHITE ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row < 7) {
+                sb.append('/');
+            }
+        }
+        sb.append(this.sideToMove == WHITE ? " w " : " b ");
+        if (this.castlingRights == 0) {
+            sb.append('-');
+        }
+        for (int i = 0; i < 4; i++) {
+            if ((this.castlingRights & (1 << i)) != 0) {
+                sb.append("KQkq".charAt(i));
+            }
+        }
+        sb.append(' ').append(this.epSquare < 0 ? "-" : Move.squareName(this.epSquare));
+        sb.append(' ').append(this.halfmoveClock).append(' ').append(this.fullmoveNumber);
+        return sb.toString();
+    }
+
+    /**
+     * Getter method of 'sideToMove' field.
+     *
+     * @return - The color ordinal of the side to move
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Setter method of 'sideToMove' field. This is a board setup method, it is
+     * not recorded in the undo stack.
+     *
+     * @param sideToMove - The color ordinal of the side to move
+     */
+    public void setSideToMove(int sideToMove) {
+        //The en passant key depends on the side that could capture
+        this.key ^= epKey();
+        if (this.sideToMove != sideToMove) {
+            this.key ^= Zobrist.SIDE;
+        }
+        this.sideToMove = sideToMove;
+        this.key ^= epKey();
+    }
+
+    /**
+     * Getter method of 'castlingRights' field.
+     *
+     * @return - The castling rights bits
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Setter method of 'castlingRights' field. This is a board setup method, it
+     * is not recorded in the undo stack.
+     *
+     * @param castlingRights - The new castling rights bits
+     */
+    public void setCastlingRights(int castlingRights) {
+        this.key ^= Zobrist.CASTLING[this.castlingRights] ^ Zobrist.CASTLING[castlingRights];
+        this.castlingRights = castlingRights;
+    }
+
+    /**
+     * Getter method of 'key' field.
+     *
+     * @return - The Zobrist key of the position
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Getter method of 'pawnKey' field.
+     *
+     * @return - The Zobrist key of the Pawns and Kings
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Getter method of 'mgScore' field.
+     *
+     * @return - The middlegame material and piece-square score, positive if
+     * WHITE is better
+     */
+    public int getMgScore() {
+        return mgScore;
+    }
+
+    /**
+     * Getter method of 'egScore' field.
+     *
+     * @return - The endgame material and piece-square score, positive if WHITE
+     * is better
+     */
+    public int getEgScore() {
+        return egScore;
+    }
+
+    /**
+     * Getter method of 'phase' field.
+     *
+     * @return - The game phase, PieceSquare.MAX_PHASE with all the pieces
+     * (more after promotions) down to 0 with only Kings and Pawns
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Helper method, return the en passant part of the Zobrist key. The column
+     * key is only used when a Pawn of the side to move can capture there, so a
+     * double push nobody can answer gives the same key as a single push
+     * would.
+     *
+     * @return - The en passant column key, or 0
+     */
+    long epKey() {
+        int ep = epTarget(this.sideToMove);
+        if (ep < 0 || (BitboardLib.PAWN_ATTACKS[this.sideToMove ^ 1][ep] & pieces(this.sideToMove, PAWN)) == 0) {
+            return 0L;
+        }
+        return Zobrist.EN_PASSANT[BitboardLib.col(ep)];
+    }
+
+    /**
+     * Getter method of 'epSquare' field.
+     *
+     * @return - The en passant target square, or -1 if there is none
+     */
+    public int getEpSquare() {
+        return epSquare;
+    }
+
+    /**
+     * Helper method, return the en passant square if a side can capture there.
+     * The square is behind a Pawn of the other side, so it must be on row 2
+     * for WHITE and on row 5 for BLACK (the turn can be given to a side out of
+     * order, for example to count its moves).
+     *
+     * @param color - The color ordinal of the capturing side
+     * @return - The en passant target square, or -1 if that side has none
+     */
+    private int epTarget(int color) {
+        if (this.epSquare < 0 || BitboardLib.row(this.epSquare) != (color == WHITE ? 2 : 5)) {
+            return -1;
+        }
+        return this.epSquare;
+    }
+
+    /**
+     * Getter method of 'halfmoveClock' field.
+     *
+     * @return - The number of plies since the last capture or Pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Getter method of 'ply' field.
+     *
+     * @return - The number of moves that can be taken back
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Method for getting the last move made.
+     *
+     * @return - The packed last move, or Move.NONE if the undo stack is empty
+     */
+    public int getLastMove() {
+        return this.ply == 0 ? Move.NONE : this.undoMove[this.ply - 1];
+    }
+
+    /**
+     * Method for checking if the current position already happened earlier.
+     * Only the positions since the last capture or Pawn move can repeat, and
+     * only every second one has the same side to move, so few keys are
+     * compared.
+     *
+     * @return - The boolean value, true if the same key is found on the undo
+     * stack
+     */
+    public boolean isRepetition() {
+        int oldest = Math.max(0, this.ply - this.halfmoveClock);
+        for (int i = this.ply - 2; i >= oldest; i -= 2) {
+            if (this.undoKey[i] == this.key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Helper method, get the Rook squares of a castling from the King
+     * destination square.
+     *
+     * @param kingTo - The destination square of the King
+     * @return - The source square of the Rook in the low 6 bits and its
+     * destination in the next 6 bits
+     */
+    private static int castlingRook(int kingTo) {
+        int row = BitboardLib.row(kingTo);
+        //Short castling puts the King on column 6 (Rook 7 -> 5), long castling on column 2 (Rook 0 -> 3)
+        return BitboardLib.col(kingTo) == 6
+                ? BitboardLib.square(row, 7) | (BitboardLib.square(row, 5) << 6)
+                : BitboardLib.square(row, 0) | (BitboardLib.square(row, 3) << 6);
+    }
+
+    /**
+     * Helper method, double the size of the undo stack. Only a very long game
+     * gets here, searches stay far below MAX_PLY.
+     */
+    private void growUndo() {
+        this.undoMove = Arrays.copyOf(this.undoMove, this.ply * 2);
+        this.undoCaptured = Arrays.copyOf(this.undoCaptured, this.ply * 2);
+        this.undoState = Arrays.copyOf(this.undoState, this.ply * 2);
+        this.undoKey = Arrays.copyOf(this.undoKey, this.ply * 2);
+    }
+
+    /**
+     * Method for making a move. The move is assumed to be valid for the side
+     * to move. Everything needed to take it back is pushed on the undo stack, so
+     * this costs the same whatever the number of pieces.
+     *
+     * @param move - The packed move
+     */
+    public void makeMove(int move) {
+        if (this.ply == this.undoMove.length) {
+            growUndo();
+        }
+        int from = Move.from(move), to = Move.to(move), promotion = Move.promotion(move);
+        int moving = this.board[from];
+        //The Pawn taken en passant stands beside the source square, under the destination
+        int capturedSq = Move.isEnPassant(move) ? BitboardLib.square(BitboardLib.row(from), BitboardLib.col(to)) : to;
+        int captured = this.board[capturedSq];
+
+        //Push the undo entry
+        this.undoMove[this.ply] = move;
+        this.undoCaptured[this.ply] = captured;
+        this.undoState[this.ply] = this.castlingRights | (this.sideToMove << 4) | ((this.epSquare + 1) << 5)
+                | (this.halfmoveClock << 12);
+        this.undoKey[this.ply] = this.key;
+        this.ply++;
+        //The old en passant key goes away, the pieces update the key in put and remove
+        this.key ^= epKey();
+
+        //Move the piece (the new Rank is the promotion if there is one)
+        remove(from);
+        if (captured != EMPTY) {
+            remove(capturedSq);
+        }
+        put(to, colorOf(moving), promotion != 0 ? promotion : rankOf(moving));
+
+        //A Pawn move or a capture resets the fifty-move clock, a double push leaves an en passant target
+        this.epSquare = -1;
+        if (rankOf(moving) == PAWN) {
+            this.halfmoveClock = 0;
+            if (Math.abs(to - from) == 16) {
+                this.epSquare = (from + to) >>> 1;
+            }
+        } else if (captured != EMPTY) {
+            this.halfmoveClock = 0;
+        } else {
+            this.halfmoveClock++;
+        }
+        if (this.sideToMove == BLACK) {
+            this.fullmoveNumber++;
+        }
+
+        //The castling also moves the Rook
+        if (Move.isCastling(move)) {
+            int rook = castlingRook(to);
+            remove(rook & 63);
+            put(rook >>> 6, colorOf(moving), ROOK);
+        }
+
+        //Leaving or capturing on a King or Rook home square removes the castling rights
+        int rights = this.castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to];
+        this.key ^= Zobrist.CASTLING[this.castlingRights] ^ Zobrist.CASTLING[rights] ^ Zobrist.SIDE;
+        this.castlingRights = rights;
+        this.sideToMove ^= 1;
+        this.key ^= epKey();
+    }
+
+    /**
+     * Method for taking back the last move made with makeMove.
+     */
+    public void unmakeMove() {
+        this.ply--;
+        int move = this.undoMove[this.ply];
+        int captured = this.undoCaptured[this.ply];
+        int state = this.undoState[this.ply];
+        int from = Move.from(move), to = Move.to(move);
+
+        //Restore the state before the move
+        this.castlingRights = state & 15;
+        this.sideToMove = (state >>> 4) & 1;
+        this.epSquare = ((state >>> 5) & 127) - 1;
+        this.halfmoveClock = state >>> 12;
+        if (this.sideToMove == BLACK) {
+            this.fullmoveNumber--;
+        }
+
+        //Put the piece back (a promoted piece becomes a Pawn again)
+        int moved = remove(to);
+        put(from, colorOf(moved), Move.promotion(move) != 0 ? PAWN : rankOf(moved));
+        if (captured != EMPTY) {
+            int capturedSq = Move.isEnPassant(move) ? BitboardLib.square(BitboardLib.row(from), BitboardLib.col(to)) : to;
+            put(capturedSq, colorOf(captured), rankOf(captured));
+        }
+
+        //Put the Rook back for castling
+        if (Move.isCastling(move)) {
+            int rook = castlingRook(to);
+            remove(rook >>> 6);
+            put(rook & 63, colorOf(moved), ROOK);
+        }
+        this.key = this.undoKey[this.ply];
+    }
+
+    /**
+     * Method for passing the turn (a null move, which is not a legal chess
+     * move): only the side to move changes and the en passant target goes
+     * away. The search uses it to see if the position is still good even
+     * without moving. The side to move must not be in check. The halfmove
+     * clock starts again from 0, so no position before the null move counts
+     * as a repetition.
+     */
+    public void makeNullMove() {
+        if (this.ply == this.undoMove.length) {
+            growUndo();
+        }
+        this.undoMove[this.ply] = Move.NONE;
+        this.undoCaptured[this.ply] = EMPTY;
+        this.undoState[this.ply] = this.castlingRights | (this.sideToMove << 4) | ((this.epSquare + 1) << 5)
+                | (this.halfmoveClock << 12);
+        this.undoKey[this.ply] = this.key;
+        this.ply++;
+        this.key ^= epKey() ^ Zobrist.SIDE;
+        this.epSquare = -1;
+        this.halfmoveClock = 0;
+        this.sideToMove ^= 1;
+    }
+
+    /**
+     * Method for taking back the last null move made with makeNullMove.
+     */
+    public void unmakeNullMove() {
+        this.ply--;
+        int state = this.undoState[this.ply];
+        this.sideToMove = (state >>> 4) & 1;
+        this.epSquare = ((state >>> 5) & 127) - 1;
+        this.halfmoveClock = state >>> 12;
+        this.key = this.undoKey[this.ply];
+    }
+
+    /**
+     * Method for choosing the promotion of the last move after it has been
+     * made, when the new Rank is only known later (the player picks it). The
+     * last move must be a Pawn reaching the last row.
+     *
+     * @param rank - The Rank ordinal of the new piece
+     */
+    public void setPromotion(int rank) {
+        int move = this.undoMove[this.ply - 1];
+        int to = Move.to(move);
+        this.undoMove[this.ply - 1] = Move.of(Move.from(move), to, rank);
+        put(to, colorOf(this.board[to]), rank);
+    }
+
+    /**
+     * Method for checking if a King is under attack.
+     *
+     * @param color - The color ordinal of the King
+     * @return - The boolean value, true if the King of that side is attacked
+     */
+    public boolean isInCheck(int color) {
+        long king = pieces(color, KING);
+        return king != 0 && isSquareAttacked(BitboardLib.first(king), color ^ 1);
+    }
+
+    /**
+     * Method for checking if a square is attacked by one side. Nothing is
+     * changed: the attackers are found by looking outward from the square, so
+     * the cost is the same whatever the number of pieces.
+     *
+     * @param sq - The square index
+     * @param byColor - The color ordinal of the attacking side
+     * @return - The boolean value, true if a piece of that side attacks the
+     * square
+     */
+    public boolean isSquareAttacked(int sq, int byColor) {
+        return (attackersTo(sq, occupied()) & this.colors[byColor]) != 0;
+    }
+
+    /**
+     * Method for checking if a side can castle now. The side must still have
+     * the right, the squares between the King and the Rook must be empty, the
+     * King must not be in check and the squares it passes through and lands
+     * on must not be attacked.
+     *
+     * @param color - The color ordinal of the side
+     * @param isLong - True for the long castling (Queen side), false for the
+     * short castling (King side)
+     * @return - The boolean value, true if the castling is legal
+     */
+    public boolean canCastle(int color, boolean isLong) {
+        int row = color == WHITE ? 7 : 0;
+        int right = isLong ? (color == WHITE ? WHITE_LONG : BLACK_LONG) : (color == WHITE ? WHITE_SHORT : BLACK_SHORT);
+        if ((this.castlingRights & right) == 0) {
+            return false;
+        }
+        //The King and the Rook on their home squares (a board set up by hand may keep a right without them) and
+        //nothing between them
+        int king = BitboardLib.square(row, 4), rook = BitboardLib.square(row, isLong ? 0 : 7);
+        if (this.board[king] != pieceOf(color, KING) || this.board[rook] != pieceOf(color, ROOK)
+                || (occupied() & BitboardLib.BETWEEN[king][rook]) != 0) {
+            return false;
+        }
+        //The King square, the square it passes through and its destination
+        int step = isLong ? -1 : 1;
+        int them = color ^ 1;
+        return !isSquareAttacked(king, them) && !isSquareAttacked(king + step, them) && !isSquareAttacked(king + 2 * step, them);
+    }
+
+    /**
+     * Method for finding every piece (of both sides) attacking a square, by
+     * looking outward from the square with each kind of move. This is what
+     * isSquareAttacked (and so the check test) is built on. The occupancy can
+     * be smaller than the board, for example with the pieces already traded
+     * in an exchange taken away, so the sliders behind them are found; those
+     * pieces are still in the result, the caller masks them out.
+     *
+     * @param sq - The target square
+     * @param occupied - The occupancy used for the sliding pieces
+     * @return - The mask of the attacking pieces
+     */
+    public long attackersTo(int sq, long occupied) {
+        long rooks = this.ranks[ROOK] | this.ranks[QUEEN];
+        long bishops = this.ranks[BISHOP] | this.ranks[QUEEN];
+        //A BLACK pawn attacks sq from the squares a WHITE pawn on sq would attack, and the other way around
+        return (BitboardLib.PAWN_ATTACKS[WHITE][sq] & pieces(BLACK, PAWN))
+                | (BitboardLib.PAWN_ATTACKS[BLACK][sq] & pieces(WHITE, PAWN))
+                | (BitboardLib.KNIGHT_ATTACKS[sq] & this.ranks[KNIGHT])
+                | (BitboardLib.KING_ATTACKS[sq] & this.ranks[KING])
+                | (BitboardLib.rookAttacks(sq, occupied) & rooks)
+                | (BitboardLib.bishopAttacks(sq, occupied) & bishops);
+    }
+
+    /**
+     * Helper method, add the moves from a square to every square of a mask.
+     * A Pawn reaching the last row gets one move per promotion Rank.
+     *
+     * @param moves - The move buffer
+     * @param count - The number of moves already in the buffer
+     * @param from - The source square
+     * @param targets - The mask of destination squares
+     * @param isPawn - Whether the moving piece is a Pawn
+     * @return - The new number of moves in the buffer
+     */
+    private static int addMoves(int[] moves, int count, int from, long targets, boolean isPawn) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = BitboardLib.first(targets);
+            int row = BitboardLib.row(to);
+            if (isPawn && (row == 0 || row == 7)) {
+                moves[count++] = Move.of(from, to, QUEEN);
+                moves[count++] = Move.of(from, to, ROOK);
+                moves[count++] = Move.of(from, to, BISHOP);
+                moves[count++] = Move.of(from, to, KNIGHT);
+            } else {
+                moves[count++] = Move.of(from, to);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Method for generating every strictly legal move of the side to move.
+     * Instead of trying each move and looking for a check, the generator
+     * computes the pinned pieces and, when in check, the squares that stop the
+     * check (capture the checker or block its ray), so every move written is
+     * already legal.
+     *
+     * @param moves - The buffer to write the packed moves to (at least
+     * MAX_MOVES long)
+     * @return - The number of moves written
+     */
+    public int generateMoves(int[] moves) {
+        /*
+         * Algorithm explain:
+         * 1. The King can go to any square not defended by the opponent. The King itself is removed from the occupancy
+         * while testing, so it cannot hide behind itself along the ray of a checking slider
+         * 2. If the King is checked twice, only the King can move
+         * 3. If the King is checked once, the other pieces can only go to the evasion mask: the checker square, plus the
+         * squares between it and the King if it is a slider
+         * 4. A pinned piece (the only piece between our King and an opponent slider on the same line) can only move
+         * along the pin line
+         * 5. En passant removes two pieces from the same row, which no pin mask can see, so each one is made and tested
+         * 6. Castling is only possible out of check, through empty and non-attacked squares
+         */
+        int us = this.sideToMove, them = us ^ 1;
+        long own = this.colors[us], enemy = this.colors[them];
+        long occupied = own | enemy;
+        int count = 0;
+
+        long kingMask = pieces(us, KING);
+        if (kingMask == 0) {
+            return 0;
+        }
+        int kingSq = BitboardLib.first(kingMask);
+
+        //1. The King moves
+        long withoutKing = occupied ^ kingMask;
+        for (long targets = BitboardLib.KING_ATTACKS[kingSq] & ~own; targets != 0; targets &= targets - 1) {
+            int to = BitboardLib.first(targets);
+            if ((attackersTo(to, withoutKing) & enemy) == 0) {
+                moves[count++] = Move.of(kingSq, to);
+            }
+        }
+
+        //2. Double check: nothing else can help
+        long checkers = attackersTo(kingSq, occupied) & enemy;
+        if (BitboardLib.count(checkers) > 1) {
+            return count;
+        }
+
+        //3. The evasion mask (every square when not in check)
+        long evasion = ~0L;
+        if (checkers != 0) {
+            int checker = BitboardLib.first(checkers);
+            evasion = checkers | BitboardLib.BETWEEN[kingSq][checker];
+        }
+
+        //4. The pinned pieces, found from the opponent sliders that would see our King on an empty board
+        long pinned = 0L;
+        long snipers = (BitboardLib.ROOK_RAYS[kingSq] & (pieces(them, ROOK) | pieces(them, QUEEN)))
+                | (BitboardLib.BISHOP_RAYS[kingSq] & (pieces(them, BISHOP) | pieces(them, QUEEN)));
+        for (; snipers != 0; snipers &= snipers - 1) {
+            int sniper = BitboardLib.first(snipers);
+            long blockers = BitboardLib.BETWEEN[kingSq][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+                this.pinRays[BitboardLib.first(blockers)] = BitboardLib.BETWEEN[kingSq][sniper] | BitboardLib.bit(sniper);
+            }
+        }
+
+        //The other pieces
+        for (long others = own & ~kingMask; others != 0; others &= others - 1) {
+            int from = BitboardLib.first(others);
+            long targets = (rankOf(this.board[from]) == PAWN ? pawnMoves(from, us) : attacksFrom(from) & ~own) & evasion;
+            if ((pinned & BitboardLib.bit(from)) != 0) {
+                targets &= this.pinRays[from];
+            }
+            count = addMoves(moves, count, from, targets, rankOf(this.board[from]) == PAWN);
+        }
+
+        //5. En passant
+        int ep = epTarget(us);
+        if (ep >= 0) {
+            for (long pawns = BitboardLib.PAWN_ATTACKS[them][ep] & pieces(us, PAWN); pawns != 0; pawns &= pawns - 1) {
+                int move = Move.enPassant(BitboardLib.first(pawns), ep);
+                makeMove(move);
+                if (!isInCheck(us)) {
+                    moves[count++] = move;
+                }
+                unmakeMove();
+            }
+        }
+
+        //6. Castling
+        if (checkers == 0) {
+            if (canCastle(us, false)) {
+                moves[count++] = Move.castling(kingSq, kingSq + 2);
+            }
+            if (canCastle(us, true)) {
+                moves[count++] = Move.castling(kingSq, kingSq - 2);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Method for counting the legal moves of the side to move.
+     *
+     * @return - The number of legal moves
+     */
+    public int countLegalMoves() {
+        return generateMoves(this.countBuffer);
+    }
+
+    /**
+     * Method for checking if the side to move is checkmated.
+     *
+     * @return - The boolean value, true if it is checked and has no legal move
+     */
+    public boolean isCheckmate() {
+        return isInCheck(this.sideToMove) && countLegalMoves() == 0;
+    }
+
+    /**
+     * Method for checking if the side to move is stalemated.
+     *
+     * @return - The boolean value, true if it is not checked and has no legal
+     * move
+     */
+    public boolean isStalemate() {
+        return !isInCheck(this.sideToMove) && countLegalMoves() == 0;
+    }
+
+    /**
+     * Method for placing a piece into a square. If the square is occupied, the
+     * old piece is removed first.
+     *
+     * @param sq - The square index
+     * @param color - The color ordinal
+     * @param rank - The rank ordinal
+     */
+    public void put(int sq, int color, int rank) {
+        if (this.board[sq] != EMPTY) {
+            remove(sq);
+        }
+        long b = BitboardLib.bit(sq);
+        this.colors[color] |= b;
+        this.ranks[rank] |= b;
+        this.board[sq] = pieceOf(color, rank);
+        this.key ^= Zobrist.PIECES[color][rank][sq];
+        if (rank == PAWN || rank == KING) {
+            this.pawnKey ^= Zobrist.PIECES[color][rank][sq];
+        }
+        this.mgScore += PieceSquare.MG[color][rank][sq];
+        this.egScore += PieceSquare.EG[color][rank][sq];
+        this.phase += PieceSquare.PHASE[rank];
+    }
+
+    /**
+     * Method for removing the piece in a square (if any).
+     *
+     * @param sq - The square index
+     * @return - The piece code that was removed, or EMPTY
+     */
+    public int remove(int sq) {
+        int piece = this.board[sq];
+        if (piece != EMPTY) {
+            long b = BitboardLib.bit(sq);
+            this.colors[colorOf(piece)] &= ~b;
+            this.ranks[rankOf(piece)] &= ~b;
+            this.board[sq] = EMPTY;
+            this.key ^= Zobrist.PIECES[colorOf(piece)][rankOf(piece)][sq];
+            if (rankOf(piece) == PAWN || rankOf(piece) == KING) {
+                this.pawnKey ^= Zobrist.PIECES[colorOf(piece)][rankOf(piece)][sq];
+            }
+            this.mgScore -= PieceSquare.MG[colorOf(piece)][rankOf(piece)][sq];
+            this.egScore -= PieceSquare.EG[colorOf(piece)][rankOf(piece)][sq];
+            this.phase -= PieceSquare.PHASE[rankOf(piece)];
+        }
+        return piece;
+    }
+
+    /**
+     * Method for getting the piece code at a square.
+     *
+     * @param sq - The square index
+     * @return - The piece code, or EMPTY
+     */
+    public int pieceAt(int sq) {
+        return this.board[sq];
+    }
+
+    /**
+     * Method for getting the mask of all occupied squares.
+     *
+     * @return - The occupancy mask
+     */
+    public long occupied() {
+        return this.colors[BLACK] | this.colors[WHITE];
+    }
+
+    /**
+     * Method for getting the mask of all pieces of one side.
+     *
+     * @param color - The color ordinal
+     * @return - The occupancy mask of that side
+     */
+    public long pieces(int color) {
+        return this.colors[color];
+    }
+
+    /**
+     * Method for getting the mask of the pieces of one side with one rank.
+     *
+     * @param color - The color ordinal
+     * @param rank - The rank ordinal
+     * @return - The occupancy mask
+     */
+    public long pieces(int color, int rank) {
+        return this.colors[color] & this.ranks[rank];
+    }
+
+    /**
+     * Method for calculating the squares the piece in a square attacks
+     * (regardless of which side stands there).
+     *
+     * @param sq - The square of the piece
+     * @return - The attack mask, 0 if the square is empty
+     */
+    public long attacksFrom(int sq) {
+        int piece = this.board[sq];
+        if (piece == EMPTY) {
+            return 0L;
+        }
+        switch (rankOf(piece)) {
+            case PAWN:
+                return BitboardLib.PAWN_ATTACKS[colorOf(piece)][sq];
+            case ROOK:
+                return BitboardLib.rookAttacks(sq, occupied());
+            case KNIGHT:
+                return BitboardLib.KNIGHT_ATTACKS[sq];
+            case BISHOP:
+                return BitboardLib.bishopAttacks(sq, occupied());
+            case QUEEN:
+                return BitboardLib.queenAttacks(sq, occupied());
+            default:
+                return BitboardLib.KING_ATTACKS[sq];
+        }
+    }
+
+    /**
+     * Method for calculating the squares a Pawn can move to: one or two squares
+     * ahead if they are empty, and the two diagonals ahead if an opponent
+     * stands there.
+     *
+     * @param sq - The square of the pawn
+     * @param color - The color ordinal of the pawn
+     * @return - The mask of candidate squares
+     */
+    private long pawnMoves(int sq, int color) {
+        long empty = ~occupied();
+        long b = BitboardLib.bit(sq);
+        long moves;
+        if (color == BLACK) {
+            moves = (b << 8) & empty;
+            //Two squares forward only from the starting row (row 1 for BLACK)
+            if (BitboardLib.row(sq) == 1) {
+                moves |= (moves << 8) & empty;
+            }
+        } else {
+            moves = (b >>> 8) & empty;
+            //Two squares forward only from the starting row (row 6 for WHITE)
+            if (BitboardLib.row(sq) == 6) {
+                moves |= (moves >>> 8) & empty;
+            }
+        }
+        return moves | (BitboardLib.PAWN_ATTACKS[color][sq] & this.colors[color ^ 1]);
+    }
+
+    /**
+     * Method for calculating the squares the piece in a square can move to,
+     * without checking whether the move leaves its own King checked.
+     *
+     * @param sq - The square of the piece
+     * @return - The mask of candidate squares, 0 if the square is empty
+     */
+    public long movesFrom(int sq) {
+        int piece = this.board[sq];
+        if (piece == EMPTY) {
+            return 0L;
+        }
+        int color = colorOf(piece);
+        if (rankOf(piece) == PAWN) {
+            //The en passant capture only exists for the side to move
+            int target = color == this.sideToMove ? epTarget(color) : -1;
+            long ep = target >= 0 ? BitboardLib.bit(target) : 0L;
+            return pawnMoves(sq, color) | (BitboardLib.PAWN_ATTACKS[color][sq] & ep);
+        }
+        return attacksFrom(sq) & ~this.colors[color];
+    }
+
+    /**
+     * Method for calculating every square attacked by one side.
+     *
+     * @param color - The color ordinal of the attacking side
+     * @return - The union of the attack masks of that side
+     */
+    public long attacksBy(int color) {
+        long attacks = 0L;
+        long pieces = this.colors[color];
+        while (pieces != 0) {
+            attacks |= attacksFrom(BitboardLib.first(pieces));
+            pieces &= pieces - 1;
+        }
+        return attacks;
+    }
+}
@@ -7,6 +7,7 @@ package chess.chessboard;
 
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import javax.swing.BorderFactory;
@@ -17,6 +18,7 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.JToggleButton;
 
 /**
  *
@@ -26,10 +28,22 @@ public class SidePanel extends JPanel {
 
     //The label signify player turn
     private final JLabel playerTurn;
+    //The labels showing the time left of each player (hidden when the game has no clock)
+    private final JLabel whiteClock, blackClock;
+    private final JPanel clocks;
     //The text area for displaying each move players make
     private final JTextArea moveRecords;
     //The save game button
     private final JButton saveBtn;
+    //The button asking for the best move
+    private final JButton hintBtn;
+    //The button turning the analysis of the position on and off
+    private final JToggleButton analysisBtn;
+    //The label under the buttons showing the latest hint, kept out of the move records
+    private final JLabel status;
+    //The text area showing the best lines of the analysis, and its scroll pane (hidden while the analysis is off)
+    private final JTextArea analysis;
+    private final JScrollPane analysisPane;
     //The Listener object (in this case, Game class), used to communicate between SidePanel and Game
     private Listener ls;
 
@@ -48,6 +62,15 @@ public class SidePanel extends JPanel {
         this.playerTurn.setFont(new Font("Arial", Font.BOLD, 24));
         this.playerTurn.setBorder(BorderFactory.createEmptyBorder(20, 0, 20, 0));
 
+        //Put the clocks side by side under the player turn, each label repaints on its own when its time changes
+        this.whiteClock.setFont(new Font("Monospaced", Font.BOLD, 22));
+        this.blackClock.setFont(new Font("Monospaced", Font.BOLD, 22));
+        this.clocks.setAlignmentX(Component.CENTER_ALIGNMENT);
+        this.clocks.setMaximumSize(new Dimension(400, 40));
+        this.clocks.add(this.whiteClock);
+        this.clocks.add(this.blackClock);
+        this.clocks.setVisible(false);
+
         //Create the non-editable text area
         this.moveRecords.setEditable(false);
         this.moveRecords.setLineWrap(true);
@@ -59,19 +82,56 @@ public class SidePanel extends JPanel {
         JScrollPane scrollPane = new JScrollPane(this.moveRecords);
         scrollPane.setPreferredSize(new Dimension(380, 600));
 
+        //Create the non-editable analysis area, hidden until the analysis is turned on
+        this.analysis.setEditable(false);
+        this.analysis.setLineWrap(true);
+        this.analysis.setWrapStyleWord(true);
+        this.analysis.setFont(new Font("Monospaced", Font.PLAIN, 13));
+        this.analysisPane.setBorder(BorderFactory.createTitledBorder("Analysis"));
+        this.analysisPane.setPreferredSize(new Dimension(380, 160));
+        this.analysisPane.setVisible(false);
+
         //Style the save button
-        this.saveBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
         this.saveBtn.setFont(new Font("Arial", Font.PLAIN, 18));
-        this.saveBtn.setMaximumSize(new Dimension(200, 50));
         this.saveBtn.addActionListener((ActionEvent e) -> {
             this.ls.onSaveGame();
         });
 
+        //Style the hint button
+        this.hintBtn.setFont(new Font("Arial", Font.PLAIN, 18));
+        this.hintBtn.addActionListener((ActionEvent e) -> {
+            this.ls.onHint();
+        });
+
+        //Style the analysis button
+        this.analysisBtn.setFont(new Font("Arial", Font.PLAIN, 18));
+        this.analysisBtn.addActionListener((ActionEvent e) -> {
+            this.analysisPane.setVisible(this.analysisBtn.isSelected());
+            this.revalidate();
+            this.ls.onToggleAnalysis(this.analysisBtn.isSelected());
+        });
+
+        //Put the buttons side by side
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        buttons.setAlignmentX(Component.CENTER_ALIGNMENT);
+        buttons.setMaximumSize(new Dimension(400, 50));
+        buttons.add(this.saveBtn);
+        buttons.add(this.hintBtn);
+        buttons.add(this.analysisBtn);
+
+        //Style the status label
+        this.status.setAlignmentX(Component.CENTER_ALIGNMENT);
+        this.status.setFont(new Font("Arial", Font.PLAIN, 16));
+        this.status.setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 0));
+
         //Add the components to the panel
         this.add(this.playerTurn);
+        this.add(this.clocks);
         this.add(scrollPane);
+        this.add(this.analysisPane);
         this.add(Box.createVerticalStrut(20));
-        this.add(this.saveBtn);
+        this.add(buttons);
+        this.add(this.status);
     }
 
     /**
@@ -79,8 +139,16 @@ public class SidePanel extends JPanel {
      */
     public SidePanel() {
         this.playerTurn = new JLabel("WHITE's turn");
+        this.whiteClock = new JLabel();
+        this.blackClock = new JLabel();
+        this.clocks = new JPanel(new FlowLayout(FlowLayout.CENTER, 30, 0));
         this.moveRecords = new JTextArea();
         this.saveBtn = new JButton("Save game");
+        this.hintBtn = new JButton("Hint");
+        this.analysisBtn = new JToggleButton("Analysis");
+        this.status = new JLabel(" ");
+        this.analysis = new JTextArea();
+        this.analysisPane = new JScrollPane(this.analysis);
         initLayout();
 
         //Initialize listener as null
@@ -102,7 +170,48 @@ public class SidePanel extends JPanel {
      * @param move - The new move to be added
      */
     public void addMove(String move) {
-        this.moveRecords.setText(this.moveRecords.getText() + "\n" + move);
+        //Append to the document instead of replacing the whole text, which made a long replay quadratic
+        this.moveRecords.append("\n" + move);
+    }
+
+    /**
+     * Method for showing the latest analysis, replacing the one shown before.
+     *
+     * @param text - The analysis text
+     */
+    public void showAnalysis(String text) {
+        this.analysis.setText(text);
+    }
+
+    /**
+     * Method for showing a message under the buttons (the latest hint),
+     * replacing the one shown before.
+     *
+     * @param text - The message, empty to clear it
+     */
+    public void showStatus(String text) {
+        //A space keeps the height of the label when it is cleared
+        this.status.setText(text.isEmpty() ? " " : text);
+    }
+
+    /**
+     * Method for showing the time left of both players. Only the text of the
+     * two labels changes, so only they are repainted.
+     *
+     * @param white - The time text of WHITE
+     * @param black - The time text of BLACK
+     */
+    public void showClocks(String white, String black) {
+        this.whiteClock.setText("WHITE " + white);
+        this.blackClock.setText("BLACK " + black);
+        this.clocks.setVisible(true);
+    }
+
+    /**
+     * Method for hiding the clocks, for a game without them.
+     */
+    public void hideClocks() {
+        this.clocks.setVisible(false);
     }
 
     /**
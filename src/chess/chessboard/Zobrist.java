@@ -0,0 +1,112 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.chessboard;
+
+import chess.util.BitboardLib;
+import java.util.SplittableRandom;
+
+/**
+ * The Zobrist class, which holds the random keys used to give each position a
+ * 64-bit identity. The key of a position is the XOR of the key of every piece
+ * on its square, the castling rights, the en passant column (only when a Pawn
+ * can actually capture there) and the side key when WHITE is to move. Since
+ * XOR is its own inverse, a move only has to XOR the few keys that changed.
+ * The keys come from a fixed seed, so the same position has the same key in
+ * every run (and in files written by an earlier run).
+ *
+ * @author Asus
+ */
+public class Zobrist {
+
+    //The seed of the keys, never change it or the keys saved in files become invalid
+    private static final long SEED = 0x5A0B21C7L;
+
+    //The key of each piece on each square, indexed by [color ordinal][rank ordinal][square]
+    static final long[][][] PIECES = new long[2][6][64];
+    //The key of each combination of the castling rights bits
+    static final long[] CASTLING = new long[16];
+    //The key of the en passant column
+    static final long[] EN_PASSANT = new long[8];
+    //The key XORed in when WHITE is to move
+    static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[][] color : PIECES) {
+            for (long[] rank : color) {
+                for (int sq = 0; sq < 64; sq++) {
+                    rank[sq] = random.nextLong();
+                }
+            }
+        }
+        //Each castling right has its own key, a combination is the XOR of its rights
+        long[] rights = new long[4];
+        for (int i = 0; i < 4; i++) {
+            rights[i] = random.nextLong();
+        }
+        for (int bits = 0; bits < 16; bits++) {
+            for (int i = 0; i < 4; i++) {
+                if ((bits & (1 << i)) != 0) {
+                    CASTLING[bits] ^= rights[i];
+                }
+            }
+        }
+        for (int col = 0; col < 8; col++) {
+            EN_PASSANT[col] = random.nextLong();
+        }
+        SIDE = random.nextLong();
+    }
+
+    /**
+     * Private constructor, this class only has static members.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Method for calculating the key of a position from scratch by scanning
+     * the board. The position keeps its key up to date on each move, so this is
+     * only needed to set up a board or to check the incremental key.
+     *
+     * @param position - The position
+     * @return - The 64-bit key of the position
+     */
+    public static long key(Position position) {
+        long key = 0L;
+        for (long o = position.occupied(); o != 0; o &= o - 1) {
+            int sq = BitboardLib.first(o);
+            int piece = position.pieceAt(sq);
+            key ^= PIECES[Position.colorOf(piece)][Position.rankOf(piece)][sq];
+        }
+        key ^= CASTLING[position.getCastlingRights()];
+        key ^= position.epKey();
+        if (position.getSideToMove() == Position.WHITE) {
+            key ^= SIDE;
+        }
+        return key;
+    }
+
+    /**
+     * Method for calculating the Pawn key of a position from scratch: the XOR
+     * of the keys of the Pawns and Kings only. The Pawn structure (and the
+     * Pawns sheltering each King) only changes when a Pawn or King moves, so
+     * its evaluation can be cached under this key. The position keeps it up to
+     * date on each move, so this is only needed to check the incremental key.
+     *
+     * @param position - The position
+     * @return - The 64-bit Pawn key of the position
+     */
+    public static long pawnKey(Position position) {
+        long key = 0L;
+        for (int color = Position.BLACK; color <= Position.WHITE; color++) {
+            for (long o = position.pieces(color, Position.PAWN) | position.pieces(color, Position.KING); o != 0; o &= o - 1) {
+                int sq = BitboardLib.first(o);
+                key ^= PIECES[color][Position.rankOf(position.pieceAt(sq))][sq];
+            }
+        }
+        return key;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+
+/**
+ * The Analysis class, a snapshot of an analysis after one finished iteration:
+ * the best lines of the position, each with its score and its principal
+ * variation (the moves both sides are expected to play), best line first.
+ *
+ * @author Asus
+ */
+public class Analysis {
+
+    //The depth of the iteration
+    private final int depth;
+    //The number of positions visited so far, and the time spent in nanoseconds
+    private final long nodes;
+    private final long nanos;
+    //The side to move of the analysed position
+    private final int sideToMove;
+    //The score of each line, from the side to move
+    private final int[] scores;
+    //The moves of each line, the first one is the move of the position
+    private final int[][] lines;
+
+    /**
+     * Constructor of class Analysis.
+     *
+     * @param depth - The depth of the iteration
+     * @param nodes - The number of positions visited
+     * @param nanos - The time spent in nanoseconds
+     * @param sideToMove - The color ordinal of the side to move
+     * @param scores - The score of each line, from the side to move
+     * @param lines - The moves of each line
+     */
+    public Analysis(int depth, long nodes, long nanos, int sideToMove, int[] scores, int[][] lines) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.sideToMove = sideToMove;
+        this.scores = scores;
+        this.lines = lines;
+    }
+
+    /**
+     * Getter method of 'depth' field.
+     *
+     * @return - The depth of the iteration
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Getter method of 'nodes' field.
+     *
+     * @return - The number of positions visited
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Method for getting the number of lines.
+     *
+     * @return - The number of lines
+     */
+    public int getLineCount() {
+        return this.lines.length;
+    }
+
+    /**
+     * Method for getting the score of a line, from the side to move.
+     *
+     * @param line - The index of the line, 0 for the best
+     * @return - The score in centipawns
+     */
+    public int getScore(int line) {
+        return this.scores[line];
+    }
+
+    /**
+     * Method for getting the moves of a line.
+     *
+     * @param line - The index of the line, 0 for the best
+     * @return - A copy of the packed moves
+     */
+    public int[] getLine(int line) {
+        return this.lines[line].clone();
+    }
+
+    /**
+     * Method for writing a score for the player: in pawns from WHITE's side
+     * (+0.35), or as a mate in moves (#3 when WHITE mates, #-3 when BLACK
+     * does).
+     *
+     * @param line - The index of the line
+     * @return - The score text
+     */
+    public String formatScore(int line) {
+        int score = this.sideToMove == Position.WHITE ? this.scores[line] : -this.scores[line];
+        if (Math.abs(score) >= Search.MATE_BOUND) {
+            int moves = (Search.MATE - Math.abs(score) + 1) / 2;
+            return score > 0 ? "#" + moves : "#-" + moves;
+        }
+        return String.format("%+.2f", score / 100.0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(String.format("Depth %d, %d nodes, %d ms", this.depth, this.nodes,
+                this.nanos / 1_000_000L));
+        for (int i = 0; i < this.lines.length; i++) {
+            text.append(String.format("%n%d. %s", i + 1, formatScore(i)));
+            for (int move : this.lines[i]) {
+                text.append(' ').append(Move.toString(move));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,555 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * The Engine class, the computer player. It searches on a background thread
+ * so the Swing event dispatch thread never waits for it, and hands the result
+ * back on the event dispatch thread, where the view can be changed. With more
+ * than one thread, the helper threads search the same position in parallel
+ * (see ParallelSearch).
+ *
+ * In the opening, the engine first looks for the position in its opening book
+ * (if it has one) and plays a book move without searching. In the small
+ * endings, the search reads the exact results from the endgame tables (if it
+ * has them) instead of searching on.
+ *
+ * While the opponent thinks, the engine can ponder: it guesses the reply (the
+ * best move its last search found for the opponent) and already searches the
+ * position after it. If the opponent plays that move, the running search is
+ * given a time budget and becomes the answer, so the work done meanwhile is
+ * kept and the answer comes sooner; any other move stops it and a new search
+ * starts.
+ *
+ * A player can ask for a hint, the best move of the position. The hints are
+ * kept by position (see HintCache), so asking again costs no search.
+ *
+ * @author Asus
+ */
+public class Engine {
+
+    //The size of the transposition table when none is given, in megabytes
+    public static final int DEFAULT_HASH_MB = 16;
+
+    //The thread the searches run on (one search at a time)
+    private final ExecutorService executor;
+    //The threads of the helper searches, null with a single thread
+    private final ExecutorService helpers;
+    //The number of search threads, including the main one
+    private final int threads;
+    //The running search, null if there is none
+    private final AtomicReference<ParallelSearch> current;
+    //The transposition table, kept from one move to the next and shared by the search threads
+    private final TranspositionTable tt;
+    //The Pawn structure cache, kept and shared the same way
+    private final PawnTable pawns;
+    //The flags for the null-move pruning and the late-move reductions of the next searches
+    private volatile boolean nullMove;
+    private volatile boolean reductions;
+    //The flag for pondering
+    private volatile boolean pondering;
+    //The opening book, null if there is none
+    private volatile OpeningBook book;
+    //The endgame tables, null if there are none
+    private volatile Tablebase tablebase;
+    //The hints already given, by position key
+    private final HintCache hints;
+
+    /*The pondering state, guarded by the engine itself*/
+    //The pondering search, null if there is none
+    private ParallelSearch ponderSearch;
+    //The key of the position it searches (the position after the predicted reply)
+    private long ponderKey;
+    //The time (System.nanoTime) it started
+    private long ponderStart;
+    //Its result if it ended before the opponent moved, else null
+    private SearchResult ponderResult;
+    //The callback of the think call it answers once the prediction came true, else null
+    private Consumer<SearchResult> ponderDone;
+    //The number of predictions that came true and that failed
+    private long ponderHits;
+    private long ponderMisses;
+
+    /**
+     * Constructor of class Engine, with the default transposition table size
+     * and a single search thread.
+     */
+    public Engine() {
+        this(DEFAULT_HASH_MB, 1);
+    }
+
+    /**
+     * Constructor of class Engine.
+     *
+     * @param hashMegabytes - The size of the transposition table in megabytes
+     * @param threads - The number of search threads
+     * @throws IllegalArgumentException - If the size or the number of threads
+     * is not valid, throws IllegalArgumentException
+     */
+    public Engine(int hashMegabytes, int threads) throws IllegalArgumentException {
+        if (threads < 1 || threads > TranspositionTable.MAX_THREADS) {
+            throw new IllegalArgumentException("The number of threads must be between 1 and " + TranspositionTable.MAX_THREADS);
+        }
+        this.tt = new TranspositionTable(hashMegabytes);
+        this.pawns = new PawnTable();
+        this.threads = threads;
+        this.executor = Executors.newSingleThreadExecutor(daemon("engine"));
+        this.helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, daemon("engine-helper")) : null;
+        this.current = new AtomicReference<>();
+        this.hints = new HintCache(HintCache.DEFAULT_CAPACITY);
+        this.nullMove = true;
+        this.reductions = true;
+        this.pondering = true;
+    }
+
+    /**
+     * Method for making a factory of daemon threads, so a search never keeps
+     * the program alive.
+     *
+     * @param name - The name of the threads
+     * @return - The thread factory
+     */
+    public static ThreadFactory daemon(String name) {
+        return (Runnable r) -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Method for starting a search in the background. The position is copied
+     * right away, on the calling thread, so the caller can change its board as
+     * soon as this method returns. A running search is stopped first. A book
+     * move is answered at once, without searching.
+     *
+     * @param pos - The position to search
+     * @param budgetMs - The time budget in milliseconds
+     * @param onDone - The callback receiving the result, called on the event
+     * dispatch thread
+     * @throws IllegalArgumentException - If the budget is not positive, throws
+     * IllegalArgumentException
+     */
+    public void think(Position pos, long budgetMs, Consumer<SearchResult> onDone) throws IllegalArgumentException {
+        if (budgetMs <= 0) {
+            throw new IllegalArgumentException("The budget must be positive");
+        }
+        think(pos, budgetMs / 2, budgetMs, onDone);
+    }
+
+    /**
+     * Method for starting a search in the background with the two limits of a
+     * move played on the clock (see TimeManager): no new iteration starts
+     * after the soft limit, and the search stops at the hard limit. Both are
+     * counted from now, as the clock already runs.
+     *
+     * @param pos - The position to search
+     * @param softMs - The time after which no new iteration starts, in
+     * milliseconds
+     * @param hardMs - The time at which the search stops, in milliseconds
+     * @param onDone - The callback receiving the result, called on the event
+     * dispatch thread
+     * @throws IllegalArgumentException - If the hard limit is not positive or
+     * the soft limit is not between 0 and the hard limit, throws
+     * IllegalArgumentException
+     */
+    public void think(Position pos, long softMs, long hardMs, Consumer<SearchResult> onDone) throws IllegalArgumentException {
+        if (hardMs <= 0 || softMs < 0 || softMs > hardMs) {
+            throw new IllegalArgumentException("The limits must satisfy 0 <= soft <= hard and hard > 0");
+        }
+        OpeningBook openings = this.book;
+        if (openings != null) {
+            long start = System.nanoTime();
+            int move = openings.probe(pos);
+            if (move != Move.NONE) {
+                stop();
+                SearchResult result = new SearchResult(move, System.nanoTime() - start);
+                SwingUtilities.invokeLater(() -> onDone.accept(result));
+                return;
+            }
+        }
+        if (ponderHit(pos, softMs, hardMs, onDone)) {
+            return;
+        }
+        stop();
+        ParallelSearch search = new ParallelSearch(pos, this.tt, this.pawns, this.threads, this.helpers);
+        search.setNullMove(this.nullMove);
+        search.setReductions(this.reductions);
+        search.setTablebase(this.tablebase);
+        search.setLimits(softMs, hardMs);
+        this.current.set(search);
+        this.executor.execute(() -> {
+            this.tt.newSearch();
+            SearchResult result = search.search(hardMs, Search.MAX_DEPTH);
+            //Only this search is cleared, a newer one may already be waiting
+            this.current.compareAndSet(search, null);
+            SwingUtilities.invokeLater(() -> onDone.accept(result));
+        });
+    }
+
+    /**
+     * Method for pondering: searching in the background, while the opponent
+     * thinks, the position after the reply the engine expects. The next call
+     * of think decides whether this search is kept. Nothing happens if
+     * pondering is off or no reply can be predicted.
+     *
+     * @param pos - The position, with the opponent to move
+     */
+    public void ponder(Position pos) {
+        if (!this.pondering) {
+            return;
+        }
+        stop();
+        int reply = predict(pos);
+        if (reply == Move.NONE) {
+            return;
+        }
+        Position next = new Position(pos);
+        next.makeMove(reply);
+        if (next.countLegalMoves() == 0) {
+            //The predicted reply ends the game, there is nothing to answer
+            return;
+        }
+        ParallelSearch search = new ParallelSearch(next, this.tt, this.pawns, this.threads, this.helpers);
+        search.setNullMove(this.nullMove);
+        search.setReductions(this.reductions);
+        search.setTablebase(this.tablebase);
+        synchronized (this) {
+            this.ponderSearch = search;
+            this.ponderKey = next.getKey();
+            this.ponderStart = System.nanoTime();
+            this.ponderResult = null;
+            this.ponderDone = null;
+        }
+        this.current.set(search);
+        this.executor.execute(() -> {
+            this.tt.newSearch();
+            SearchResult result = search.search(Search.UNLIMITED, Search.MAX_DEPTH);
+            this.current.compareAndSet(search, null);
+            Consumer<SearchResult> done;
+            synchronized (this) {
+                if (this.ponderSearch != search) {
+                    //The prediction failed, or the game changed
+                    return;
+                }
+                if (this.ponderDone == null) {
+                    //The search ended (a mate was found) before the opponent moved, the result waits for think
+                    this.ponderResult = result;
+                    return;
+                }
+                done = this.ponderDone;
+                this.ponderSearch = null;
+                this.ponderDone = null;
+            }
+            SwingUtilities.invokeLater(() -> done.accept(result));
+        });
+    }
+
+    /**
+     * Method for analysing a position: searching, until stopped, the best
+     * lines of the position and handing them out after each iteration. A
+     * running search is stopped first, and a new call (for a new position)
+     * stops this one at once. The transposition table and the Pawn cache are
+     * kept from the earlier searches, so going back to a position analysed
+     * before starts from what was found there.
+     *
+     * @param pos - The position to analyse, it is copied
+     * @param lines - The number of best lines
+     * @param onUpdate - The receiver of the best lines, called on the search
+     * thread after each iteration (it must return quickly)
+     * @throws IllegalArgumentException - If the number of lines is not
+     * positive, throws IllegalArgumentException
+     */
+    public void analyze(Position pos, int lines, Consumer<Analysis> onUpdate) throws IllegalArgumentException {
+        if (lines < 1) {
+            throw new IllegalArgumentException("The number of lines must be positive");
+        }
+        stop();
+        ParallelSearch search = new ParallelSearch(pos, this.tt, this.pawns, this.threads, this.helpers);
+        search.setNullMove(this.nullMove);
+        search.setReductions(this.reductions);
+        search.setTablebase(this.tablebase);
+        search.setLines(lines, onUpdate);
+        this.current.set(search);
+        this.executor.execute(() -> {
+            this.tt.newSearch();
+            search.search(Search.UNLIMITED, Search.MAX_DEPTH);
+            this.current.compareAndSet(search, null);
+        });
+    }
+
+    /**
+     * Method for finding a hint: the best move for the side to move. A hint
+     * given before in the same position (or a transposition of it) is
+     * answered at once from the cache, without stopping the running search.
+     * Otherwise a running search is stopped first and the position is
+     * searched in the background; the hint is kept in the cache unless the
+     * search was stopped before its budget ran out.
+     *
+     * @param pos - The position, it is copied
+     * @param budgetMs - The time budget of a search in milliseconds
+     * @param onDone - The callback receiving the result, called on the event
+     * dispatch thread
+     * @throws IllegalArgumentException - If the budget is not positive, throws
+     * IllegalArgumentException
+     */
+    public void hint(Position pos, long budgetMs, Consumer<SearchResult> onDone) throws IllegalArgumentException {
+        if (budgetMs <= 0) {
+            throw new IllegalArgumentException("The budget must be positive");
+        }
+        long key = pos.getKey();
+        SearchResult cached = this.hints.get(key);
+        if (cached != null && isLegal(pos, cached.getBestMove())) {
+            SwingUtilities.invokeLater(() -> onDone.accept(cached));
+            return;
+        }
+        stop();
+        ParallelSearch search = new ParallelSearch(pos, this.tt, this.pawns, this.threads, this.helpers);
+        search.setNullMove(this.nullMove);
+        search.setReductions(this.reductions);
+        search.setTablebase(this.tablebase);
+        this.current.set(search);
+        this.executor.execute(() -> {
+            this.tt.newSearch();
+            SearchResult result = search.search(budgetMs, Search.MAX_DEPTH);
+            //Still the current search: nothing stopped it, so the hint is worth keeping
+            if (this.current.compareAndSet(search, null) && result.getBestMove() != Move.NONE) {
+                this.hints.put(key, result);
+            }
+            SwingUtilities.invokeLater(() -> onDone.accept(result));
+        });
+    }
+
+    /**
+     * Helper method, predict the reply of the opponent: the best move stored
+     * in the transposition table for the position, if it is legal there.
+     *
+     * @param pos - The position, with the opponent to move
+     * @return - The predicted move, or Move.NONE
+     */
+    private int predict(Position pos) {
+        long entry = this.tt.probe(pos.getKey(), 0);
+        int move = entry != 0 ? TranspositionTable.move(entry) : Move.NONE;
+        return isLegal(pos, move) ? move : Move.NONE;
+    }
+
+    /**
+     * Helper method, check whether a move is legal in a position (a move read
+     * by key may belong to another position with the same key).
+     *
+     * @param pos - The position
+     * @param move - The packed move
+     * @return - The boolean value, true if the move is legal
+     */
+    private static boolean isLegal(Position pos, int move) {
+        if (move == Move.NONE) {
+            return false;
+        }
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = pos.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Helper method, check whether the pondering search is searching the
+     * position to think about, and if so make it the answer. The time spent
+     * pondering counts as thinking time, but the search still gets a quarter
+     * of each limit to finish its iteration.
+     *
+     * @param pos - The position to think about
+     * @param softMs - The time after which no new iteration starts, in
+     * milliseconds
+     * @param hardMs - The time at which the search stops, in milliseconds
+     * @param onDone - The callback receiving the result
+     * @return - The boolean value, true if the pondering search answers
+     */
+    private synchronized boolean ponderHit(Position pos, long softMs, long hardMs, Consumer<SearchResult> onDone) {
+        if (this.ponderSearch == null || this.ponderDone != null) {
+            return false;
+        }
+        if (pos.getKey() != this.ponderKey) {
+            this.ponderMisses++;
+            return false;
+        }
+        this.ponderHits++;
+        if (this.ponderResult != null) {
+            SearchResult result = this.ponderResult;
+            this.ponderSearch = null;
+            this.ponderResult = null;
+            SwingUtilities.invokeLater(() -> onDone.accept(result));
+            return true;
+        }
+        long pondered = (System.nanoTime() - this.ponderStart) / 1_000_000L;
+        this.ponderDone = onDone;
+        this.ponderSearch.setLimits(Math.max(softMs - pondered, softMs / 4), Math.max(hardMs - pondered, hardMs / 4));
+        return true;
+    }
+
+    /**
+     * Method for stopping the running search (if any). Its result is still
+     * delivered, the caller decides whether it is still wanted. A pondering
+     * search is dropped.
+     */
+    public void stop() {
+        synchronized (this) {
+            if (this.ponderSearch != null) {
+                this.ponderSearch.stop();
+                this.ponderSearch = null;
+                this.ponderResult = null;
+                this.ponderDone = null;
+            }
+        }
+        //A stopped search is no longer the current one, so it can tell it was cut short (see hint)
+        ParallelSearch search = this.current.getAndSet(null);
+        if (search != null) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Getter method of 'tt' field. The statistics are only exact when no
+     * search is running.
+     *
+     * @return - The transposition table
+     */
+    public TranspositionTable getTable() {
+        return tt;
+    }
+
+    /**
+     * Getter method of 'pawns' field. The statistics are only exact when no
+     * search is running.
+     *
+     * @return - The Pawn structure cache
+     */
+    public PawnTable getPawnTable() {
+        return pawns;
+    }
+
+    /**
+     * Setter method of 'nullMove' field, used from the next search on.
+     *
+     * @param nullMove - The boolean value, false to turn the null-move
+     * pruning off
+     */
+    public void setNullMove(boolean nullMove) {
+        this.nullMove = nullMove;
+    }
+
+    /**
+     * Setter method of 'reductions' field, used from the next search on.
+     *
+     * @param reductions - The boolean value, false to turn the late-move
+     * reductions off
+     */
+    public void setReductions(boolean reductions) {
+        this.reductions = reductions;
+    }
+
+    /**
+     * Getter method of 'hints' field.
+     *
+     * @return - The cache of the hints
+     */
+    public HintCache getHints() {
+        return hints;
+    }
+
+    /**
+     * Getter method of 'book' field.
+     *
+     * @return - The opening book, or null
+     */
+    public OpeningBook getBook() {
+        return book;
+    }
+
+    /**
+     * Setter method of 'book' field.
+     *
+     * @param book - The opening book, or null for none
+     */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Getter method of 'tablebase' field.
+     *
+     * @return - The endgame tables, or null
+     */
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Setter method of 'tablebase' field, used from the next search on.
+     *
+     * @param tablebase - The endgame tables, or null for none
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Setter method of 'pondering' field, used from the next ponder call on.
+     *
+     * @param pondering - The boolean value, false to turn pondering off
+     */
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+    }
+
+    /**
+     * Getter method of 'ponderHits' field.
+     *
+     * @return - The number of predicted replies that were played
+     */
+    public synchronized long getPonderHits() {
+        return ponderHits;
+    }
+
+    /**
+     * Getter method of 'ponderMisses' field.
+     *
+     * @return - The number of predicted replies that were not played
+     */
+    public synchronized long getPonderMisses() {
+        return ponderMisses;
+    }
+
+    /**
+     * Getter method of 'threads' field.
+     *
+     * @return - The number of search threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Method for checking if a search is running.
+     *
+     * @return - The boolean value, true if a search is running
+     */
+    public boolean isThinking() {
+        return this.current.get() != null;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.PieceSquare;
+import chess.chessboard.Position;
+import chess.util.BitboardLib;
+
+/**
+ * The Evaluation class, which gives a static score to a position without
+ * searching it. The score is in centipawns (a Pawn is worth 100) and is seen
+ * from the side to move, so the search can simply negate it for the other
+ * side.
+ *
+ * The score is the material and piece-square tables of PieceSquare, kept up to
+ * date by the position on each move, so evaluating a leaf does not look at the
+ * board at all: the middlegame and endgame scores are blended by the phase
+ * (how much material is left), so a King heads for the center as the pieces
+ * come off. The Pawn structure (doubled, isolated and passed Pawns, the Pawns
+ * sheltering each King) is added to it, and kept in a PawnTable since it only
+ * changes when a Pawn or a King moves.
+ *
+ * @author Asus
+ */
+public class Evaluation {
+
+    //The Pawn structure terms, middlegame and endgame: each extra Pawn on a column, each Pawn without a friendly
+    //Pawn on the columns beside it
+    private static final int DOUBLED_MG = -10, DOUBLED_EG = -25, ISOLATED_MG = -10, ISOLATED_EG = -15;
+    //The bonus of a passed Pawn (no enemy Pawn in front of it or on the columns beside), by rows advanced
+    private static final int[] PASSED_MG = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_EG = {0, 10, 15, 25, 45, 75, 120, 0};
+    //The middlegame bonus of each Pawn right in front of its King (or beside it), and one row further
+    private static final int SHIELD_NEAR = 15, SHIELD_FAR = 8;
+
+    //The squares of each column
+    private static final long[] COLUMNS = new long[8];
+    //The squares of the columns beside each column
+    private static final long[] ADJACENT = new long[8];
+    //The squares in front of a Pawn on its column and the columns beside, indexed by [color ordinal][square]
+    private static final long[][] PASSED = new long[2][64];
+    //The squares in front of a Pawn on its column only
+    private static final long[][] FRONT = new long[2][64];
+    //The squares one row and two rows in front of a King, on its column and the columns beside
+    private static final long[][] SHIELD_ONE = new long[2][64];
+    private static final long[][] SHIELD_TWO = new long[2][64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            COLUMNS[BitboardLib.col(sq)] |= BitboardLib.bit(sq);
+        }
+        for (int col = 0; col < 8; col++) {
+            ADJACENT[col] = (col > 0 ? COLUMNS[col - 1] : 0L) | (col < 7 ? COLUMNS[col + 1] : 0L);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int row = BitboardLib.row(sq), col = BitboardLib.col(sq);
+            long columns = COLUMNS[col] | ADJACENT[col];
+            for (int r = 0; r < 8; r++) {
+                long rowMask = 0xFFL << (r * 8);
+                //WHITE moves towards row 0, BLACK towards row 7
+                if (r < row) {
+                    PASSED[Position.WHITE][sq] |= rowMask & columns;
+                    FRONT[Position.WHITE][sq] |= rowMask & COLUMNS[col];
+                } else if (r > row) {
+                    PASSED[Position.BLACK][sq] |= rowMask & columns;
+                    FRONT[Position.BLACK][sq] |= rowMask & COLUMNS[col];
+                }
+                if (r == row - 1) {
+                    SHIELD_ONE[Position.WHITE][sq] = rowMask & columns;
+                } else if (r == row - 2) {
+                    SHIELD_TWO[Position.WHITE][sq] = rowMask & columns;
+                } else if (r == row + 1) {
+                    SHIELD_ONE[Position.BLACK][sq] = rowMask & columns;
+                } else if (r == row + 2) {
+                    SHIELD_TWO[Position.BLACK][sq] = rowMask & columns;
+                }
+            }
+        }
+    }
+
+    /**
+     * Private constructor, this class only has static methods.
+     */
+    private Evaluation() {
+    }
+
+    /**
+     * Method for evaluating a position.
+     *
+     * @param pos - The position
+     * @param pawns - The cache of the Pawn structure scores
+     * @param thread - The index of the calling thread, for the statistics of
+     * the cache
+     * @return - The score in centipawns, positive if the side to move is
+     * better
+     */
+    public static int evaluate(Position pos, PawnTable pawns, int thread) {
+        long structure = pawns.probe(pos.getPawnKey(), thread);
+        if (structure == 0) {
+            structure = pawnStructure(pos, pawns);
+        }
+        int mg = pos.getMgScore() + PawnTable.mg(structure), eg = pos.getEgScore() + PawnTable.eg(structure);
+        //Promotions can push the phase over the full board one
+        int phase = Math.min(pos.getPhase(), PieceSquare.MAX_PHASE);
+        int score = (mg * phase + eg * (PieceSquare.MAX_PHASE - phase)) / PieceSquare.MAX_PHASE;
+        return pos.getSideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Helper method, score the Pawn structure of a position and store it in
+     * the cache.
+     *
+     * @param pos - The position
+     * @param pawns - The cache of the Pawn structure scores
+     * @return - The packed data stored in the cache
+     */
+    private static long pawnStructure(Position pos, PawnTable pawns) {
+        int mg = 0, eg = 0;
+        for (int color = Position.BLACK; color <= Position.WHITE; color++) {
+            int sign = color == Position.WHITE ? 1 : -1;
+            long own = pos.pieces(color, Position.PAWN), enemy = pos.pieces(color ^ 1, Position.PAWN);
+
+            //Doubled and isolated Pawns, column by column
+            for (int col = 0; col < 8; col++) {
+                int count = BitboardLib.count(own & COLUMNS[col]);
+                if (count > 1) {
+                    mg += sign * DOUBLED_MG * (count - 1);
+                    eg += sign * DOUBLED_EG * (count - 1);
+                }
+                if (count > 0 && (own & ADJACENT[col]) == 0) {
+                    mg += sign * ISOLATED_MG * count;
+                    eg += sign * ISOLATED_EG * count;
+                }
+            }
+
+            //Passed Pawns (the front one of a column only), the further the better
+            for (long o = own; o != 0; o &= o - 1) {
+                int sq = BitboardLib.first(o);
+                if ((PASSED[color][sq] & enemy) == 0 && (FRONT[color][sq] & own) == 0) {
+                    int advanced = color == Position.WHITE ? 7 - BitboardLib.row(sq) : BitboardLib.row(sq);
+                    mg += sign * PASSED_MG[advanced];
+                    eg += sign * PASSED_EG[advanced];
+                }
+            }
+
+            //The Pawns in front of the King shelter it while there are pieces to attack it
+            long king = pos.pieces(color, Position.KING);
+            if (king != 0) {
+                int kingSq = BitboardLib.first(king);
+                mg += sign * (SHIELD_NEAR * BitboardLib.count(own & SHIELD_ONE[color][kingSq])
+                        + SHIELD_FAR * BitboardLib.count(own & SHIELD_TWO[color][kingSq]));
+            }
+        }
+        return pawns.store(pos.getPawnKey(), mg, eg);
+    }
+}
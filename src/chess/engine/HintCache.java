@@ -0,0 +1,141 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The HintCache class, the hints already given, kept by position key so a
+ * hint asked again in the same position (or in a transposition of it, which
+ * has the same key) is answered without searching. The cache holds a bounded
+ * number of hints and forgets the least recently used one first, so a long
+ * session does not make it grow without end.
+ *
+ * The hints are asked for on the event dispatch thread and found on the
+ * engine thread, so every method is synchronized (a hint is asked for by a
+ * click, the lock is never contended).
+ *
+ * @author Asus
+ */
+public class HintCache {
+
+    //The number of hints kept when none is given
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    //The largest number of hints kept
+    private final int capacity;
+    //The hints by position key, in the order they were last used (the least recently used first)
+    private final LinkedHashMap<Long, SearchResult> hints;
+    //The lookups and those that found a hint
+    private long lookups;
+    private long hits;
+
+    /**
+     * Constructor of class HintCache.
+     *
+     * @param capacity - The largest number of hints kept
+     * @throws IllegalArgumentException - If the capacity is not positive,
+     * throws IllegalArgumentException
+     */
+    public HintCache(int capacity) throws IllegalArgumentException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        this.capacity = capacity;
+        //The access order makes a lookup move the hint to the end, so the first one is the least recently used
+        this.hints = new LinkedHashMap<Long, SearchResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, SearchResult> eldest) {
+                return size() > HintCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Method for looking up the hint of a position.
+     *
+     * @param key - The Zobrist key of the position
+     * @return - The hint, or null if there is none
+     */
+    public synchronized SearchResult get(long key) {
+        this.lookups++;
+        SearchResult hint = this.hints.get(key);
+        if (hint != null) {
+            this.hits++;
+        }
+        return hint;
+    }
+
+    /**
+     * Method for keeping the hint of a position, forgetting the least
+     * recently used hint if the cache is full.
+     *
+     * @param key - The Zobrist key of the position
+     * @param hint - The result of the search of the position
+     */
+    public synchronized void put(long key, SearchResult hint) {
+        this.hints.put(key, hint);
+    }
+
+    /**
+     * Method for forgetting every hint, the statistics are kept.
+     */
+    public synchronized void clear() {
+        this.hints.clear();
+    }
+
+    /**
+     * Method for getting the number of hints kept.
+     *
+     * @return - The number of hints
+     */
+    public synchronized int size() {
+        return this.hints.size();
+    }
+
+    /**
+     * Getter method of 'capacity' field.
+     *
+     * @return - The largest number of hints kept
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Getter method of 'lookups' field.
+     *
+     * @return - The number of lookups
+     */
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Getter method of 'hits' field.
+     *
+     * @return - The number of lookups that found a hint
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Method for getting the share of the lookups that found a hint.
+     *
+     * @return - The hit rate, between 0 and 1
+     */
+    public synchronized double getHitRate() {
+        return this.lookups == 0 ? 0.0 : (double) this.hits / this.lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d/%d hints, %d lookups, %.1f%% hits", this.hints.size(), this.capacity, this.lookups,
+                100.0 * getHitRate());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import chess.util.BitboardLib;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The OpeningBook class, the known good moves of the opening, read from a
+ * book file so the computer answers them at once instead of searching.
+ *
+ * The file has the Polyglot layout: records of 16 bytes (big-endian), the
+ * position key (8 bytes), the move (2), its weight (2) and 4 unused bytes,
+ * sorted by key as an unsigned number. The moves are Polyglot moves too (the
+ * source and destination squares counted from a1, the promotion, a castling
+ * written as the King taking its own Rook). The keys are the Zobrist keys of
+ * this program, not the Polyglot ones, so the book files are made with
+ * chess.tools.BookBuilder.
+ *
+ * The file is mapped into memory, not read: opening a book costs nothing and
+ * takes no heap, and a lookup is a binary search over the mapped records,
+ * where the operating system only loads the pages it touches.
+ *
+ * @author Asus
+ */
+public class OpeningBook {
+
+    //The size of a record in bytes
+    public static final int RECORD_BYTES = 16;
+    //The offsets of the fields in a record
+    private static final int MOVE_OFFSET = 8, WEIGHT_OFFSET = 10;
+    //The Polyglot code of each promotion, indexed by the Rank ordinal (PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING)
+    private static final int[] PROMOTION_CODES = {0, 3, 1, 2, 4, 0};
+
+    //The mapped file
+    private final MappedByteBuffer buffer;
+    //The number of records
+    private final int size;
+    //The lookups that found a move and those that did not
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Constructor of class OpeningBook, map a book file.
+     *
+     * @param path - The path of the book file
+     * @throws IOException - If the file cannot be read, throws IOException
+     * @throws IllegalArgumentException - If the file size is not a whole
+     * number of records, throws IllegalArgumentException
+     */
+    public OpeningBook(Path path) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if (bytes % RECORD_BYTES != 0 || bytes / RECORD_BYTES > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Not a book file: " + path);
+            }
+            //The mapping stays valid after the channel is closed
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            this.size = (int) (bytes / RECORD_BYTES);
+        }
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Method for encoding a move as a Polyglot move: destination column in
+     * bits 0-2 and row (counted from WHITE's side) in bits 3-5, the same for
+     * the source square in bits 6-11 and the promotion in bits 12-14. A
+     * castling is written as the King moving to its Rook's square.
+     *
+     * @param move - The packed move
+     * @return - The Polyglot move
+     */
+    public static int encode(int move) {
+        int from = Move.from(move), to = Move.to(move);
+        if (Move.isCastling(move)) {
+            to = BitboardLib.square(BitboardLib.row(to), BitboardLib.col(to) == 6 ? 7 : 0);
+        }
+        return BitboardLib.col(to) | ((7 - BitboardLib.row(to)) << 3) | (BitboardLib.col(from) << 6)
+                | ((7 - BitboardLib.row(from)) << 9) | (PROMOTION_CODES[Move.promotion(move)] << 12);
+    }
+
+    /**
+     * Method for looking up a position and choosing one of its book moves, at
+     * random but in proportion to their weights, so the computer does not
+     * always play the same opening. Only legal moves are chosen, so a key
+     * collision cannot make the computer play a wrong move.
+     *
+     * @param pos - The position
+     * @return - The chosen move, or Move.NONE if the position is not in the
+     * book
+     */
+    public int probe(Position pos) {
+        long key = pos.getKey();
+        int first = lowerBound(key);
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = pos.generateMoves(moves);
+
+        //Match each record of the key with a legal move, the weights add up for the random choice
+        int[] candidates = new int[Position.MAX_MOVES];
+        int[] weights = new int[Position.MAX_MOVES];
+        int found = 0, total = 0;
+        for (int i = first; i < this.size && this.buffer.getLong(i * RECORD_BYTES) == key && found < candidates.length; i++) {
+            int code = this.buffer.getShort(i * RECORD_BYTES + MOVE_OFFSET) & 0xFFFF;
+            int weight = this.buffer.getShort(i * RECORD_BYTES + WEIGHT_OFFSET) & 0xFFFF;
+            for (int j = 0; j < count; j++) {
+                if (encode(moves[j]) == code && weight > 0) {
+                    candidates[found] = moves[j];
+                    weights[found++] = weight;
+                    total += weight;
+                    break;
+                }
+            }
+        }
+        if (found == 0) {
+            this.misses.incrementAndGet();
+            return Move.NONE;
+        }
+        this.hits.incrementAndGet();
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < found; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return candidates[i];
+            }
+        }
+        return candidates[found - 1];
+    }
+
+    /**
+     * Helper method, find the first record whose key is not below a key (the
+     * keys are compared as unsigned numbers, the order of the file).
+     *
+     * @param key - The key
+     * @return - The index of the record, or the number of records if every
+     * key is below
+     */
+    private int lowerBound(long key) {
+        int low = 0, high = this.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(this.buffer.getLong(mid * RECORD_BYTES), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Getter method of 'size' field.
+     *
+     * @return - The number of records
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Method for getting the number of lookups that found a move.
+     *
+     * @return - The number of hits
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Method for getting the number of lookups that found no move.
+     *
+     * @return - The number of misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d records, %d hits, %d misses", this.size, getHits(), getMisses());
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Position;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * The ParallelSearch class, which searches one position with several threads
+ * (Lazy SMP). Every thread runs the same iterative deepening on its own copy
+ * of the position, and they only share the transposition table: what one
+ * thread finds (scores, best moves) is picked up by the others as table hits,
+ * so together they reach a given depth sooner than one thread. The main
+ * search runs on the calling thread, the helpers on the given pool, and the
+ * first search to finish stops the others. The Pawn structure cache is shared
+ * the same way.
+ *
+ * @author Asus
+ */
+public class ParallelSearch {
+
+    //The searches, the main one first
+    private final Search[] searches;
+    //The pool running the helper searches, null with a single thread
+    private final ExecutorService helpers;
+
+    /**
+     * Constructor of class ParallelSearch.
+     *
+     * @param pos - The position to search, it is copied for each thread
+     * @param tt - The transposition table shared by the threads
+     * @param pawns - The Pawn structure cache shared by the threads
+     * @param threads - The number of threads, including the calling one
+     * @param helpers - The pool running the helper searches (at least threads
+     * - 1 threads), may be null for a single thread
+     * @throws IllegalArgumentException - If the number of threads is not
+     * valid or there is no pool for the helpers, throws
+     * IllegalArgumentException
+     */
+    public ParallelSearch(Position pos, TranspositionTable tt, PawnTable pawns, int threads, ExecutorService helpers)
+            throws IllegalArgumentException {
+        if (threads < 1 || threads > TranspositionTable.MAX_THREADS) {
+            throw new IllegalArgumentException("The number of threads must be between 1 and " + TranspositionTable.MAX_THREADS);
+        }
+        if (threads > 1 && helpers == null) {
+            throw new IllegalArgumentException("The helper threads need a pool");
+        }
+        this.searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            this.searches[i] = new Search(pos, tt, pawns, i, this);
+        }
+        this.helpers = helpers;
+    }
+
+    /**
+     * Method for searching the position with all the threads. The result is
+     * the one of the deepest finished iteration (the main thread wins a tie),
+     * with the nodes of every thread.
+     *
+     * @param budgetMs - The time budget in milliseconds
+     * @param maxDepth - The deepest iteration to search
+     * @return - The result of the search
+     * @throws IllegalArgumentException - If the budget or the depth is not
+     * positive, throws IllegalArgumentException
+     */
+    public SearchResult search(long budgetMs, int maxDepth) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (int i = 1; i < this.searches.length; i++) {
+            Search helper = this.searches[i];
+            futures.add(this.helpers.submit(() -> helper.search(budgetMs, maxDepth)));
+        }
+        SearchResult best = this.searches[0].search(budgetMs, maxDepth);
+        stop();
+
+        //Wait for the helpers, they stop at their next clock check
+        long nodes = best.getNodes();
+        try {
+            for (Future<SearchResult> future : futures) {
+                SearchResult result = future.get();
+                nodes += result.getNodes();
+                if (result.getDepth() > best.getDepth()) {
+                    best = result;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A helper search failed", e.getCause());
+        }
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Method for giving every thread a new time budget, counted from now,
+     * while the search runs (see Search.setBudget).
+     *
+     * @param budgetMs - The time budget in milliseconds
+     */
+    public void setBudget(long budgetMs) {
+        for (Search search : this.searches) {
+            search.setBudget(budgetMs);
+        }
+    }
+
+    /**
+     * Method for giving every thread the two time limits of a move, counted
+     * from now (see Search.setLimits).
+     *
+     * @param softMs - The time after which no new iteration starts, in
+     * milliseconds
+     * @param hardMs - The time at which the search stops, in milliseconds
+     */
+    public void setLimits(long softMs, long hardMs) {
+        for (Search search : this.searches) {
+            search.setLimits(softMs, hardMs);
+        }
+    }
+
+    /**
+     * Method for finding several best lines (see Search.setLines): every
+     * thread searches them, so the helpers fill the table for each of them,
+     * and the main thread reports them to the listener.
+     *
+     * @param lines - The number of best lines to find
+     * @param listener - The receiver of the best lines after each iteration
+     * of the main thread, called on that thread, or null for none
+     * @throws IllegalArgumentException - If the number is not positive,
+     * throws IllegalArgumentException
+     */
+    public void setLines(int lines, Consumer<Analysis> listener) throws IllegalArgumentException {
+        for (Search search : this.searches) {
+            search.setLines(lines);
+        }
+        this.searches[0].setListener(listener);
+    }
+
+    /**
+     * Method for giving every thread the endgame tables.
+     *
+     * @param tablebase - The endgame tables, or null for none
+     */
+    public void setTablebase(Tablebase tablebase) {
+        for (Search search : this.searches) {
+            search.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Method for turning the null-move pruning on or off in every thread.
+     *
+     * @param nullMove - The boolean value, false to turn it off
+     */
+    public void setNullMove(boolean nullMove) {
+        for (Search search : this.searches) {
+            search.setNullMove(nullMove);
+        }
+    }
+
+    /**
+     * Method for turning the late-move reductions on or off in every thread.
+     *
+     * @param reductions - The boolean value, false to turn them off
+     */
+    public void setReductions(boolean reductions) {
+        for (Search search : this.searches) {
+            search.setReductions(reductions);
+        }
+    }
+
+    /**
+     * Method called by a search when it has finished, so that the other
+     * threads stop too.
+     */
+    void finished() {
+        stop();
+    }
+
+    /**
+     * Method for stopping every thread of the search.
+     */
+    public void stop() {
+        for (Search search : this.searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Method for getting the number of threads.
+     *
+     * @return - The number of threads, including the main one
+     */
+    public int getThreads() {
+        return this.searches.length;
+    }
+
+    /**
+     * Method for getting the number of null moves tried by all the threads in
+     * the last search.
+     *
+     * @return - The number of null moves tried
+     */
+    public long getNullTries() {
+        long sum = 0L;
+        for (Search search : this.searches) {
+            sum += search.getNullTries();
+        }
+        return sum;
+    }
+
+    /**
+     * Method for getting the number of null-move cutoffs of all the threads
+     * in the last search.
+     *
+     * @return - The number of null-move cutoffs
+     */
+    public long getNullCutoffs() {
+        long sum = 0L;
+        for (Search search : this.searches) {
+            sum += search.getNullCutoffs();
+        }
+        return sum;
+    }
+
+    /**
+     * Method for getting the number of reduced moves of all the threads in the
+     * last search.
+     *
+     * @return - The number of reduced moves
+     */
+    public long getReduced() {
+        long sum = 0L;
+        for (Search search : this.searches) {
+            sum += search.getReduced();
+        }
+        return sum;
+    }
+
+    /**
+     * Method for getting the number of reduced moves searched again by all
+     * the threads in the last search.
+     *
+     * @return - The number of re-searches
+     */
+    public long getResearches() {
+        long sum = 0L;
+        for (Search search : this.searches) {
+            sum += search.getResearches();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * The PawnTable class, a small cache of the Pawn structure scores, by the Pawn
+ * key of the position (the Pawns and Kings only). The Pawns rarely move
+ * compared with the other pieces, so most positions the search evaluates
+ * share their Pawn structure with one already seen, and its score is read back
+ * instead of being computed again.
+ *
+ * The table has a fixed size and works like the transposition table: one
+ * preallocated long[] of entries of two longs (the key XORed with the data,
+ * then the data), each new score replacing the entry of its index, shared by
+ * the search threads without any lock.
+ *
+ * @author Asus
+ */
+public class PawnTable {
+
+    //The number of entries, a power of 2 (256 KB, a few times the Pawn structures of one search)
+    public static final int ENTRIES = 1 << 14;
+
+    //The layout of the data long: middlegame score (16 bits), endgame score (16), and a bit set in every entry
+    private static final int EG_SHIFT = 16;
+    private static final long USED = 1L << 32;
+    //The statistics of each thread: probes and hits, padded to 128 bytes
+    private static final int PROBES = 0, HITS = 1, STRIDE = 16;
+
+    //The entries: key ^ data, data
+    private final long[] table;
+    //The statistics counted by each thread (see the indexes above)
+    private final long[] counters;
+
+    /**
+     * Constructor of class PawnTable.
+     */
+    public PawnTable() {
+        this.table = new long[ENTRIES * 2];
+        this.counters = new long[TranspositionTable.MAX_THREADS * STRIDE];
+    }
+
+    /**
+     * Method for emptying the table and resetting the statistics.
+     */
+    public void clear() {
+        Arrays.fill(this.table, 0L);
+        Arrays.fill(this.counters, 0L);
+    }
+
+    /**
+     * Method for looking up a Pawn structure.
+     *
+     * @param pawnKey - The Pawn key of the position
+     * @param thread - The index of the calling thread (0 to
+     * TranspositionTable.MAX_THREADS - 1), for the statistics
+     * @return - The packed data of the entry (read it with mg and eg), or 0 if
+     * the structure is not in the table
+     */
+    public long probe(long pawnKey, int thread) {
+        int index = ((int) pawnKey & (ENTRIES - 1)) * 2;
+        int counter = thread * STRIDE;
+        this.counters[counter + PROBES]++;
+        long data = this.table[index + 1];
+        if ((this.table[index] ^ data) == pawnKey && data != 0) {
+            this.counters[counter + HITS]++;
+            return data;
+        }
+        return 0L;
+    }
+
+    /**
+     * Method for storing the score of a Pawn structure.
+     *
+     * @param pawnKey - The Pawn key of the position
+     * @param mg - The middlegame score, from WHITE's side
+     * @param eg - The endgame score, from WHITE's side
+     * @return - The packed data stored
+     */
+    public long store(long pawnKey, int mg, int eg) {
+        long data = (mg & 0xFFFFL) | ((long) (eg & 0xFFFF) << EG_SHIFT) | USED;
+        int index = ((int) pawnKey & (ENTRIES - 1)) * 2;
+        this.table[index] = pawnKey ^ data;
+        this.table[index + 1] = data;
+        return data;
+    }
+
+    /**
+     * Method for reading the middlegame score of an entry.
+     *
+     * @param data - The packed data returned by probe or store
+     * @return - The middlegame score
+     */
+    public static int mg(long data) {
+        return (short) data;
+    }
+
+    /**
+     * Method for reading the endgame score of an entry.
+     *
+     * @param data - The packed data returned by probe or store
+     * @return - The endgame score
+     */
+    public static int eg(long data) {
+        return (short) (data >>> EG_SHIFT);
+    }
+
+    /**
+     * Helper method, add up one statistic of every thread.
+     *
+     * @param which - The index of the statistic
+     * @return - The total
+     */
+    private long total(int which) {
+        long sum = 0L;
+        for (int i = which; i < this.counters.length; i += STRIDE) {
+            sum += this.counters[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Method for getting the number of lookups.
+     *
+     * @return - The number of lookups
+     */
+    public long getProbes() {
+        return total(PROBES);
+    }
+
+    /**
+     * Method for getting the number of lookups that found the structure.
+     *
+     * @return - The number of hits
+     */
+    public long getHits() {
+        return total(HITS);
+    }
+
+    /**
+     * Method for getting the share of the lookups that found the structure.
+     *
+     * @return - The hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        long probes = getProbes();
+        return probes == 0 ? 0.0 : (double) getHits() / probes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d KB, %d probes, %.1f%% hits", this.table.length * 8L >> 10, getProbes(), 100.0 * getHitRate());
+    }
+}
@@ -0,0 +1,857 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import chess.util.BitboardLib;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The Search class, which finds the best move of a position with an alpha-beta
+ * search and iterative deepening. The search works on its own copy of the
+ * position (no Piece, no view), so it can run on any thread while the board on
+ * the screen keeps changing. Each iteration searches one ply deeper than the
+ * last and starts with the best move of the previous one, so when the time is
+ * up there is always a move from the last finished iteration to play.
+ *
+ * @author Asus
+ */
+public class Search {
+
+    //The deepest iteration, far more than any budget can reach
+    public static final int MAX_DEPTH = 64;
+    //A budget that never runs out, for a search that only ends when it is stopped (pondering, fixed depth)
+    public static final long UNLIMITED = Long.MAX_VALUE / 2_000_000L;
+    //The score bounds: a mate is worth MATE minus the number of plies to get there
+    public static final int INFINITY = 32767, MATE = 32000;
+    //Any score beyond this bound is a mate, found by the search or read from the tablebase (whose mates can be
+    //much longer than the search is deep)
+    public static final int MATE_BOUND = MATE - 512;
+    //The clock is read once every this many nodes (a power of 2 minus 1, used as a mask)
+    private static final int CHECK_MASK = 2047;
+    //The ordering scores: the hash move first, then the captures that do not lose material (most valuable victim
+    //first, then least valuable attacker), then the two killer moves, then the quiet moves by their history score,
+    //and the losing captures last (their exchange value is negative)
+    private static final int HASH_SCORE = 1 << 30, GOOD_CAPTURE_SCORE = 1 << 20, KILLER_SCORE = 1 << 19;
+    //The largest history score, the whole table is halved when a score gets there so it stays below the killers
+    private static final int HISTORY_MAX = 1 << 18;
+    //The null move is tried from this depth on, and reduces the depth by 2 more plies (3 from NULL_DEEP on)
+    private static final int NULL_MIN_DEPTH = 3, NULL_DEEP = 7;
+    //The late quiet moves are reduced from this depth on, starting with the move at this index of the ordered list
+    private static final int LMR_MIN_DEPTH = 3, LMR_MIN_INDEX = 3;
+    //The worth of each Rank for MVV-LVA, indexed by the Rank ordinal (PAWN, ROOK, KNIGHT, BISHOP, QUEEN, KING)
+    private static final int[] WORTH = {1, 4, 2, 3, 5, 6};
+
+    //The copy of the position being searched
+    private final Position pos;
+    //The transposition table, which may be kept from one search to the next (and shared by parallel searches)
+    private final TranspositionTable tt;
+    //The cache of the Pawn structure scores (shared by parallel searches too)
+    private final PawnTable pawns;
+    //The index of this search in a parallel search (0 for the main one), also its row of the table statistics
+    private final int thread;
+    //The parallel search this search belongs to, null if it runs alone
+    private final ParallelSearch group;
+    //The move buffer of each ply, allocated once
+    private final int[][] moves;
+    //The ordering score of each move of each ply, allocated once
+    private final int[][] scores;
+    //The static exchange evaluator, for ordering and for skipping the losing captures
+    private final StaticExchange exchange;
+    //The two quiet moves of each ply that last caused a cutoff, tried right after the good captures
+    private final int[][] killers;
+    //The history score of each quiet move, indexed by [color ordinal][from][to]: the more cutoffs it caused (and
+    //the deeper), the sooner it is tried
+    private final int[][][] history;
+    //The endgame tables, null if there are none
+    private Tablebase tablebase;
+    //The number of best lines to find (more than 1 only for an analysis), and who gets them after each iteration
+    private int lines;
+    private Consumer<Analysis> listener;
+    //The flag for ordering the moves, without it they are searched in the order of the generator
+    private boolean ordering;
+    //The flags for the null-move pruning and the late-move reductions
+    private boolean nullMove;
+    private boolean reductions;
+    //The pruning statistics: null moves tried and their cutoffs, late moves reduced and searched again in full
+    private long nullTries;
+    private long nullCutoffs;
+    private long reduced;
+    private long researches;
+    //The flag telling the search to stop, set by the clock or by another thread
+    private volatile boolean stopped;
+    //The time (System.nanoTime) at which the search must stop, and the time after which the main thread does not
+    //start a new iteration. Both can be moved by another thread while the search runs (see setBudget)
+    private volatile long deadline;
+    private volatile long softDeadline;
+    //The number of positions visited
+    private long nodes;
+
+    /**
+     * Constructor of class Search.
+     *
+     * @param pos - The position to search, it is copied so the caller can keep
+     * using it
+     * @param tt - The transposition table to use
+     * @param pawns - The Pawn structure cache to use
+     */
+    public Search(Position pos, TranspositionTable tt, PawnTable pawns) {
+        this(pos, tt, pawns, 0, null);
+    }
+
+    /**
+     * Constructor of class Search, for one thread of a parallel search.
+     *
+     * @param pos - The position to search, it is copied
+     * @param tt - The transposition table shared by the threads
+     * @param pawns - The Pawn structure cache shared by the threads
+     * @param thread - The index of the thread (0 for the main thread)
+     * @param group - The parallel search to tell when this search is done
+     */
+    Search(Position pos, TranspositionTable tt, PawnTable pawns, int thread, ParallelSearch group) {
+        this.pos = new Position(pos);
+        this.tt = tt;
+        this.pawns = pawns;
+        this.thread = thread;
+        this.group = group;
+        this.moves = new int[MAX_DEPTH + 1][Position.MAX_MOVES];
+        this.scores = new int[MAX_DEPTH + 1][Position.MAX_MOVES];
+        this.exchange = new StaticExchange();
+        this.killers = new int[MAX_DEPTH + 1][2];
+        this.history = new int[2][64][64];
+        this.ordering = true;
+        this.nullMove = true;
+        this.reductions = true;
+        this.lines = 1;
+    }
+
+    /**
+     * Setter method of 'ordering' field. The ordering is on by default; it
+     * can be turned off to measure what it saves.
+     *
+     * @param ordering - The boolean value, false to search the moves in the
+     * order of the generator
+     */
+    public void setOrdering(boolean ordering) {
+        this.ordering = ordering;
+    }
+
+    /**
+     * Setter method of 'nullMove' field. The null-move pruning is on by
+     * default.
+     *
+     * @param nullMove - The boolean value, false to turn the null-move
+     * pruning off
+     */
+    public void setNullMove(boolean nullMove) {
+        this.nullMove = nullMove;
+    }
+
+    /**
+     * Setter method of 'reductions' field. The late-move reductions are on by
+     * default.
+     *
+     * @param reductions - The boolean value, false to search every move to
+     * the full depth
+     */
+    public void setReductions(boolean reductions) {
+        this.reductions = reductions;
+    }
+
+    /**
+     * Setter method of 'tablebase' field. Without tables (the default) the
+     * endings are searched like any other position.
+     *
+     * @param tablebase - The endgame tables, or null for none
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Setter method of 'lines' field. With more than one line, every move
+     * that may be one of the best lines is searched to an exact score (not
+     * only the best one), which costs more nodes per iteration.
+     *
+     * @param lines - The number of best lines to find
+     * @throws IllegalArgumentException - If the number is not positive,
+     * throws IllegalArgumentException
+     */
+    public void setLines(int lines) throws IllegalArgumentException {
+        if (lines < 1) {
+            throw new IllegalArgumentException("The number of lines must be positive");
+        }
+        this.lines = lines;
+    }
+
+    /**
+     * Setter method of 'listener' field. The listener is called on the search
+     * thread after each finished iteration, so it must return quickly (for
+     * example keep the analysis for the event dispatch thread to show later).
+     *
+     * @param listener - The receiver of the best lines, or null for none
+     */
+    public void setListener(Consumer<Analysis> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Method for stopping the search from another thread. The search returns
+     * the best move of the last finished iteration soon after.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Method for giving the search a new time budget, counted from now. It can
+     * be called while the search runs, for example to turn a pondering search
+     * (UNLIMITED) into a timed one when the predicted move is played.
+     *
+     * @param budgetMs - The time budget in milliseconds
+     */
+    public synchronized void setBudget(long budgetMs) {
+        long now = System.nanoTime();
+        //The next iteration usually takes longer than all the previous ones, so none starts after half the budget
+        this.softDeadline = now + budgetMs * 500_000L;
+        this.deadline = now + budgetMs * 1_000_000L;
+    }
+
+    /**
+     * Method for giving the search its two time limits, counted from now (see
+     * TimeManager), instead of a budget. Like setBudget, it can be called
+     * before the search starts or while it runs.
+     *
+     * @param softMs - The time after which no new iteration starts, in
+     * milliseconds
+     * @param hardMs - The time at which the search stops, in milliseconds
+     */
+    public synchronized void setLimits(long softMs, long hardMs) {
+        long now = System.nanoTime();
+        this.softDeadline = now + softMs * 1_000_000L;
+        this.deadline = now + hardMs * 1_000_000L;
+    }
+
+    /**
+     * Method for searching the position.
+     *
+     * @param budgetMs - The time budget in milliseconds (unless setBudget or
+     * setLimits was called before the search started)
+     * @param maxDepth - The deepest iteration to search
+     * @return - The result of the search
+     * @throws IllegalArgumentException - If the budget or the depth is not
+     * positive, throws IllegalArgumentException
+     */
+    public SearchResult search(long budgetMs, int maxDepth) throws IllegalArgumentException {
+        if (budgetMs <= 0 || maxDepth <= 0) {
+            throw new IllegalArgumentException("The budget and the depth must be positive");
+        }
+        long start = System.nanoTime();
+        this.nodes = 0;
+        this.nullTries = this.nullCutoffs = this.reduced = this.researches = 0;
+
+        int[] rootMoves = this.moves[0];
+        int count = this.pos.generateMoves(rootMoves);
+        if (count == 0) {
+            //Nothing to search: checkmate or stalemate
+            int score = this.pos.isInCheck(this.pos.getSideToMove()) ? -MATE : 0;
+            return new SearchResult(Move.NONE, score, 0, 0, System.nanoTime() - start);
+        }
+        //Limits given before the search started (a pondering search already answered, a move on the clock) are kept
+        synchronized (this) {
+            if (this.deadline == 0L) {
+                setBudget(budgetMs);
+            }
+        }
+        //The best move of an earlier search of the same position goes first, the root moves are sorted once
+        long rootEntry = this.tt.probe(this.pos.getKey(), this.thread);
+        scoreMoves(rootMoves, this.scores[0], count, rootEntry != 0 ? TranspositionTable.move(rootEntry) : Move.NONE, 0);
+        for (int i = 0; i < count; i++) {
+            pickMove(rootMoves, this.scores[0], i, count);
+        }
+        //In an ending of the tablebase every move leads to a known result, one iteration finds the best of them
+        boolean solved = this.tablebase != null && this.tablebase.probe(this.pos) != Tablebase.UNKNOWN;
+
+        //Until an iteration finishes, the first legal move is the answer. Every second helper thread of a parallel
+        //search starts one ply deeper, so the threads are not all on the same iteration and fill the table for each other
+        int bestMove = rootMoves[0], bestScore = 0, depth = 0;
+        int[] rootScores = new int[count];
+        for (int d = 1 + (this.thread & 1); d <= Math.min(maxDepth, MAX_DEPTH) && !this.stopped; d++) {
+            int alpha = -INFINITY, iterationScore = -INFINITY, iterationMove = Move.NONE;
+            for (int i = 0; i < count; i++) {
+                this.pos.makeMove(rootMoves[i]);
+                int score = -alphaBeta(d - 1, -INFINITY, -alpha, 1);
+                this.pos.unmakeMove();
+                if (this.stopped) {
+                    break;
+                }
+                rootScores[i] = score;
+                if (score > iterationScore) {
+                    iterationScore = score;
+                    iterationMove = rootMoves[i];
+                }
+                //With several lines, a move only has to beat the last of the best lines so far to get an exact score
+                alpha = this.lines == 1 ? iterationScore : lowestOfBest(rootScores, i + 1);
+            }
+
+            //A move that beat the previous best (always searched first) is kept even if the iteration was cut
+            if (iterationMove != Move.NONE) {
+                bestMove = iterationMove;
+                bestScore = iterationScore;
+            }
+            if (this.stopped) {
+                break;
+            }
+            depth = d;
+            this.tt.store(this.pos.getKey(), bestMove, toTable(bestScore, 0), d, TranspositionTable.EXACT, this.thread);
+
+            //The best move goes first in the next iteration (all the moves by score with several lines)
+            if (this.lines == 1) {
+                moveToFront(rootMoves, count, bestMove);
+            } else {
+                sortByScore(rootMoves, rootScores, count);
+            }
+            if (this.listener != null) {
+                this.listener.accept(analysis(d, rootMoves, rootScores, count, start));
+            }
+
+            //A found mate will not get better, and no new iteration starts after half the budget (the helper threads
+            //keep going until the main thread stops them)
+            if ((this.lines == 1 && Math.abs(bestScore) >= MATE_BOUND) || solved
+                    || (this.thread == 0 && System.nanoTime() > this.softDeadline)) {
+                break;
+            }
+        }
+        if (this.group != null) {
+            this.group.finished();
+        }
+        //The next search takes its own budget
+        this.deadline = 0L;
+        return new SearchResult(bestMove, bestScore, depth, this.nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Helper method, the alpha-beta search (negamax form: the score is always
+     * from the side to move, and the child scores are negated).
+     *
+     * @param depth - The remaining depth
+     * @param alpha - The score the side to move is already sure of
+     * @param beta - The score the opponent is already sure of
+     * @param ply - The distance from the root
+     * @return - The score of the position
+     */
+    private int alphaBeta(int depth, int alpha, int beta, int ply) {
+        //Read the clock from time to time only, it is slower than a move
+        if ((++this.nodes & CHECK_MASK) == 0 && System.nanoTime() >= this.deadline) {
+            this.stopped = true;
+        }
+        if (this.stopped) {
+            return 0;
+        }
+
+        //The fifty-move rule and a repeated position are draws
+        if (this.pos.getHalfmoveClock() >= 100 || this.pos.isRepetition()) {
+            return 0;
+        }
+        //An ending of the tablebase is not searched, its result is exact (a mate counts the plies from the root)
+        if (this.tablebase != null && BitboardLib.count(this.pos.occupied()) <= Tablebase.MAX_PIECES) {
+            int score = this.tablebase.probe(this.pos);
+            if (score != Tablebase.UNKNOWN) {
+                return score > 0 ? score - ply : score < 0 ? score + ply : 0;
+            }
+        }
+        if (depth <= 0 || ply >= MAX_DEPTH) {
+            return quiesce(alpha, beta, ply);
+        }
+
+        //A result of this position searched at least as deep can be used right away if its bound is good enough
+        long key = this.pos.getKey();
+        long entry = this.tt.probe(key, this.thread);
+        int hashMove = Move.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        //Null-move pruning: if passing the turn still gets beta from a shallower search, a real move would too. Not in
+        //check, not twice in a row, not near a mate, and not with Pawns only (where passing may be the only good move)
+        boolean inCheck = this.pos.isInCheck(this.pos.getSideToMove());
+        if (this.nullMove && !inCheck && depth >= NULL_MIN_DEPTH && this.pos.getLastMove() != Move.NONE
+                && Math.abs(beta) < MATE_BOUND && hasPieces()
+                && Evaluation.evaluate(this.pos, this.pawns, this.thread) >= beta) {
+            this.nullTries++;
+            this.pos.makeNullMove();
+            int score = -alphaBeta(depth - 1 - (depth >= NULL_DEEP ? 3 : 2), -beta, -beta + 1, ply + 1);
+            this.pos.unmakeNullMove();
+            if (this.stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                this.nullCutoffs++;
+                return beta;
+            }
+        }
+
+        int[] list = this.moves[ply];
+        int count = this.pos.generateMoves(list);
+        if (count == 0) {
+            //A closer mate is better for the winner, so the ply is part of the score
+            return inCheck ? -MATE + ply : 0;
+        }
+        int[] order = this.scores[ply];
+        scoreMoves(list, order, count, hashMove, ply);
+
+        int oldAlpha = alpha, best = -INFINITY, bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            pickMove(list, order, i, count);
+            int move = list[i];
+            boolean quiet = !isTactical(move);
+            this.pos.makeMove(move);
+            int score;
+            if (this.reductions && i >= LMR_MIN_INDEX && depth >= LMR_MIN_DEPTH && quiet && !inCheck
+                    && order[i] < KILLER_SCORE && !this.pos.isInCheck(this.pos.getSideToMove())) {
+                //Late-move reduction: a quiet move this far down the list is unlikely to be best, so it is first
+                //searched shallower with a null window, and again in full only if it beats alpha after all
+                this.reduced++;
+                score = -alphaBeta(depth - 1 - (i >= 8 && depth >= 5 ? 2 : 1), -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && !this.stopped) {
+                    this.researches++;
+                    score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1);
+                }
+            } else {
+                score = -alphaBeta(depth - 1, -beta, -alpha, ply + 1);
+            }
+            this.pos.unmakeMove();
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            updateQuiet(move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        //A stopped search returns a wrong score, which must not be stored
+        if (!this.stopped) {
+            int bound = best <= oldAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            this.tt.store(key, bestMove, toTable(best, ply), depth, bound, this.thread);
+        }
+        return best;
+    }
+
+    /**
+     * Helper method, the quiescence search at the leaves: only the captures
+     * (and Queen promotions) are searched until the position is quiet, so a
+     * leaf is never scored in the middle of an exchange. The side to move may
+     * also stop capturing (stand pat), so the static score is a lower bound.
+     * Captures that lose material by exchange are not searched. In check,
+     * every evasion is searched instead, since standing pat is not allowed.
+     *
+     * @param alpha - The score the side to move is already sure of
+     * @param beta - The score the opponent is already sure of
+     * @param ply - The distance from the root
+     * @return - The score of the position
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        if ((++this.nodes & CHECK_MASK) == 0 && System.nanoTime() >= this.deadline) {
+            this.stopped = true;
+        }
+        if (this.stopped) {
+            return 0;
+        }
+        if (ply >= MAX_DEPTH) {
+            return Evaluation.evaluate(this.pos, this.pawns, this.thread);
+        }
+
+        boolean inCheck = this.pos.isInCheck(this.pos.getSideToMove());
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = Evaluation.evaluate(this.pos, this.pawns, this.thread);
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+
+        int[] list = this.moves[ply], order = this.scores[ply];
+        int count = this.pos.generateMoves(list);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        //Keep the captures that do not lose material (every move in check), the best exchange first
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            if (inCheck) {
+                list[n] = move;
+                order[n++] = isTactical(move) ? this.exchange.see(this.pos, move) : 0;
+            } else if (isTactical(move) && (Move.promotion(move) == 0 || Move.promotion(move) == Position.QUEEN)) {
+                int see = this.exchange.see(this.pos, move);
+                if (see >= 0) {
+                    list[n] = move;
+                    order[n++] = see;
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            pickMove(list, order, i, n);
+            this.pos.makeMove(list[i]);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            this.pos.unmakeMove();
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Helper method, convert a score for the transposition table. A mate score
+     * counts the plies from the root, but the same position can be reached at
+     * another ply, so the table keeps the plies from the position itself.
+     *
+     * @param score - The score seen from the root
+     * @param ply - The distance from the root
+     * @return - The score to store
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        return score <= -MATE_BOUND ? score - ply : score;
+    }
+
+    /**
+     * Helper method, convert a score read from the transposition table back
+     * to a score seen from the root (the reverse of toTable).
+     *
+     * @param score - The stored score
+     * @param ply - The distance from the root
+     * @return - The score seen from the root
+     */
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        return score <= -MATE_BOUND ? score + ply : score;
+    }
+
+    /**
+     * Helper method, find the score a root move must beat to be one of the
+     * best lines: the lowest score of the best lines among the moves searched
+     * so far, or -INFINITY while there are fewer moves than lines.
+     *
+     * @param rootScores - The scores of the root moves searched so far
+     * @param searched - The number of them
+     * @return - The score to beat
+     */
+    private int lowestOfBest(int[] rootScores, int searched) {
+        if (searched < this.lines) {
+            return -INFINITY;
+        }
+        //The number of scores above a score tells its place, the lines-th best has fewer than lines above it
+        int lowest = INFINITY;
+        for (int i = 0; i < searched; i++) {
+            int above = 0;
+            for (int j = 0; j < searched; j++) {
+                if (rootScores[j] > rootScores[i]) {
+                    above++;
+                }
+            }
+            if (above < this.lines) {
+                lowest = Math.min(lowest, rootScores[i]);
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Helper method, sort the root moves by their scores, best first, keeping
+     * the order of equal scores (insertion sort, the list is nearly sorted
+     * from the last iteration).
+     *
+     * @param list - The root moves
+     * @param rootScores - Their scores
+     * @param count - The number of moves
+     */
+    private static void sortByScore(int[] list, int[] rootScores, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = list[i], score = rootScores[i], j = i - 1;
+            for (; j >= 0 && rootScores[j] < score; j--) {
+                list[j + 1] = list[j];
+                rootScores[j + 1] = rootScores[j];
+            }
+            list[j + 1] = move;
+            rootScores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Helper method, make the snapshot of the best lines after an iteration,
+     * the root moves being sorted by score. The rest of each line is read
+     * from the transposition table, from move to move, as long as the stored
+     * move is legal and no position repeats.
+     *
+     * @param depth - The depth of the iteration
+     * @param list - The sorted root moves
+     * @param rootScores - Their scores
+     * @param count - The number of moves
+     * @param start - The time (System.nanoTime) the search started
+     * @return - The analysis
+     */
+    private Analysis analysis(int depth, int[] list, int[] rootScores, int count, long start) {
+        int shown = Math.min(this.lines, count);
+        int[][] variations = new int[shown][];
+        for (int k = 0; k < shown; k++) {
+            int[] line = new int[depth];
+            int length = 0;
+            line[length++] = list[k];
+            this.pos.makeMove(list[k]);
+            while (length < depth && !this.pos.isRepetition()) {
+                long entry = this.tt.probe(this.pos.getKey(), this.thread);
+                int move = entry != 0 ? TranspositionTable.move(entry) : Move.NONE;
+                //The move buffers of the plies after the root are free between iterations
+                int[] legal = this.moves[length];
+                int legalCount = this.pos.generateMoves(legal);
+                boolean found = false;
+                for (int i = 0; i < legalCount && !found; i++) {
+                    found = legal[i] == move;
+                }
+                if (!found) {
+                    break;
+                }
+                line[length++] = move;
+                this.pos.makeMove(move);
+            }
+            for (int i = 0; i < length; i++) {
+                this.pos.unmakeMove();
+            }
+            variations[k] = Arrays.copyOf(line, length);
+        }
+        return new Analysis(depth, this.nodes, System.nanoTime() - start, this.pos.getSideToMove(),
+                Arrays.copyOf(rootScores, shown), variations);
+    }
+
+    /**
+     * Helper method, move one move to the front of the list, keeping the order
+     * of the others. Nothing happens if the move is not in the list.
+     *
+     * @param list - The moves
+     * @param count - The number of moves
+     * @param move - The move to put first
+     */
+    private static void moveToFront(int[] list, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (list[i] == move) {
+                System.arraycopy(list, 0, list, 1, i);
+                list[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Helper method, check if the side to move has a piece other than its
+     * King and Pawns.
+     *
+     * @return - The boolean value, true if it has a Rook, Knight, Bishop or
+     * Queen
+     */
+    private boolean hasPieces() {
+        int color = this.pos.getSideToMove();
+        return (this.pos.pieces(color) & ~this.pos.pieces(color, Position.PAWN) & ~this.pos.pieces(color, Position.KING)) != 0;
+    }
+
+    /**
+     * Helper method, check if a move captures or promotes.
+     *
+     * @param move - The packed move
+     * @return - The boolean value, true for a capture (en passant included) or
+     * a promotion
+     */
+    private boolean isTactical(int move) {
+        return this.pos.pieceAt(Move.to(move)) != Position.EMPTY || Move.promotion(move) != 0 || Move.isEnPassant(move);
+    }
+
+    /**
+     * Helper method, give each move its ordering score (see HASH_SCORE). A
+     * move of the table is only played if the generator made it too, so a
+     * wrong table move can do no harm.
+     *
+     * @param list - The moves
+     * @param order - The scores to fill
+     * @param count - The number of moves
+     * @param hashMove - The move of the transposition table, or Move.NONE
+     * @param ply - The distance from the root, for the killer moves
+     */
+    private void scoreMoves(int[] list, int[] order, int count, int hashMove, int ply) {
+        if (!this.ordering) {
+            //All the same score: pickMove keeps the order of the generator
+            Arrays.fill(order, 0, count, 0);
+            return;
+        }
+        int color = this.pos.getSideToMove();
+        int[] killer = this.killers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            if (move == hashMove) {
+                order[i] = HASH_SCORE;
+            } else if (isTactical(move)) {
+                //The exchange only decides whether the capture loses material, MVV-LVA orders the others
+                int see = this.exchange.see(this.pos, move);
+                order[i] = see >= 0 ? GOOD_CAPTURE_SCORE + mvvLva(move) : see;
+            } else if (move == killer[0]) {
+                order[i] = KILLER_SCORE + 1;
+            } else if (move == killer[1]) {
+                order[i] = KILLER_SCORE;
+            } else {
+                order[i] = this.history[color][Move.from(move)][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Helper method, score a capture by the most valuable victim, then the
+     * least valuable attacker: taking a Queen with a Pawn comes first, taking
+     * a Pawn with a Queen last. A promotion counts as taking the new piece.
+     *
+     * @param move - The packed move, a capture or a promotion
+     * @return - The MVV-LVA score, between 0 and 127
+     */
+    private int mvvLva(int move) {
+        int target = this.pos.pieceAt(Move.to(move));
+        int victim = Move.isEnPassant(move) ? WORTH[Position.PAWN] : target == Position.EMPTY ? 0 : WORTH[Position.rankOf(target)];
+        if (Move.promotion(move) != 0) {
+            victim += WORTH[Move.promotion(move)];
+        }
+        return victim * 8 - WORTH[Position.rankOf(this.pos.pieceAt(Move.from(move)))] + 7;
+    }
+
+    /**
+     * Helper method, remember a quiet move that caused a cutoff: it becomes
+     * the first killer move of its ply, and its history score grows with the
+     * square of the depth (a cutoff near the root saves more).
+     *
+     * @param move - The packed move
+     * @param depth - The remaining depth of the cutoff
+     * @param ply - The distance from the root
+     */
+    private void updateQuiet(int move, int depth, int ply) {
+        int[] killer = this.killers[ply];
+        if (killer[0] != move) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+        int[][] table = this.history[this.pos.getSideToMove()];
+        int score = table[Move.from(move)][Move.to(move)] += depth * depth;
+        if (score >= HISTORY_MAX) {
+            //Halve everything, the old cutoffs count less than the new ones
+            for (int[] from : table) {
+                for (int to = 0; to < 64; to++) {
+                    from[to] >>= 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method, bring the best scored of the remaining moves to index i.
+     * Moves are picked one at a time instead of sorting the whole list, since
+     * a cutoff often comes after the first few.
+     *
+     * @param list - The moves
+     * @param order - The scores of the moves
+     * @param i - The index to fill
+     * @param count - The number of moves
+     */
+    private static void pickMove(int[] list, int[] order, int i, int count) {
+        int best = i;
+        for (int j = i + 1; j < count; j++) {
+            if (order[j] > order[best]) {
+                best = j;
+            }
+        }
+        if (best != i) {
+            int move = list[i], score = order[i];
+            list[i] = list[best];
+            order[i] = order[best];
+            list[best] = move;
+            order[best] = score;
+        }
+    }
+
+    /**
+     * Getter method of 'nodes' field.
+     *
+     * @return - The number of positions visited so far
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Getter method of 'nullTries' field.
+     *
+     * @return - The number of null moves tried in the last search
+     */
+    public long getNullTries() {
+        return nullTries;
+    }
+
+    /**
+     * Getter method of 'nullCutoffs' field.
+     *
+     * @return - The number of null moves that caused a cutoff in the last
+     * search
+     */
+    public long getNullCutoffs() {
+        return nullCutoffs;
+    }
+
+    /**
+     * Getter method of 'reduced' field.
+     *
+     * @return - The number of moves searched with a reduced depth in the last
+     * search
+     */
+    public long getReduced() {
+        return reduced;
+    }
+
+    /**
+     * Getter method of 'researches' field.
+     *
+     * @return - The number of reduced moves searched again to the full depth
+     * in the last search
+     */
+    public long getResearches() {
+        return researches;
+    }
+}
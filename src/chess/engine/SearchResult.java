@@ -0,0 +1,146 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Move;
+
+/**
+ * The SearchResult class, the outcome of one search: the move to play, its
+ * score and the figures needed to size the hardware (depth reached, nodes and
+ * nodes per second).
+ *
+ * @author Asus
+ */
+public class SearchResult {
+
+    //The best move found, Move.NONE if the side to move has no legal move
+    private final int bestMove;
+    //The score of the best move in centipawns, from the side to move
+    private final int score;
+    //The last depth that was searched completely
+    private final int depth;
+    //The number of positions visited
+    private final long nodes;
+    //The time spent, in nanoseconds
+    private final long nanos;
+    //The flag telling the move comes from the opening book, not from a search
+    private final boolean book;
+
+    /**
+     * Constructor of class SearchResult.
+     *
+     * @param bestMove - The best move found
+     * @param score - The score of the best move
+     * @param depth - The last completed depth
+     * @param nodes - The number of positions visited
+     * @param nanos - The time spent in nanoseconds
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long nanos) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.book = false;
+    }
+
+    /**
+     * Constructor of class SearchResult, for a move of the opening book.
+     *
+     * @param bookMove - The move of the book
+     * @param nanos - The time spent in nanoseconds
+     */
+    public SearchResult(int bookMove, long nanos) {
+        this.bestMove = bookMove;
+        this.score = 0;
+        this.depth = 0;
+        this.nodes = 0;
+        this.nanos = nanos;
+        this.book = true;
+    }
+
+    /**
+     * Getter method of 'bestMove' field.
+     *
+     * @return - The packed best move
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Getter method of 'score' field.
+     *
+     * @return - The score in centipawns
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Getter method of 'depth' field.
+     *
+     * @return - The last completed depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Getter method of 'nodes' field.
+     *
+     * @return - The number of positions visited
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Getter method of 'nanos' field.
+     *
+     * @return - The elapsed time in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Method for getting the time spent in milliseconds.
+     *
+     * @return - The elapsed time in milliseconds
+     */
+    public long getMillis() {
+        return nanos / 1_000_000L;
+    }
+
+    /**
+     * Method for getting the search speed.
+     *
+     * @return - The number of nodes per second
+     */
+    public long getNps() {
+        return nanos == 0 ? 0 : (long) (nodes * 1e9 / nanos);
+    }
+
+    /**
+     * Getter method of 'book' field.
+     *
+     * @return - The boolean value, true if the move comes from the opening
+     * book
+     */
+    public boolean isBook() {
+        return book;
+    }
+
+    @Override
+    public String toString() {
+        if (this.book) {
+            return String.format("move %s from the book", Move.toString(bestMove));
+        }
+        return String.format("move %s, score %d, depth %d, %d nodes in %d ms (%d nps)",
+                bestMove == Move.NONE ? "none" : Move.toString(bestMove), score, depth, nodes, getMillis(), getNps());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import chess.util.BitboardLib;
+
+/**
+ * The StaticExchange class, the static exchange evaluation (SEE): the material
+ * won or lost by a capture once both sides have recaptured on the square with
+ * their least valuable pieces, each side stopping when going on would lose.
+ * It is computed from the attackers of the square (the same attack lookup as
+ * the check test), without making any move, so it is cheap enough to decide
+ * for every capture whether it is worth searching. Each search thread has its
+ * own instance, which holds the scratch list of the exchange.
+ *
+ * @author Asus
+ */
+public class StaticExchange {
+
+    //The value of each Rank for exchanges, the King is worth more than everything so it is never traded
+    private static final int[] VALUES = {100, 500, 320, 330, 900, 20000};
+    //The Ranks from the least to the most valuable, the order the attackers join the exchange
+    private static final int[] ORDER = {Position.PAWN, Position.KNIGHT, Position.BISHOP, Position.ROOK, Position.QUEEN, Position.KING};
+
+    //The gain after each capture of the exchange, allocated once
+    private final int[] gain;
+
+    /**
+     * Constructor of class StaticExchange.
+     */
+    public StaticExchange() {
+        //32 captures is more than the pieces that can attack one square
+        this.gain = new int[32];
+    }
+
+    /**
+     * Method for getting the exchange value of a Rank.
+     *
+     * @param rank - The Rank ordinal
+     * @return - The value in centipawns
+     */
+    public static int value(int rank) {
+        return VALUES[rank];
+    }
+
+    /**
+     * Method for evaluating the exchange started by a move. Pins are not
+     * looked at, so a pinned piece may take part in the exchange.
+     *
+     * @param pos - The position, the move must be legal for the side to move
+     * @param move - The packed move (usually a capture)
+     * @return - The material the side to move wins (negative if it loses)
+     */
+    public int see(Position pos, int move) {
+        /*
+         * Algorithm explain (the swap list):
+         * 1. gain[0] is what the move takes. Then each side in turn takes back on the square with its least valuable
+         * attacker, and gain[d] is what the capture d wins minus what the side got so far
+         * 2. Taking a piece away from the occupancy can open a ray for a Rook, Bishop or Queen behind it, so the
+         * sliders attacking through the square are looked up again
+         * 3. Going back from the end, each side either makes its capture or stops, whichever is better for it
+         */
+        int from = Move.from(move), to = Move.to(move);
+        int[] gain = this.gain;
+        int moving = Position.rankOf(pos.pieceAt(from));
+        int target = pos.pieceAt(to);
+        long occupied = pos.occupied() ^ BitboardLib.bit(from);
+
+        //1. The first capture (en passant takes a Pawn that is not on the square, a promotion also wins material)
+        if (Move.isEnPassant(move)) {
+            gain[0] = VALUES[Position.PAWN];
+            occupied ^= BitboardLib.bit(BitboardLib.square(BitboardLib.row(from), BitboardLib.col(to)));
+        } else {
+            gain[0] = target == Position.EMPTY ? 0 : VALUES[Position.rankOf(target)];
+        }
+        int onSquare = VALUES[moving];
+        if (Move.promotion(move) != 0) {
+            gain[0] += VALUES[Move.promotion(move)] - VALUES[Position.PAWN];
+            onSquare = VALUES[Move.promotion(move)];
+        }
+
+        long rooks = pos.pieces(Position.WHITE, Position.ROOK) | pos.pieces(Position.BLACK, Position.ROOK)
+                | pos.pieces(Position.WHITE, Position.QUEEN) | pos.pieces(Position.BLACK, Position.QUEEN);
+        long bishops = pos.pieces(Position.WHITE, Position.BISHOP) | pos.pieces(Position.BLACK, Position.BISHOP)
+                | pos.pieces(Position.WHITE, Position.QUEEN) | pos.pieces(Position.BLACK, Position.QUEEN);
+        long attackers = pos.attackersTo(to, occupied) & occupied;
+        int side = pos.getSideToMove() ^ 1;
+        int d = 0;
+        while (true) {
+            //The least valuable attacker of the side to capture
+            long own = attackers & pos.pieces(side);
+            if (own == 0) {
+                break;
+            }
+            int rank = -1;
+            long attacker = 0L;
+            for (int r : ORDER) {
+                attacker = own & pos.pieces(side, r);
+                if (attacker != 0) {
+                    rank = r;
+                    break;
+                }
+            }
+            d++;
+            gain[d] = onSquare - gain[d - 1];
+            //This capture loses even if nothing takes back (and stopping loses too), so the side stops before it
+            if (Math.max(-gain[d - 1], gain[d]) < 0 || d == gain.length - 1) {
+                d--;
+                break;
+            }
+            onSquare = VALUES[rank];
+
+            //2. The attacker leaves its square, a slider behind it may now see the target
+            occupied ^= attacker & -attacker;
+            if (rank == Position.PAWN || rank == Position.BISHOP || rank == Position.QUEEN) {
+                attackers |= BitboardLib.bishopAttacks(to, occupied) & bishops;
+            }
+            if (rank == Position.ROOK || rank == Position.QUEEN) {
+                attackers |= BitboardLib.rookAttacks(to, occupied) & rooks;
+            }
+            attackers &= occupied;
+            side ^= 1;
+        }
+
+        //3. Each side picks the better of making its capture or stopping
+        for (; d > 0; d--) {
+            gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+        }
+        return gain[0];
+    }
+}
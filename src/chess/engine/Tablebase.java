@@ -0,0 +1,270 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Position;
+import chess.util.BitboardLib;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Tablebase class, the exact results of the small endings where one side
+ * has only its King: KQK, KRK, KPK and KBNK. For every position of an ending,
+ * the table knows whether the stronger side mates and in how many plies, so
+ * such a position needs no search at all. The tables are made by
+ * chess.tools.TablebaseGenerator.
+ *
+ * A table is written as if WHITE were the stronger side; a position where
+ * BLACK is stronger is looked up with the board turned upside down and the
+ * colors swapped. The position index is made of 6 bits per square: the side
+ * to move (1 = the stronger side), the stronger King, the lone King, then the
+ * other pieces in the order of PIECES. Each index holds a code of a few bits
+ * (the same width in the whole file): 0 for a draw (or a position that cannot
+ * happen), else the number of plies to the mate plus 1, the mate being always
+ * given by the stronger side.
+ *
+ * The files are mapped into memory, not read, so opening them costs nothing
+ * and a lookup only touches the page of its code.
+ *
+ * @author Asus
+ */
+public class Tablebase {
+
+    //The largest number of pieces (the Kings included) of a position in a table
+    public static final int MAX_PIECES = 4;
+    //The result of a position that no table holds
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    //The endings, and the Ranks of the pieces of the stronger side beside its King
+    public static final String[] NAMES = {"KQK", "KRK", "KPK", "KBNK"};
+    public static final int[][] PIECES = {{Position.QUEEN}, {Position.ROOK}, {Position.PAWN},
+        {Position.BISHOP, Position.KNIGHT}};
+    //The file layout: the magic number ("CTB1"), the code width in bits, the number of codes, then the codes
+    public static final int MAGIC = 0x43544231, HEADER_BYTES = 16;
+
+    //The mapped file of each ending, null if it is missing
+    private final MappedByteBuffer[] tables;
+    //The code width of each ending
+    private final int[] widths;
+    //The lookups that found a position and those that did not
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructor of class Tablebase, map the table files found in a
+     * directory (named like the endings, kqk.tb...). Missing files are
+     * skipped.
+     *
+     * @param dir - The directory of the table files
+     * @throws IOException - If a file cannot be read, throws IOException
+     * @throws IllegalArgumentException - If a file is not a table of its
+     * ending, throws IllegalArgumentException
+     */
+    public Tablebase(Path dir) throws IOException, IllegalArgumentException {
+        this.tables = new MappedByteBuffer[NAMES.length];
+        this.widths = new int[NAMES.length];
+        for (int t = 0; t < NAMES.length; t++) {
+            Path path = dir.resolve(fileName(t));
+            if (!Files.isRegularFile(path)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                //The mapping stays valid after the channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int width = buffer.getInt(4);
+                if (buffer.getInt(0) != MAGIC || width < 1 || width > 8 || buffer.getLong(8) != size(t)
+                        || channel.size() != bytes(size(t), width)) {
+                    throw new IllegalArgumentException("Not a " + NAMES[t] + " table: " + path);
+                }
+                this.tables[t] = buffer;
+                this.widths[t] = width;
+            }
+        }
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Method for getting the file name of an ending.
+     *
+     * @param table - The index of the ending in NAMES
+     * @return - The file name
+     */
+    public static String fileName(int table) {
+        return NAMES[table].toLowerCase() + ".tb";
+    }
+
+    /**
+     * Method for getting the number of positions (indexes) of an ending.
+     *
+     * @param table - The index of the ending in NAMES
+     * @return - The number of positions
+     */
+    public static int size(int table) {
+        return 2 << (6 * (PIECES[table].length + 2));
+    }
+
+    /**
+     * Method for getting the size of a table file.
+     *
+     * @param size - The number of codes
+     * @param width - The code width in bits
+     * @return - The size in bytes (the header, the codes and one spare byte,
+     * so a code can always be read as two bytes)
+     */
+    public static long bytes(long size, int width) {
+        return HEADER_BYTES + (size * width + 7) / 8 + 1;
+    }
+
+    /**
+     * Method for writing a code into the packed codes of a table (the bytes
+     * after the header).
+     *
+     * @param packed - The packed codes
+     * @param width - The code width in bits
+     * @param index - The position index
+     * @param code - The code, it must fit in the width
+     */
+    public static void write(byte[] packed, int width, int index, int code) {
+        long bit = (long) index * width;
+        int at = (int) (bit >>> 3), value = code << (int) (bit & 7);
+        packed[at] |= value;
+        packed[at + 1] |= value >>> 8;
+    }
+
+    /**
+     * Helper method, read a code from a mapped table.
+     *
+     * @param buffer - The mapped table
+     * @param width - The code width in bits
+     * @param index - The position index
+     * @return - The code
+     */
+    private static int read(MappedByteBuffer buffer, int width, int index) {
+        long bit = (long) index * width;
+        int at = HEADER_BYTES + (int) (bit >>> 3);
+        int value = (buffer.get(at) & 0xFF) | (buffer.get(at + 1) & 0xFF) << 8;
+        return (value >>> (int) (bit & 7)) & ((1 << width) - 1);
+    }
+
+    /**
+     * Method for finding the ending of a position.
+     *
+     * @param pos - The position
+     * @return - The index of the ending in NAMES, or -1 if the position is
+     * not one of them
+     */
+    public static int tableOf(Position pos) {
+        int pieces = BitboardLib.count(pos.occupied());
+        if (pieces < 3 || pieces > MAX_PIECES || pos.getCastlingRights() != 0) {
+            return -1;
+        }
+        int strong = BitboardLib.count(pos.pieces(Position.WHITE)) > 1 ? Position.WHITE : Position.BLACK;
+        if (BitboardLib.count(pos.pieces(1 - strong)) != 1) {
+            return -1;
+        }
+        for (int t = 0; t < NAMES.length; t++) {
+            //The Ranks of an ending are all different, so one piece of each is the whole material
+            boolean found = PIECES[t].length == pieces - 2;
+            for (int i = 0; i < PIECES[t].length && found; i++) {
+                found = pos.pieces(strong, PIECES[t][i]) != 0;
+            }
+            if (found) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method for calculating the index of a position in the table of its
+     * ending (see tableOf).
+     *
+     * @param pos - The position
+     * @param table - The index of its ending in NAMES
+     * @return - The position index
+     */
+    public static int indexOf(Position pos, int table) {
+        int strong = BitboardLib.count(pos.pieces(Position.WHITE)) > 1 ? Position.WHITE : Position.BLACK;
+        //With BLACK stronger, the board is turned upside down (row 0 becomes row 7)
+        int flip = strong == Position.WHITE ? 0 : 56;
+        int index = pos.getSideToMove() == strong ? 1 : 0;
+        index = (index << 6) | (BitboardLib.first(pos.pieces(strong, Position.KING)) ^ flip);
+        index = (index << 6) | (BitboardLib.first(pos.pieces(1 - strong, Position.KING)) ^ flip);
+        for (int rank : PIECES[table]) {
+            index = (index << 6) | (BitboardLib.first(pos.pieces(strong, rank)) ^ flip);
+        }
+        return index;
+    }
+
+    /**
+     * Method for looking up a position.
+     *
+     * @param pos - The position
+     * @return - The score from the side to move, as the search counts it:
+     * MATE minus the plies to the mate for a win, the opposite for a loss, 0
+     * for a draw, or UNKNOWN if no table holds the position
+     */
+    public int probe(Position pos) {
+        int table = tableOf(pos);
+        if (table < 0 || this.tables[table] == null) {
+            this.misses.increment();
+            return UNKNOWN;
+        }
+        this.hits.increment();
+        int code = read(this.tables[table], this.widths[table], indexOf(pos, table));
+        if (code == 0) {
+            return 0;
+        }
+        //Only the stronger side can mate, the first bit of the index tells whether it is the side to move
+        int plies = code - 1;
+        boolean strongToMove = BitboardLib.count(pos.pieces(pos.getSideToMove())) > 1;
+        return strongToMove ? Search.MATE - plies : -Search.MATE + plies;
+    }
+
+    /**
+     * Method for checking whether the table of an ending is loaded.
+     *
+     * @param table - The index of the ending in NAMES
+     * @return - True if the table is loaded, false otherwise
+     */
+    public boolean has(int table) {
+        return this.tables[table] != null;
+    }
+
+    /**
+     * Method for getting the number of lookups that found a position.
+     *
+     * @return - The number of hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * Method for getting the number of lookups that found no table.
+     *
+     * @return - The number of misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder loaded = new StringBuilder();
+        for (int t = 0; t < NAMES.length; t++) {
+            if (has(t)) {
+                loaded.append(loaded.length() == 0 ? "" : " ").append(NAMES[t]);
+            }
+        }
+        return String.format("%s, %d hits, %d misses", loaded.length() == 0 ? "no tables" : loaded, getHits(), getMisses());
+    }
+}
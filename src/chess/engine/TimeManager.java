@@ -0,0 +1,111 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Move;
+import chess.chessboard.PieceSquare;
+import chess.chessboard.Position;
+
+/**
+ * The TimeManager class, which plans the time of one move of the computer
+ * playing with a clock. It gives two limits to the search: the soft limit,
+ * after which no new iteration starts, and the hard limit, at which the
+ * search stops in the middle of an iteration.
+ *
+ * The time of a move is the time left shared between the moves still to play
+ * (fewer as the material comes off the board), plus most of the increment.
+ * It is then stretched or shrunk by the complexity of the position: many
+ * legal moves and many captures mean more to calculate, a single legal move
+ * is played at once. The hard limit leaves room for an iteration that
+ * overruns, but never takes more than a share of the clock, and a margin is
+ * always kept for the time between the search and the press of the clock.
+ *
+ * @author Asus
+ */
+public class TimeManager {
+
+    //The moves still to play assumed with all the pieces on the board, and with none of them
+    private static final int MOVES_TO_GO_OPENING = 35, MOVES_TO_GO_ENDING = 15;
+    //The time kept back for playing the move and pressing the clock, in milliseconds
+    private static final long OVERHEAD_MS = 50L;
+    //The shortest limit, in milliseconds
+    private static final long MIN_MS = 5L;
+    //The hard limit is this many times the soft limit, and at most this share of the time left
+    private static final int HARD_FACTOR = 4;
+    private static final double MAX_SHARE = 0.3;
+    //The bounds of the complexity factor
+    private static final double MIN_COMPLEXITY = 0.6, MAX_COMPLEXITY = 1.6;
+
+    //The limits, in milliseconds
+    private final long softMs;
+    private final long hardMs;
+
+    /**
+     * Constructor of class TimeManager, plan the time of one move.
+     *
+     * @param pos - The position to move in
+     * @param remainingMs - The time left on the clock of the side to move, in
+     * milliseconds
+     * @param incrementMs - The increment (or delay) per move, in milliseconds
+     * @throws IllegalArgumentException - If a time is negative, throws
+     * IllegalArgumentException
+     */
+    public TimeManager(Position pos, long remainingMs, long incrementMs) throws IllegalArgumentException {
+        if (remainingMs < 0 || incrementMs < 0) {
+            throw new IllegalArgumentException("The times must not be negative");
+        }
+        long available = Math.max(MIN_MS, remainingMs - OVERHEAD_MS);
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = pos.generateMoves(moves);
+        if (count <= 1) {
+            //Nothing to choose
+            this.softMs = MIN_MS;
+            this.hardMs = MIN_MS;
+            return;
+        }
+
+        //The share of the time left, the increment comes back after the move
+        int phase = Math.min(pos.getPhase(), PieceSquare.MAX_PHASE);
+        int movesToGo = MOVES_TO_GO_ENDING + (MOVES_TO_GO_OPENING - MOVES_TO_GO_ENDING) * phase / PieceSquare.MAX_PHASE;
+        double base = (double) available / movesToGo + incrementMs * 0.75;
+
+        //The complexity: a typical position has about 35 legal moves and a few captures
+        int captures = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos.pieceAt(Move.to(moves[i])) != Position.EMPTY) {
+                captures++;
+            }
+        }
+        double complexity = Math.max(MIN_COMPLEXITY, Math.min(MAX_COMPLEXITY, 0.55 + count / 70.0 + captures / 20.0));
+
+        long hard = Math.max(MIN_MS, Math.min((long) (base * complexity * HARD_FACTOR), (long) (available * MAX_SHARE)));
+        this.softMs = Math.max(MIN_MS, Math.min((long) (base * complexity), hard));
+        this.hardMs = Math.min(Math.max(hard, this.softMs), available);
+    }
+
+    /**
+     * Getter method of 'softMs' field.
+     *
+     * @return - The time after which no new iteration starts, in milliseconds
+     */
+    public long getSoftMs() {
+        return softMs;
+    }
+
+    /**
+     * Getter method of 'hardMs' field.
+     *
+     * @return - The time at which the search stops, in milliseconds
+     */
+    public long getHardMs() {
+        return hardMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("soft %d ms, hard %d ms", this.softMs, this.hardMs);
+    }
+}
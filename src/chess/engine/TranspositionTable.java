@@ -0,0 +1,316 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.engine;
+
+import chess.chessboard.Move;
+import java.util.Arrays;
+
+/**
+ * The TranspositionTable class, which remembers the result of the positions
+ * already searched, by their Zobrist key. The same position is often reached
+ * by different move orders; with the table its score (or at least its best
+ * move) is found again instead of being searched in full.
+ *
+ * The table is one preallocated long[]. It is split in buckets of two
+ * entries, and each entry is two longs: the key and the packed data. The
+ * first entry of a bucket keeps the deepest result (a shallow result only
+ * replaces it if it comes from an older search), the second entry always
+ * takes the newest result. The key is stored XORed with the data, so an entry
+ * torn by two threads writing at the same time just does not match any key.
+ * That is all the safety the parallel search needs: the threads share one
+ * table without any lock, and each thread counts its statistics in its own
+ * cache line.
+ *
+ * @author Asus
+ */
+public class TranspositionTable {
+
+    //The kind of score stored: exact, at least (the search failed high) or at most (it failed low)
+    public static final int EXACT = 1, LOWER = 2, UPPER = 3;
+    //The largest table, so the array length stays below the limit of Java arrays
+    public static final int MAX_MEGABYTES = 8192;
+
+    //The layout of the data long: move (17 bits), score (16), depth (8), bound (2), age (6)
+    private static final int SCORE_SHIFT = 17, DEPTH_SHIFT = 33, BOUND_SHIFT = 41, AGE_SHIFT = 43;
+    //The largest number of threads sharing a table
+    public static final int MAX_THREADS = 256;
+
+    //The size of a bucket in longs (two entries of key and data)
+    private static final int BUCKET_LONGS = 4;
+    //The statistics of each thread: probes, hits, collisions, stores, overwrites, padded to 128 bytes
+    private static final int PROBES = 0, HITS = 1, COLLISIONS = 2, STORES = 3, OVERWRITES = 4, STRIDE = 16;
+
+    //The entries: key ^ data, data, key ^ data, data for each bucket
+    private final long[] table;
+    //The mask giving the bucket index from a key
+    private final int mask;
+    //The age of the current search, an entry of an older search can always be replaced
+    private int age;
+
+    //The statistics counted by each thread (see the indexes above)
+    private final long[] counters;
+
+    /**
+     * Constructor of class TranspositionTable.
+     *
+     * @param megabytes - The size of the table in megabytes, rounded down to
+     * a power of 2
+     * @throws IllegalArgumentException - If the size is not between 1 and
+     * MAX_MEGABYTES, throws IllegalArgumentException
+     */
+    public TranspositionTable(int megabytes) throws IllegalArgumentException {
+        if (megabytes < 1 || megabytes > MAX_MEGABYTES) {
+            throw new IllegalArgumentException("The table size must be between 1 and " + MAX_MEGABYTES + " MB");
+        }
+        int buckets = Integer.highestOneBit((int) ((megabytes * 1024L * 1024L) / (BUCKET_LONGS * 8)));
+        this.table = new long[buckets * BUCKET_LONGS];
+        this.mask = buckets - 1;
+        this.age = 0;
+        this.counters = new long[MAX_THREADS * STRIDE];
+    }
+
+    /**
+     * Method for starting a new search: the entries written so far become old
+     * and can be replaced first.
+     */
+    public void newSearch() {
+        this.age = (this.age + 1) & 63;
+    }
+
+    /**
+     * Method for emptying the table and resetting the statistics.
+     */
+    public void clear() {
+        Arrays.fill(this.table, 0L);
+        this.age = 0;
+        Arrays.fill(this.counters, 0L);
+    }
+
+    /**
+     * Method for looking up a position.
+     *
+     * @param key - The Zobrist key of the position
+     * @param thread - The index of the calling thread (0 to MAX_THREADS - 1),
+     * for the statistics
+     * @return - The packed data of the entry (read it with move, score, depth
+     * and bound), or 0 if the position is not in the table
+     */
+    public long probe(long key, int thread) {
+        int index = ((int) key & this.mask) * BUCKET_LONGS;
+        int counter = thread * STRIDE;
+        this.counters[counter + PROBES]++;
+        for (int i = index; i < index + BUCKET_LONGS; i += 2) {
+            long data = this.table[i + 1];
+            if ((this.table[i] ^ data) == key && data != 0) {
+                this.counters[counter + HITS]++;
+                return data;
+            }
+        }
+        if (this.table[index + 1] != 0 || this.table[index + 3] != 0) {
+            //The bucket is used by other positions sharing the same index
+            this.counters[counter + COLLISIONS]++;
+        }
+        return 0L;
+    }
+
+    /**
+     * Method for storing the result of a search.
+     *
+     * @param key - The Zobrist key of the position
+     * @param move - The best move found, or Move.NONE
+     * @param score - The score, between -Search.INFINITY and Search.INFINITY
+     * @param depth - The depth searched (0 to 255)
+     * @param bound - The kind of score (EXACT, LOWER or UPPER)
+     * @param thread - The index of the calling thread (0 to MAX_THREADS - 1),
+     * for the statistics
+     */
+    public void store(long key, int move, int score, int depth, int bound, int thread) {
+        int index = ((int) key & this.mask) * BUCKET_LONGS;
+        long deepData = this.table[index + 1];
+        boolean deepSame = (this.table[index] ^ deepData) == key;
+        long newData = this.table[index + 3];
+        boolean newSame = (this.table[index + 2] ^ newData) == key;
+
+        //A search that found no move keeps the move found earlier for the same position
+        if (move == Move.NONE) {
+            move = deepSame ? move(deepData) : newSame ? move(newData) : Move.NONE;
+        }
+        long data = (move & 0x1FFFFL) | ((long) (score & 0xFFFF) << SCORE_SHIFT) | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT) | ((long) this.age << AGE_SHIFT);
+        int counter = thread * STRIDE;
+        this.counters[counter + STORES]++;
+
+        //The deep entry takes the result if it is at least as deep, or if the entry is from an older search.
+        //Otherwise (or for a shallower result of the same position) the other entry takes it
+        int slot = index + 2;
+        if (deepData == 0 || age(deepData) != this.age || depth >= depth(deepData)) {
+            slot = index;
+        }
+        boolean same = slot == index ? deepSame : newSame;
+        if (this.table[slot + 1] != 0 && !same) {
+            this.counters[counter + OVERWRITES]++;
+        }
+        if (slot == index && newSame) {
+            //The position moves to the deep entry, its old copy is dropped
+            this.table[index + 2] = this.table[index + 3] = 0L;
+        }
+        this.table[slot] = key ^ data;
+        this.table[slot + 1] = data;
+    }
+
+    /**
+     * Method for reading the move of an entry.
+     *
+     * @param data - The packed data returned by probe
+     * @return - The packed move
+     */
+    public static int move(long data) {
+        return (int) (data & 0x1FFFFL);
+    }
+
+    /**
+     * Method for reading the score of an entry.
+     *
+     * @param data - The packed data returned by probe
+     * @return - The score
+     */
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    /**
+     * Method for reading the depth of an entry.
+     *
+     * @param data - The packed data returned by probe
+     * @return - The depth searched
+     */
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    /**
+     * Method for reading the kind of score of an entry.
+     *
+     * @param data - The packed data returned by probe
+     * @return - EXACT, LOWER or UPPER
+     */
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 3;
+    }
+
+    /**
+     * Helper method, read the age of an entry.
+     *
+     * @param data - The packed data
+     * @return - The age of the search that wrote it
+     */
+    private static int age(long data) {
+        return (int) (data >>> AGE_SHIFT) & 63;
+    }
+
+    /**
+     * Method for getting the size of the table.
+     *
+     * @return - The size in bytes
+     */
+    public long sizeBytes() {
+        return this.table.length * 8L;
+    }
+
+    /**
+     * Method for getting the number of entries of the table.
+     *
+     * @return - The number of entries
+     */
+    public int capacity() {
+        return this.table.length / 2;
+    }
+
+    /**
+     * Method for estimating how full the table is, from its first thousand
+     * entries (counting only the entries of the current search).
+     *
+     * @return - The used entries per thousand
+     */
+    public int usagePermille() {
+        int sample = Math.min(1000, capacity()), used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = this.table[i * 2 + 1];
+            if (data != 0 && age(data) == this.age) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+
+    /**
+     * Helper method, add up one statistic of every thread.
+     *
+     * @param which - The index of the statistic
+     * @return - The total
+     */
+    private long total(int which) {
+        long sum = 0L;
+        for (int i = which; i < this.counters.length; i += STRIDE) {
+            sum += this.counters[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Method for getting the number of lookups.
+     *
+     * @return - The number of lookups
+     */
+    public long getProbes() {
+        return total(PROBES);
+    }
+
+    /**
+     * Method for getting the number of lookups that found the position.
+     *
+     * @return - The number of hits
+     */
+    public long getHits() {
+        return total(HITS);
+    }
+
+    /**
+     * Method for getting the number of lookups that found only other
+     * positions in the bucket of the key.
+     *
+     * @return - The number of collisions
+     */
+    public long getCollisions() {
+        return total(COLLISIONS);
+    }
+
+    /**
+     * Method for getting the number of results stored.
+     *
+     * @return - The number of stores
+     */
+    public long getStores() {
+        return total(STORES);
+    }
+
+    /**
+     * Method for getting the number of stores that evicted another position.
+     *
+     * @return - The number of overwrites
+     */
+    public long getOverwrites() {
+        return total(OVERWRITES);
+    }
+
+    @Override
+    public String toString() {
+        long probes = getProbes();
+        return String.format("%d MB, %d probes, %.1f%% hits, %d collisions, %d stores, %d overwrites, %d%% full",
+                sizeBytes() >> 20, probes, probes == 0 ? 0.0 : 100.0 * getHits() / probes,
+                getCollisions(), getStores(), getOverwrites(), usagePermille() / 10);
+    }
+}
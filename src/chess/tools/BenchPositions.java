@@ -0,0 +1,67 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+/**
+ * The BenchPositions class, the fixed set of representative positions used by
+ * the benchmarks and tools, so that results from different runs and different
+ * tools are measured on the same boards.
+ *
+ * @author Asus
+ */
+public class BenchPositions {
+
+    //The name of each position, used as the benchmark parameter
+    public static final String OPENING = "opening", MIDDLEGAME = "middlegame", ENDGAME = "endgame", CHECKS = "checks";
+    public static final String[] NAMES = {OPENING, MIDDLEGAME, ENDGAME, CHECKS};
+
+    //The FEN of each position, in the same order as NAMES
+    private static final String[] FENS = {
+        //Ruy Lopez after 3.Bb5, all pieces still on the board
+        "r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b KQkq - 3 3",
+        //Open middlegame with both sides castled, many sliding pieces
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+        //Rook endgame with Pawns
+        "8/5pk1/6p1/3R4/1r6/6P1/5PK1/8 w - - 0 40",
+        //WHITE is in check, with promotions, pins and many checking moves on both sides
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"
+    };
+
+    //Tactical test positions (from the Win At Chess suite) and their best move, in coordinate notation, for
+    //checking that a faster search still finds the tactics
+    public static final String[] TACTICS = {
+        "2rr3k/pp3pp1/1nnqbN1p/3pN3/2pP4/2P3Q1/PPB4P/R4RK1 w - - 0 1",
+        "5rk1/1ppb3p/p1pb4/6q1/3P1p1r/2P1R2P/PP1BQ1P1/5RKN w - - 0 1",
+        "r1bq2rk/pp3pbp/2p1p1pQ/7P/3P4/2PB1N2/PP3PPR/2KR4 w - - 0 1",
+        "5k2/6pp/p1qN4/1p1p4/3P4/2PKP2Q/PP3r2/3R4 b - - 0 1",
+        "r4q1k/p2bR1rp/2p2Q1N/5p2/5p2/2P5/PP3PPP/R5K1 w - - 0 1",
+        "2br2k1/2q3rn/p2NppQ1/2p1P3/Pp5R/4P3/1P3PPP/3R2K1 w - - 0 1"
+    };
+    public static final String[] TACTIC_MOVES = {"g3g6", "e3g3", "h6h7", "c6c4", "e7f7", "h4h7"};
+
+    /**
+     * Private constructor, this class only has static members.
+     */
+    private BenchPositions() {
+    }
+
+    /**
+     * Method for getting the FEN of a position by name.
+     *
+     * @param name - The name of the position (see NAMES)
+     * @return - The FEN string
+     * @throws IllegalArgumentException - If the name is unknown, throws
+     * IllegalArgumentException
+     */
+    public static String fen(String name) throws IllegalArgumentException {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) {
+                return FENS[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown position: " + name);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import chess.engine.OpeningBook;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The BookBuilder class, a command line tool that makes an opening book file
+ * (see OpeningBook) from a text file of opening lines. Each line of the text
+ * file is one line of play from the starting position, in coordinate notation
+ * (e2e4 e7e5 g1f3...); empty lines and lines starting with # are skipped.
+ * Every position of every line gets the move played from it, and a move
+ * played in several lines gets a higher weight, so the computer plays it more
+ * often.
+ *
+ * Usage:
+ * <pre>
+ * java -cp Chess.jar chess.tools.BookBuilder [lines] [book] [--plies n]
+ * </pre>
+ * The default files are data/openings.txt and data/book.bin, and only the
+ * first plies of each line (all of them by default) are kept.
+ *
+ * @author Asus
+ */
+public class BookBuilder {
+
+    //The starting position
+    static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        String input = "./data/openings.txt", output = "./data/book.bin";
+        int plies = Integer.MAX_VALUE, files = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--plies")) {
+                    plies = Integer.parseInt(args[++i]);
+                } else if (files++ == 0) {
+                    input = args[i];
+                } else {
+                    output = args[i];
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: BookBuilder [lines] [book] [--plies n]");
+            System.exit(2);
+        }
+
+        try {
+            //Count how often each move is played from each position
+            Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+            List<String> lines = Files.readAllLines(Paths.get(input), StandardCharsets.UTF_8);
+            int[] moves = new int[Position.MAX_MOVES];
+            for (int n = 0; n < lines.size(); n++) {
+                String line = lines.get(n).trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                Position pos = new Position();
+                pos.loadFen(START);
+                String[] tokens = line.split("\\s+");
+                for (int ply = 0; ply < tokens.length && ply < plies; ply++) {
+                    int move = find(pos, moves, tokens[ply]);
+                    if (move == Move.NONE) {
+                        throw new IllegalArgumentException(String.format("Line %d: illegal move %s", n + 1, tokens[ply]));
+                    }
+                    counts.computeIfAbsent(pos.getKey(), k -> new HashMap<>())
+                            .merge(OpeningBook.encode(move), 1, Integer::sum);
+                    pos.makeMove(move);
+                }
+            }
+
+            //The records, sorted by key as an unsigned number, the heaviest move of a key first
+            List<long[]> records = new ArrayList<>();
+            counts.forEach((key, byMove) -> byMove.forEach((code, count) -> {
+                records.add(new long[]{key, code, Math.min(count, 0xFFFF)});
+            }));
+            records.sort((a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(b[2], a[2]));
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+                for (long[] record : records) {
+                    out.writeLong(record[0]);
+                    out.writeShort((int) record[1]);
+                    out.writeShort((int) record[2]);
+                    out.writeInt(0);
+                }
+            }
+            System.out.printf("%d positions, %d records written to %s%n", counts.size(), records.size(), output);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Helper method, find the legal move written in coordinate notation.
+     *
+     * @param pos - The position
+     * @param moves - A buffer for the legal moves
+     * @param text - The move in coordinate notation
+     * @return - The packed move, or Move.NONE if it is not legal
+     */
+    static int find(Position pos, int[] moves, String text) {
+        int count = pos.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (Move.toString(moves[i]).equals(text)) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+}
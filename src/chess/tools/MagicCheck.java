@@ -0,0 +1,122 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.util.BitboardLib;
+import chess.util.MagicLib;
+import java.util.SplittableRandom;
+
+/**
+ * The MagicCheck class, a command line tool that reports the build time and
+ * memory of the magic bitboard tables, compares the magic attacks with the ray
+ * walking attacks on random positions and times both.
+ *
+ * Usage:
+ * <pre>
+ * java -cp Chess.jar chess.tools.MagicCheck [positions]
+ * java -cp Chess.jar chess.tools.MagicCheck --search
+ * </pre>
+ * The second form searches the magic numbers again and prints them in the
+ * form of the tables kept in MagicLib.
+ *
+ * @author Asus
+ */
+public class MagicCheck {
+
+    /**
+     * Helper method, make a random occupancy. The density changes from one
+     * position to another so both open and crowded boards are tried.
+     *
+     * @param random - The random source
+     * @return - The random occupancy mask
+     */
+    private static long randomOccupancy(SplittableRandom random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return random.nextLong() & random.nextLong() & random.nextLong();
+            case 1:
+                return random.nextLong() & random.nextLong();
+            case 2:
+                return random.nextLong();
+            default:
+                return random.nextLong() | random.nextLong();
+        }
+    }
+
+    /**
+     * Helper method, search the magic numbers and print them as Java arrays.
+     */
+    private static void printMagics() {
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            long[] magics = MagicLib.searchMagics(i == 0, MagicLib.seed());
+            System.out.printf("//%s magics, found in %.1f ms%n", i == 0 ? "Rook" : "Bishop", (System.nanoTime() - start) / 1e6);
+            StringBuilder sb = new StringBuilder("{");
+            for (int sq = 0; sq < 64; sq++) {
+                sb.append(sq % 4 == 0 ? "\n    " : " ").append(String.format("0x%016XL", magics[sq])).append(sq < 63 ? "," : "\n};");
+            }
+            System.out.println(sb);
+        }
+    }
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--search")) {
+            printMagics();
+            return;
+        }
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        //Loading the class builds the tables
+        System.out.printf("Magic tables built in %.1f ms%n", MagicLib.BUILD_NANOS / 1e6);
+        System.out.printf("Rook table: %d entries, Bishop table: %d entries, %.1f KB in total%n",
+                MagicLib.rookTableSize(), MagicLib.bishopTableSize(), MagicLib.tableBytes() / 1024.0);
+
+        //Compare every square of random positions
+        SplittableRandom random = new SplittableRandom(1L);
+        long[] occupancies = new long[positions];
+        int mismatches = 0;
+        for (int i = 0; i < positions; i++) {
+            long occ = randomOccupancy(random);
+            occupancies[i] = occ;
+            for (int sq = 0; sq < 64; sq++) {
+                if (BitboardLib.rookAttacks(sq, occ) != BitboardLib.rookRayAttacks(sq, occ)
+                        || BitboardLib.bishopAttacks(sq, occ) != BitboardLib.bishopRayAttacks(sq, occ)) {
+                    if (mismatches++ < 10) {
+                        System.out.printf("Mismatch on square %d with occupancy %016x%n", sq, occ);
+                    }
+                }
+            }
+        }
+        System.out.printf("%d positions x 64 squares checked, %d mismatches%n", positions, mismatches);
+
+        //Time both, the sum is printed so the loops are not optimized away
+        for (int round = 0; round < 3; round++) {
+            long sum = 0L, start = System.nanoTime();
+            for (long occ : occupancies) {
+                for (int sq = 0; sq < 64; sq++) {
+                    sum += BitboardLib.rookRayAttacks(sq, occ) ^ BitboardLib.bishopRayAttacks(sq, occ);
+                }
+            }
+            long rays = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (long occ : occupancies) {
+                for (int sq = 0; sq < 64; sq++) {
+                    sum -= BitboardLib.rookAttacks(sq, occ) ^ BitboardLib.bishopAttacks(sq, occ);
+                }
+            }
+            long magics = System.nanoTime() - start;
+            double lookups = 2.0 * 64 * positions;
+            System.out.printf("Round %d: ray walking %.1f ns/lookup, magic %.1f ns/lookup (checksum %d)%n",
+                    round + 1, rays / lookups, magics / lookups, sum);
+        }
+        System.exit(mismatches == 0 ? 0 : 1);
+    }
+}
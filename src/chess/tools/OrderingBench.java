@@ -0,0 +1,90 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import chess.engine.PawnTable;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+
+/**
+ * The OrderingBench class, a command line tool that measures what the move
+ * ordering of the search saves: each benchmark position is searched to a
+ * fixed depth on one thread, once with the moves in the order of the
+ * generator and once ordered (hash move, MVV-LVA captures, killer moves,
+ * history), and the node counts are compared. The tables are emptied before
+ * each search.
+ *
+ * Usage:
+ * <pre>
+ * java -cp Chess.jar chess.tools.OrderingBench [depth] [--hash mb]
+ * </pre>
+ *
+ * @author Asus
+ */
+public class OrderingBench {
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        int depth = 6, hash = 64;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--hash")) {
+                    hash = Integer.parseInt(args[++i]);
+                } else {
+                    depth = Integer.parseInt(args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: OrderingBench [depth] [--hash mb]");
+            System.exit(2);
+        }
+
+        TranspositionTable tt = new TranspositionTable(hash);
+        PawnTable pawns = new PawnTable();
+        System.out.printf("Depth %d, %d MB table%n", depth, hash);
+        System.out.printf("%-12s %14s %10s %14s %10s %8s  %s%n", "position", "unordered", "ms", "ordered", "ms", "ratio",
+                "best move / score");
+        long totalOff = 0L, totalOn = 0L;
+        for (String name : BenchPositions.NAMES) {
+            Position pos = new Position();
+            pos.loadFen(BenchPositions.fen(name));
+            SearchResult off = run(pos, tt, pawns, depth, false);
+            SearchResult on = run(pos, tt, pawns, depth, true);
+            System.out.printf("%-12s %14d %10d %14d %10d %8.2f  %s %d / %s %d%n", name, off.getNodes(), off.getMillis(),
+                    on.getNodes(), on.getMillis(), (double) off.getNodes() / on.getNodes(),
+                    Move.toString(off.getBestMove()), off.getScore(), Move.toString(on.getBestMove()), on.getScore());
+            totalOff += off.getNodes();
+            totalOn += on.getNodes();
+        }
+        System.out.printf("Total: %d nodes unordered, %d nodes ordered (%.2f times fewer)%n", totalOff, totalOn,
+                (double) totalOff / totalOn);
+    }
+
+    /**
+     * Helper method, search a position to a fixed depth from empty tables.
+     *
+     * @param pos - The position
+     * @param tt - The transposition table
+     * @param pawns - The Pawn structure cache
+     * @param depth - The depth
+     * @param ordering - The boolean value, true to order the moves
+     * @return - The result of the search
+     */
+    private static SearchResult run(Position pos, TranspositionTable tt, PawnTable pawns, int depth, boolean ordering) {
+        tt.clear();
+        pawns.clear();
+        Search search = new Search(pos, tt, pawns);
+        search.setOrdering(ordering);
+        return search.search(Search.UNLIMITED, depth);
+    }
+}
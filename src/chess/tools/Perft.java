@@ -0,0 +1,254 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The Perft class, a command line tool that counts the leaf nodes of the move
+ * tree to a given depth (performance test). The counts of the reference
+ * positions are known, so it validates the move generation of the model
+ * (Pawn pushes, promotions, en passant, castling, pins and checks), and the
+ * time taken benchmarks it. The root moves are split across a ForkJoinPool so
+ * every core is used.
+ *
+ * Usage:
+ * <pre>
+ * java -cp Chess.jar chess.tools.Perft depth [--fen "fen"] [--divide] [--threads n]
+ * java -cp Chess.jar chess.tools.Perft --verify [maxNodes]
+ * </pre>
+ *
+ * @author Asus
+ */
+public class Perft {
+
+    //The starting position
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    //The reference positions (from the chess programming community) and their node counts from depth 1
+    private static final String[] REFERENCE_NAMES = {"Start", "Kiwipete", "Position 3", "Position 4", "Position 5", "Position 6"};
+    private static final String[] REFERENCE_FENS = {
+        START_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+    };
+    private static final long[][] REFERENCE_COUNTS = {
+        {20L, 400L, 8902L, 197281L, 4865609L, 119060324L},
+        {48L, 2039L, 97862L, 4085603L, 193690690L},
+        {14L, 191L, 2812L, 43238L, 674624L, 11030083L, 178633661L},
+        {6L, 264L, 9467L, 422333L, 15833292L},
+        {44L, 1486L, 62379L, 2103487L, 89941194L},
+        {46L, 2079L, 89890L, 3894594L, 164075551L}
+    };
+
+    /**
+     * The task counting the nodes below one root move, on its own copy of the
+     * position.
+     */
+    private static class RootTask extends RecursiveTask<Long> {
+
+        //The version of the serialized form, RecursiveTask is Serializable
+        private static final long serialVersionUID = 1L;
+        //The copy of the position, with the root move already made
+        private final Position position;
+        //The remaining depth
+        private final int depth;
+
+        /**
+         * Constructor of class RootTask.
+         *
+         * @param position - The position before the root move
+         * @param move - The root move
+         * @param depth - The remaining depth after the root move
+         */
+        RootTask(Position position, int move, int depth) {
+            this.position = new Position(position);
+            this.position.makeMove(move);
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            return perft(this.position, this.depth);
+        }
+    }
+
+    /**
+     * Method for counting the leaf nodes to a depth, on the calling thread.
+     *
+     * @param position - The position (left unchanged when the method returns)
+     * @param depth - The depth
+     * @return - The number of leaf nodes
+     */
+    public static long perft(Position position, int depth) {
+        if (depth == 0) {
+            return 1L;
+        }
+        return perft(position, depth, new int[depth][Position.MAX_MOVES]);
+    }
+
+    /**
+     * Helper method, count the leaf nodes with one preallocated move buffer
+     * per depth.
+     *
+     * @param position - The position
+     * @param depth - The remaining depth (at least 1)
+     * @param buffers - The move buffers, indexed by remaining depth - 1
+     * @return - The number of leaf nodes
+     */
+    private static long perft(Position position, int depth, int[][] buffers) {
+        int[] moves = buffers[depth - 1];
+        int count = position.generateMoves(moves);
+        //The generator is strictly legal, so the last level is just the number of moves
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0L;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1, buffers);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Method for counting the leaf nodes to a depth with the root moves split
+     * across a pool of threads.
+     *
+     * @param position - The position (left unchanged)
+     * @param depth - The depth (at least 1)
+     * @param pool - The pool running the root tasks
+     * @param divide - Whether to print the number of nodes below each root move
+     * @return - The number of leaf nodes
+     */
+    public static long perft(Position position, int depth, ForkJoinPool pool, boolean divide) {
+        int[] moves = new int[Position.MAX_MOVES];
+        int count = position.generateMoves(moves);
+        List<RootTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new RootTask(position, moves[i], depth - 1));
+        }
+        //Fork every root move, then collect them in generation order
+        tasks.forEach(pool::execute);
+        long nodes = 0L;
+        for (int i = 0; i < count; i++) {
+            long n = tasks.get(i).join();
+            if (divide) {
+                System.out.println(Move.toString(moves[i]) + ": " + n);
+            }
+            nodes += n;
+        }
+        return nodes;
+    }
+
+    /**
+     * Helper method, run the reference positions and compare the counts.
+     *
+     * @param pool - The pool running the root tasks
+     * @param maxNodes - Only the depths whose count is at most this value are
+     * run
+     * @return - The boolean value, true if every count matches
+     */
+    private static boolean verify(ForkJoinPool pool, long maxNodes) {
+        boolean ok = true;
+        Position position = new Position();
+        for (int i = 0; i < REFERENCE_FENS.length; i++) {
+            position.loadFen(REFERENCE_FENS[i]);
+            for (int depth = 1; depth <= REFERENCE_COUNTS[i].length; depth++) {
+                long expected = REFERENCE_COUNTS[i][depth - 1];
+                if (expected > maxNodes) {
+                    break;
+                }
+                long start = System.nanoTime();
+                long nodes = perft(position, depth, pool, false);
+                long elapsed = System.nanoTime() - start;
+                boolean match = nodes == expected;
+                ok &= match;
+                System.out.printf("%-10s depth %d: %12d %s (expected %d, %s)%n", REFERENCE_NAMES[i], depth, nodes,
+                        match ? "OK  " : "FAIL", expected, rate(nodes, elapsed));
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Helper method, format the time and the nodes per second.
+     *
+     * @param nodes - The number of nodes
+     * @param elapsed - The elapsed time in nanoseconds
+     * @return - The formatted String
+     */
+    private static String rate(long nodes, long elapsed) {
+        double seconds = Math.max(elapsed, 1L) / 1e9;
+        return String.format("%.3f s, %.0f nodes/s", seconds, nodes / seconds);
+    }
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = -1;
+        String fen = START_FEN;
+        boolean divide = false, verify = false;
+        long maxNodes = 10_000_000L;
+
+        //Read the arguments
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fen":
+                    fen = args[++i];
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--verify":
+                    verify = true;
+                    if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        maxNodes = Long.parseLong(args[++i]);
+                    }
+                    break;
+                default:
+                    depth = Integer.parseInt(args[i]);
+                    break;
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        if (verify) {
+            boolean ok = verify(pool, maxNodes);
+            System.out.println(ok ? "All counts match" : "Some counts DO NOT match");
+            System.exit(ok ? 0 : 1);
+        }
+        if (depth < 1) {
+            System.out.println("Usage: Perft depth [--fen \"fen\"] [--divide] [--threads n]");
+            System.out.println("       Perft --verify [maxNodes]");
+            System.exit(2);
+        }
+
+        Position position = new Position();
+        position.loadFen(fen);
+        long start = System.nanoTime();
+        long nodes = perft(position, depth, pool, divide);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Depth %d: %d nodes with %d threads (%s)%n", depth, nodes, threads, rate(nodes, elapsed));
+        pool.shutdown();
+    }
+}
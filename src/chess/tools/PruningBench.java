@@ -0,0 +1,120 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import chess.engine.PawnTable;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+
+/**
+ * The PruningBench class, a command line tool that compares the search with
+ * the null-move pruning and the late-move reductions each turned on and off.
+ * The benchmark positions and the tactical positions are searched to a fixed
+ * depth on one thread with every combination, and each combination reports
+ * its nodes, its time (and speedup) to the depth, how many best moves agree
+ * with the search without any pruning, how many tactics it solves, and its
+ * pruning statistics. The tables are emptied before each search, and an
+ * untimed pass runs first to warm up the JIT compiler.
+ *
+ * Usage:
+ * <pre>
+ * java -cp Chess.jar chess.tools.PruningBench [depth] [--hash mb]
+ * </pre>
+ *
+ * @author Asus
+ */
+public class PruningBench {
+
+    //The combinations compared, as {null move, reductions}, the first one is the reference
+    private static final boolean[][] CONFIGS = {{false, false}, {true, false}, {false, true}, {true, true}};
+    private static final String[] CONFIG_NAMES = {"none", "null move", "reductions", "both"};
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        int depth = 7, hash = 64;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--hash")) {
+                    hash = Integer.parseInt(args[++i]);
+                } else {
+                    depth = Integer.parseInt(args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: PruningBench [depth] [--hash mb]");
+            System.exit(2);
+        }
+
+        //The suite: the benchmark positions, then the tactics
+        int benchCount = BenchPositions.NAMES.length;
+        String[] fens = new String[benchCount + BenchPositions.TACTICS.length];
+        for (int i = 0; i < benchCount; i++) {
+            fens[i] = BenchPositions.fen(BenchPositions.NAMES[i]);
+        }
+        System.arraycopy(BenchPositions.TACTICS, 0, fens, benchCount, BenchPositions.TACTICS.length);
+
+        TranspositionTable tt = new TranspositionTable(hash);
+        PawnTable pawns = new PawnTable();
+        System.out.printf("Depth %d, %d positions (%d tactics), %d MB table%n", depth, fens.length,
+                BenchPositions.TACTICS.length, hash);
+        System.out.printf("%-11s %12s %9s %8s %6s %7s %10s %10s %10s %10s%n", "pruning", "nodes", "time ms", "speedup",
+                "agree", "solved", "null", "cutoffs", "reduced", "re-search");
+
+        //One untimed pass first, so the reference is not measured before the JIT compiler is done
+        for (String fen : fens) {
+            Position pos = new Position();
+            pos.loadFen(fen);
+            tt.clear();
+            new Search(pos, tt, pawns).search(Search.UNLIMITED, depth);
+        }
+
+        int[] reference = new int[fens.length];
+        double baseline = 0;
+        for (int c = 0; c < CONFIGS.length; c++) {
+            long nodes = 0L, nanos = 0L, nullTries = 0L, nullCutoffs = 0L, reduced = 0L, researches = 0L;
+            int agree = 0, solved = 0;
+            for (int i = 0; i < fens.length; i++) {
+                Position pos = new Position();
+                pos.loadFen(fens[i]);
+                tt.clear();
+                pawns.clear();
+                Search search = new Search(pos, tt, pawns);
+                search.setNullMove(CONFIGS[c][0]);
+                search.setReductions(CONFIGS[c][1]);
+                SearchResult result = search.search(Search.UNLIMITED, depth);
+
+                nodes += result.getNodes();
+                nanos += result.getNanos();
+                nullTries += search.getNullTries();
+                nullCutoffs += search.getNullCutoffs();
+                reduced += search.getReduced();
+                researches += search.getResearches();
+                if (c == 0) {
+                    reference[i] = result.getBestMove();
+                }
+                if (result.getBestMove() == reference[i]) {
+                    agree++;
+                }
+                if (i >= benchCount && Move.toString(result.getBestMove()).equals(BenchPositions.TACTIC_MOVES[i - benchCount])) {
+                    solved++;
+                }
+            }
+            if (c == 0) {
+                baseline = nanos;
+            }
+            System.out.printf("%-11s %12d %9d %8.2f %3d/%-2d %4d/%-2d %10d %10d %10d %10d%n", CONFIG_NAMES[c], nodes,
+                    nanos / 1_000_000L, baseline / nanos, agree, fens.length, solved, BenchPositions.TACTICS.length,
+                    nullTries, nullCutoffs, reduced, researches);
+        }
+    }
+}
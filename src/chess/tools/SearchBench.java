@@ -0,0 +1,87 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.chessboard.Position;
+import chess.engine.Engine;
+import chess.engine.ParallelSearch;
+import chess.engine.PawnTable;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The SearchBench class, a command line tool that runs the computer search on
+ * the benchmark positions (or on one FEN) with a fixed budget and prints the
+ * depth reached, the nodes searched and the nodes per second, to see what a
+ * machine can do with a given budget.
+ *
+ * Usage:
+ * <pre>
+ * java -cp Chess.jar chess.tools.SearchBench [millis] [--fen "fen"] [--depth n] [--hash mb] [--threads n]
+ * </pre>
+ * The transposition table is emptied before each position, so every position
+ * starts from the same state, and its statistics are printed after it.
+ *
+ * @author Asus
+ */
+public class SearchBench {
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        long millis = 2000L;
+        int maxDepth = Search.MAX_DEPTH;
+        int hash = Engine.DEFAULT_HASH_MB, threads = 1;
+        String fen = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--fen")) {
+                    fen = args[++i];
+                } else if (args[i].equals("--depth")) {
+                    maxDepth = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--hash")) {
+                    hash = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else {
+                    millis = Long.parseLong(args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: SearchBench [millis] [--fen \"fen\"] [--depth n] [--hash mb] [--threads n]");
+            System.exit(2);
+        }
+
+        TranspositionTable tt = new TranspositionTable(hash);
+        PawnTable pawns = new PawnTable();
+        ExecutorService helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, Engine.daemon("helper")) : null;
+        String[] names = fen != null ? new String[]{"fen"} : BenchPositions.NAMES;
+        long totalNodes = 0L, totalMillis = 0L;
+        for (String name : names) {
+            Position pos = new Position();
+            pos.loadFen(fen != null ? fen : BenchPositions.fen(name));
+            tt.clear();
+            pawns.clear();
+            ParallelSearch search = new ParallelSearch(pos, tt, pawns, threads, helpers);
+            SearchResult result = search.search(millis, maxDepth);
+            System.out.printf("%-12s %s%n", name, result);
+            System.out.printf("%-12s table: %s%n", "", tt);
+            System.out.printf("%-12s pawns: %s%n", "", pawns);
+            System.out.printf("%-12s pruning: %d null moves, %d cutoffs, %d reduced, %d re-searched%n", "",
+                    search.getNullTries(), search.getNullCutoffs(), search.getReduced(), search.getResearches());
+            totalNodes += result.getNodes();
+            totalMillis += result.getMillis();
+        }
+        System.out.printf("Total: %d nodes in %d ms (%d nps)%n", totalNodes, totalMillis,
+                totalMillis == 0 ? 0 : totalNodes * 1000 / totalMillis);
+    }
+}
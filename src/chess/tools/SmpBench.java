@@ -0,0 +1,104 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.chessboard.Position;
+import chess.engine.Engine;
+import chess.engine.ParallelSearch;
+import chess.engine.PawnTable;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The SmpBench class, a command line tool that measures the time-to-depth
+ * speedup of the parallel search: the benchmark positions are searched to a
+ * fixed depth with 1, 2, 4... up to the given number of threads, and the total
+ * time of each thread count is compared with the time of one thread. The
+ * transposition table and the Pawn cache are emptied before each search, so
+ * every run starts from the same state.
+ *
+ * Usage:
+ * <pre>
+ * java -cp Chess.jar chess.tools.SmpBench [maxThreads] [--depth n] [--hash mb] [--runs n]
+ * </pre>
+ * The time of each position is the best of the runs (default 3), since the
+ * parallel search does not take the same path twice. An untimed pass runs
+ * first to warm up the JIT compiler.
+ *
+ * @author Asus
+ */
+public class SmpBench {
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        int maxThreads = Runtime.getRuntime().availableProcessors(), depth = 8, hash = 64, runs = 3;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--depth")) {
+                    depth = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--hash")) {
+                    hash = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--runs")) {
+                    runs = Integer.parseInt(args[++i]);
+                } else {
+                    maxThreads = Integer.parseInt(args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: SmpBench [maxThreads] [--depth n] [--hash mb] [--runs n]");
+            System.exit(2);
+        }
+
+        TranspositionTable tt = new TranspositionTable(hash);
+        PawnTable pawns = new PawnTable();
+        ExecutorService helpers = maxThreads > 1 ? Executors.newFixedThreadPool(maxThreads - 1, Engine.daemon("helper")) : null;
+        System.out.printf("Depth %d, %d MB table, best of %d runs, %d cores%n", depth, hash, runs,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %10s %8s %14s %12s%n", "threads", "time ms", "speedup", "nodes", "nps");
+
+        //One untimed pass first, so the first thread count is not measured before the JIT compiler is done
+        for (String name : BenchPositions.NAMES) {
+            Position pos = new Position();
+            pos.loadFen(BenchPositions.fen(name));
+            tt.clear();
+            pawns.clear();
+            new ParallelSearch(pos, tt, pawns, 1, null).search(Search.UNLIMITED, depth);
+        }
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = threads * 2 > maxThreads && threads < maxThreads ? maxThreads : threads * 2) {
+            long totalNanos = 0L, totalNodes = 0L;
+            for (String name : BenchPositions.NAMES) {
+                Position pos = new Position();
+                pos.loadFen(BenchPositions.fen(name));
+                long bestNanos = Long.MAX_VALUE, nodes = 0L;
+                for (int run = 0; run < runs; run++) {
+                    tt.clear();
+                    pawns.clear();
+                    SearchResult result = new ParallelSearch(pos, tt, pawns, threads, helpers).search(Search.UNLIMITED, depth);
+                    if (result.getNanos() < bestNanos) {
+                        bestNanos = result.getNanos();
+                        nodes = result.getNodes();
+                    }
+                }
+                totalNanos += bestNanos;
+                totalNodes += nodes;
+            }
+            if (threads == 1) {
+                baseline = totalNanos;
+            }
+            System.out.printf("%8d %10d %8.2f %14d %12d%n", threads, totalNanos / 1_000_000L, baseline / totalNanos,
+                    totalNodes, (long) (totalNodes * 1e9 / totalNanos));
+        }
+    }
+}
@@ -0,0 +1,652 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import chess.engine.Engine;
+import chess.engine.Search;
+import chess.engine.Tablebase;
+import chess.util.BitboardLib;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The TablebaseGenerator class, a command line tool that makes the endgame
+ * tables (see Tablebase) by retrograde analysis: it starts from the mates and
+ * walks the moves backwards. A position of the stronger side is won in n+1
+ * plies as soon as one move leads to a position lost in n; a position of the
+ * lone King is lost in n+1 once every one of its moves leads to a won
+ * position, the last of them won in n. Each position of the lone King keeps
+ * the number of its moves not yet known to lose, and the positions solved at
+ * one distance are walked backwards together, split between the threads, to
+ * give the positions of the next distance. The positions never solved are
+ * draws.
+ *
+ * The un-moves are the moves of the pieces read backwards (a Pawn steps back,
+ * nothing is uncaptured): a capture by the lone King leaves a drawn ending, so
+ * it never loses, and a promotion leaves KQK or KRK, which are made first and
+ * read back from their files.
+ *
+ * Usage:
+ * <pre>
+ * java -Xmx1g -cp Chess.jar chess.tools.TablebaseGenerator [dir] [--threads n]
+ * </pre>
+ * The tables are written to data/tablebases by default, with every core.
+ *
+ * @author Asus
+ */
+public class TablebaseGenerator {
+
+    //The state of a position never solved: a draw, or a position that cannot happen
+    private static final int DRAWN = -1;
+    //The number of chunks per thread a level is split into, so a slow chunk does not keep the others waiting
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    //The ending being made, its number of pieces beside the Kings and its Ranks
+    private final int table;
+    private final int count;
+    private final int[] ranks;
+    //The state of each position: DRAWN; solved, as -2 minus the plies to the mate; else the number of moves of the
+    //lone King not yet known to lose (0 for a position of the stronger side)
+    private final AtomicIntegerArray state;
+    //The tables already made, for the promotions
+    private final Tablebase smaller;
+    //The threads
+    private final ExecutorService executor;
+    private final int threads;
+
+    /**
+     * Constructor of class TablebaseGenerator.
+     *
+     * @param table - The index of the ending in Tablebase.NAMES
+     * @param smaller - The tables already made, for the promotions of KPK
+     * (null for the other endings)
+     * @param executor - The threads
+     * @param threads - The number of threads
+     */
+    private TablebaseGenerator(int table, Tablebase smaller, ExecutorService executor, int threads) {
+        this.table = table;
+        this.ranks = Tablebase.PIECES[table];
+        this.count = this.ranks.length;
+        this.state = new AtomicIntegerArray(Tablebase.size(table));
+        this.smaller = smaller;
+        this.executor = executor;
+        this.threads = threads;
+    }
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        String dir = "./data/tablebases";
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else {
+                    dir = args[i];
+                }
+            }
+            if (threads < 1) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: TablebaseGenerator [dir] [--threads n]");
+            System.exit(2);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Engine.daemon("tablebase"));
+        try {
+            Path path = Paths.get(dir);
+            Files.createDirectories(path);
+            System.out.printf("%d threads, tables in %s%n", threads, path);
+            System.out.printf("%-6s %10s %10s %10s %10s %9s %9s %9s%n", "ending", "positions", "won", "lost", "drawn",
+                    "longest", "KB", "ms");
+            //KQK and KRK come first, the promotions of KPK read them
+            for (int t = 0; t < Tablebase.NAMES.length; t++) {
+                long start = System.nanoTime();
+                Tablebase smaller = Tablebase.PIECES[t][0] == Position.PAWN ? new Tablebase(path) : null;
+                TablebaseGenerator generator = new TablebaseGenerator(t, smaller, executor, threads);
+                int[] stats = generator.generate();
+                long bytes = generator.write(path.resolve(Tablebase.fileName(t)));
+                System.out.printf("%-6s %10d %10d %10d %10d %9s %9d %9d%n", Tablebase.NAMES[t], stats[0], stats[1],
+                        stats[2], stats[0] - stats[1] - stats[2], "mate " + (stats[3] + 1) / 2, bytes / 1024,
+                        (System.nanoTime() - start) / 1_000_000L);
+            }
+        } catch (IOException | IllegalArgumentException | InterruptedException | ExecutionException e) {
+            System.out.println(e);
+            System.exit(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Helper method, solve every position of the ending.
+     *
+     * @return - The statistics: the legal positions, those won by the side
+     * to move, those lost by the side to move, the longest mate in plies
+     * @throws InterruptedException - If a thread is interrupted
+     * @throws ExecutionException - If a thread fails
+     */
+    private int[] generate() throws InterruptedException, ExecutionException {
+        //Set up every position: the mates are solved, the promotions give a distance to reach through KQK or KRK
+        int size = Tablebase.size(this.table);
+        List<int[]> found = runAll(size, (from, to) -> setUp(from, to));
+        IntList frontier = new IntList();
+        List<IntList> promotions = new ArrayList<>();
+        for (int[] chunk : found) {
+            for (int i = 1; i < chunk[0]; i += 2) {
+                if (chunk[i + 1] == 0) {
+                    frontier.add(chunk[i]);
+                    continue;
+                }
+                while (promotions.size() <= chunk[i + 1]) {
+                    promotions.add(new IntList());
+                }
+                promotions.get(chunk[i + 1]).add(chunk[i]);
+            }
+        }
+
+        //Solve one distance at a time, the un-moves of the positions solved at n give those solved at n+1
+        int plies = 0;
+        for (; !frontier.isEmpty() || plies < promotions.size(); plies++) {
+            if (plies < promotions.size()) {
+                IntList seeds = promotions.get(plies);
+                for (int i = 0; i < seeds.size(); i++) {
+                    if (solve(seeds.get(i), plies)) {
+                        frontier.add(seeds.get(i));
+                    }
+                }
+            }
+            int[] solved = frontier.toArray();
+            int level = plies;
+            List<int[]> next = runAll(solved.length, (from, to) -> unmove(solved, from, to, level + 1));
+            frontier = new IntList();
+            for (int[] chunk : next) {
+                frontier.addAll(chunk, 1, chunk[0]);
+            }
+        }
+
+        //The statistics
+        int[] stats = new int[4];
+        int legal = 0, won = 0, lost = 0, longest = 0;
+        for (int i = 0; i < size; i++) {
+            int s = this.state.get(i);
+            if (s != DRAWN || isLegal(i)) {
+                legal++;
+            }
+            if (s < DRAWN) {
+                if (i >>> (6 * (this.count + 2)) == 1) {
+                    won++;
+                } else {
+                    lost++;
+                }
+                longest = Math.max(longest, -2 - s);
+            }
+        }
+        stats[0] = legal;
+        stats[1] = won;
+        stats[2] = lost;
+        stats[3] = longest;
+        return stats;
+    }
+
+    /**
+     * Helper method, write the solved table into a file.
+     *
+     * @param path - The file
+     * @return - The size of the file in bytes
+     * @throws IOException - If the file cannot be written
+     */
+    private long write(Path path) throws IOException {
+        int size = Tablebase.size(this.table), longest = 0;
+        for (int i = 0; i < size; i++) {
+            longest = Math.max(longest, -1 - this.state.get(i));
+        }
+        //The code is the plies to the mate plus 1 (0 for a draw), the width fits the longest mate
+        int width = Math.max(1, 32 - Integer.numberOfLeadingZeros(longest));
+        if (width > 8) {
+            throw new IllegalArgumentException("A mate is too long to be stored: " + longest);
+        }
+        long bytes = Tablebase.bytes(size, width);
+        byte[] packed = new byte[(int) (bytes - Tablebase.HEADER_BYTES)];
+        for (int i = 0; i < size; i++) {
+            int s = this.state.get(i);
+            if (s < DRAWN) {
+                Tablebase.write(packed, width, i, -1 - s);
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile())))) {
+            out.writeInt(Tablebase.MAGIC);
+            out.writeInt(width);
+            out.writeLong(size);
+            out.write(packed);
+        }
+        return bytes;
+    }
+
+    /**
+     * Helper method, set up a range of positions: the positions that cannot
+     * happen and the stalemates are drawn, the mates are solved, and the lone
+     * King gets the number of its moves.
+     *
+     * @param from - The first position index
+     * @param to - The position index after the last one
+     * @return - The positions solved right away as pairs {index, plies}
+     * after the number of used slots in slot 0: the mates (0 plies) and the
+     * promotions to a won ending (the plies of that mate)
+     */
+    private int[] setUp(int from, int to) {
+        IntList solved = new IntList();
+        solved.add(0);
+        int[] squares = new int[this.count];
+        Position pos = new Position();
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int index = from; index < to; index++) {
+            if (!isLegal(index)) {
+                this.state.set(index, DRAWN);
+                continue;
+            }
+            int strongKing = (index >>> (6 * (this.count + 1))) & 63, weakKing = (index >>> (6 * this.count)) & 63;
+            for (int i = 0; i < this.count; i++) {
+                squares[i] = (index >>> (6 * (this.count - 1 - i))) & 63;
+            }
+            if (index >>> (6 * (this.count + 2)) == 1) {
+                //The stronger side: a promotion may mate through a smaller ending
+                this.state.set(index, 0);
+                if (this.ranks[0] == Position.PAWN && BitboardLib.row(squares[0]) == 1) {
+                    int plies = promote(pos, moves, strongKing, weakKing, squares[0]);
+                    if (plies >= 0) {
+                        solved.add(index);
+                        solved.add(plies);
+                    }
+                }
+                continue;
+            }
+
+            //The lone King: its moves are the squares next to it that are not attacked (an undefended piece is taken)
+            long attacked = attacks(strongKing, weakKing, squares);
+            int escapes = BitboardLib.count(BitboardLib.KING_ATTACKS[weakKing] & ~attacked);
+            if (escapes > 0) {
+                this.state.set(index, escapes);
+            } else if ((attacked & BitboardLib.bit(weakKing)) != 0) {
+                this.state.set(index, -2);
+                solved.add(index);
+                solved.add(0);
+            } else {
+                this.state.set(index, DRAWN);
+            }
+        }
+        solved.set(0, solved.size());
+        return solved.toArray();
+    }
+
+    /**
+     * Helper method, find the fastest mate through a promotion, read from the
+     * table of the new ending.
+     *
+     * @param pos - A position to set up
+     * @param moves - A move buffer
+     * @param strongKing - The square of the stronger King
+     * @param weakKing - The square of the lone King
+     * @param pawn - The square of the Pawn
+     * @return - The plies to the mate (the promotion included), or -1 if no
+     * promotion wins
+     */
+    private int promote(Position pos, int[] moves, int strongKing, int weakKing, int pawn) {
+        pos.clear();
+        pos.put(strongKing, Position.WHITE, Position.KING);
+        pos.put(weakKing, Position.BLACK, Position.KING);
+        pos.put(pawn, Position.WHITE, Position.PAWN);
+        int best = -1, n = pos.generateMoves(moves);
+        for (int i = 0; i < n; i++) {
+            if (Move.promotion(moves[i]) == 0) {
+                continue;
+            }
+            pos.makeMove(moves[i]);
+            int score = this.smaller.probe(pos);
+            pos.unmakeMove();
+            //The lone King is to move after the promotion, so a won ending is a negative score
+            if (score != Tablebase.UNKNOWN && score < 0) {
+                int plies = score + Search.MATE + 1;
+                best = best < 0 ? plies : Math.min(best, plies);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Helper method, walk backwards from positions solved at one distance,
+     * solving the positions one move before them.
+     *
+     * @param solved - The positions solved at the previous distance
+     * @param from - The first one to walk from
+     * @param to - The one after the last
+     * @param plies - The distance of the positions solved now
+     * @return - The positions solved now, after the number of used slots in
+     * slot 0
+     */
+    private int[] unmove(int[] solved, int from, int to, int plies) {
+        IntList next = new IntList();
+        next.add(0);
+        int shift = 6 * (this.count + 2);
+        for (int n = from; n < to; n++) {
+            int index = solved[n];
+            int strongKing = (index >>> (6 * (this.count + 1))) & 63, weakKing = (index >>> (6 * this.count)) & 63;
+            long occupied = BitboardLib.bit(strongKing) | BitboardLib.bit(weakKing);
+            for (int i = 0; i < this.count; i++) {
+                occupied |= BitboardLib.bit((index >>> (6 * (this.count - 1 - i))) & 63);
+            }
+
+            if (index >>> shift == 1) {
+                //The lone King just moved here: the positions before it lose one more move
+                int before = index ^ (1 << shift) ^ (weakKing << (6 * this.count));
+                for (long origins = BitboardLib.KING_ATTACKS[weakKing] & ~occupied; origins != 0; origins &= origins - 1) {
+                    int previous = before | (BitboardLib.first(origins) << (6 * this.count));
+                    if (loseMove(previous, plies)) {
+                        next.add(previous);
+                    }
+                }
+                continue;
+            }
+
+            //The stronger side just moved here, with the King or with a piece: the positions before it are won
+            int before = index ^ (1 << shift);
+            for (int p = -1; p < this.count; p++) {
+                int offset = p < 0 ? 6 * (this.count + 1) : 6 * (this.count - 1 - p);
+                int sq = (index >>> offset) & 63;
+                long origins = origins(p < 0 ? Position.KING : this.ranks[p], sq, occupied);
+                int without = before ^ (sq << offset);
+                for (; origins != 0; origins &= origins - 1) {
+                    int previous = without | (BitboardLib.first(origins) << offset);
+                    if (solve(previous, plies)) {
+                        next.add(previous);
+                    }
+                }
+            }
+        }
+        next.set(0, next.size());
+        return next.toArray();
+    }
+
+    /**
+     * Helper method, find the squares a piece of the stronger side can have
+     * come from (the squares it moves from backwards).
+     *
+     * @param rank - The Rank ordinal of the piece
+     * @param sq - The square it stands on
+     * @param occupied - The occupied squares
+     * @return - The mask of the empty squares it can have come from
+     */
+    private static long origins(int rank, int sq, long occupied) {
+        switch (rank) {
+            case Position.PAWN:
+                //A WHITE Pawn goes toward row 0, so it comes from the row below, or two rows below from its first row
+                int row = BitboardLib.row(sq);
+                if (row >= 6 || (occupied & BitboardLib.bit(sq + 8)) != 0) {
+                    return 0L;
+                }
+                long back = BitboardLib.bit(sq + 8);
+                if (row == 4 && (occupied & BitboardLib.bit(sq + 16)) == 0) {
+                    back |= BitboardLib.bit(sq + 16);
+                }
+                return back;
+            case Position.KING:
+                return BitboardLib.KING_ATTACKS[sq] & ~occupied;
+            default:
+                return pieceAttacks(rank, sq, occupied) & ~occupied;
+        }
+    }
+
+    /**
+     * Helper method, the squares a piece of the stronger side attacks.
+     *
+     * @param rank - The Rank ordinal of the piece
+     * @param sq - The square it stands on
+     * @param occupied - The occupied squares
+     * @return - The attack mask
+     */
+    private static long pieceAttacks(int rank, int sq, long occupied) {
+        switch (rank) {
+            case Position.PAWN:
+                return BitboardLib.PAWN_ATTACKS[Position.WHITE][sq];
+            case Position.ROOK:
+                return BitboardLib.rookAttacks(sq, occupied);
+            case Position.KNIGHT:
+                return BitboardLib.KNIGHT_ATTACKS[sq];
+            case Position.BISHOP:
+                return BitboardLib.bishopAttacks(sq, occupied);
+            case Position.QUEEN:
+                return BitboardLib.queenAttacks(sq, occupied);
+            default:
+                return BitboardLib.KING_ATTACKS[sq];
+        }
+    }
+
+    /**
+     * Helper method, the squares the stronger side attacks, looking through
+     * the lone King (it cannot step back along the line of a check).
+     *
+     * @param strongKing - The square of the stronger King
+     * @param weakKing - The square of the lone King
+     * @param squares - The squares of the other pieces
+     * @return - The attack mask
+     */
+    private long attacks(int strongKing, int weakKing, int[] squares) {
+        long occupied = BitboardLib.bit(strongKing);
+        for (int sq : squares) {
+            occupied |= BitboardLib.bit(sq);
+        }
+        long attacked = BitboardLib.KING_ATTACKS[strongKing];
+        for (int i = 0; i < this.count; i++) {
+            attacked |= pieceAttacks(this.ranks[i], squares[i], occupied);
+        }
+        return attacked;
+    }
+
+    /**
+     * Helper method, check whether a position index can happen: the pieces
+     * on different squares, the Kings apart, no Pawn on the first or last
+     * row, and the side that just moved not in check.
+     *
+     * @param index - The position index
+     * @return - True if the position can happen, false otherwise
+     */
+    private boolean isLegal(int index) {
+        int strongKing = (index >>> (6 * (this.count + 1))) & 63, weakKing = (index >>> (6 * this.count)) & 63;
+        int[] squares = new int[this.count];
+        long occupied = BitboardLib.bit(strongKing) | BitboardLib.bit(weakKing);
+        for (int i = 0; i < this.count; i++) {
+            squares[i] = (index >>> (6 * (this.count - 1 - i))) & 63;
+            occupied |= BitboardLib.bit(squares[i]);
+            if (this.ranks[i] == Position.PAWN && (BitboardLib.row(squares[i]) == 0 || BitboardLib.row(squares[i]) == 7)) {
+                return false;
+            }
+        }
+        if (BitboardLib.count(occupied) != this.count + 2 || (BitboardLib.KING_ATTACKS[strongKing] & BitboardLib.bit(weakKing)) != 0) {
+            return false;
+        }
+        //With the stronger side to move, the lone King must not be in check
+        return index >>> (6 * (this.count + 2)) == 0
+                || (attacks(strongKing, weakKing, squares) & BitboardLib.bit(weakKing)) == 0;
+    }
+
+    /**
+     * Helper method, solve a position of the stronger side, unless it was
+     * solved already (at a shorter distance).
+     *
+     * @param index - The position index
+     * @param plies - The plies to the mate
+     * @return - True if this call solved it, false otherwise
+     */
+    private boolean solve(int index, int plies) {
+        return this.state.compareAndSet(index, 0, -2 - plies);
+    }
+
+    /**
+     * Helper method, take one move of a position of the lone King off the
+     * moves not yet known to lose; when the last one goes, the position is
+     * lost.
+     *
+     * @param index - The position index
+     * @param plies - The plies to the mate if it is lost now
+     * @return - True if this call solved it, false otherwise
+     */
+    private boolean loseMove(int index, int plies) {
+        while (true) {
+            int left = this.state.get(index);
+            if (left <= 0) {
+                return false;
+            }
+            if (this.state.compareAndSet(index, left, left == 1 ? -2 - plies : left - 1)) {
+                return left == 1;
+            }
+        }
+    }
+
+    /**
+     * Helper method, split a range of work into chunks, run them on the
+     * threads and collect their results in order.
+     *
+     * @param size - The size of the range
+     * @param task - The work of one chunk, given its range
+     * @return - The results of the chunks
+     * @throws InterruptedException - If a thread is interrupted
+     * @throws ExecutionException - If a chunk fails
+     */
+    private List<int[]> runAll(int size, RangeTask task) throws InterruptedException, ExecutionException {
+        int chunks = Math.max(1, Math.min(size, this.threads * CHUNKS_PER_THREAD));
+        List<Callable<int[]>> calls = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) size * c / chunks), to = (int) ((long) size * (c + 1) / chunks);
+            calls.add(() -> task.run(from, to));
+        }
+        List<int[]> results = new ArrayList<>();
+        for (Future<int[]> future : this.executor.invokeAll(calls)) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    /**
+     * The work done on one chunk of a range.
+     */
+    private interface RangeTask {
+
+        /**
+         * Method for doing the work of a chunk.
+         *
+         * @param from - The first index of the chunk
+         * @param to - The index after the last one
+         * @return - The result of the chunk
+         */
+        int[] run(int from, int to);
+    }
+
+    /**
+     * A growing list of int values, lighter than a list of Integer for the
+     * millions of positions of a distance.
+     */
+    private static class IntList {
+
+        //The values, and the number of them in use
+        private int[] values = new int[64];
+        private int size;
+
+        /**
+         * Method for adding a value at the end.
+         *
+         * @param value - The value
+         */
+        void add(int value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+
+        /**
+         * Method for adding a range of an array at the end.
+         *
+         * @param array - The array
+         * @param from - The first index of the range
+         * @param to - The index after the last one
+         */
+        void addAll(int[] array, int from, int to) {
+            if (this.size + to - from > this.values.length) {
+                this.values = Arrays.copyOf(this.values, Math.max(this.values.length * 2, this.size + to - from));
+            }
+            System.arraycopy(array, from, this.values, this.size, to - from);
+            this.size += to - from;
+        }
+
+        /**
+         * Method for setting a value.
+         *
+         * @param index - The index
+         * @param value - The value
+         */
+        void set(int index, int value) {
+            this.values[index] = value;
+        }
+
+        /**
+         * Method for getting a value.
+         *
+         * @param index - The index
+         * @return - The value
+         */
+        int get(int index) {
+            return this.values[index];
+        }
+
+        /**
+         * Method for getting the number of values.
+         *
+         * @return - The number of values
+         */
+        int size() {
+            return this.size;
+        }
+
+        /**
+         * Method for checking whether the list is empty.
+         *
+         * @return - True if there is no value, false otherwise
+         */
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        /**
+         * Method for copying the values into an array.
+         *
+         * @return - The values
+         */
+        int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.tools;
+
+import chess.chessboard.Move;
+import chess.chessboard.Position;
+import chess.engine.Engine;
+import chess.engine.PawnTable;
+import chess.engine.Search;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Tournament class, a command line tool that plays the engine against
+ * itself with two configurations, the base and the test, to find out whether
+ * the test one is stronger. The games are played without any window, each on
+ * its own Position, by a pool of threads (one per core by default): every
+ * thread has its own tables for each side and searches with a single thread,
+ * so the cores play games side by side instead of sharing one search.
+ *
+ * The games start from the positions reached after the first plies of the
+ * lines of the opening file, each position played twice with the colors
+ * swapped. A game ends on a mate, a stalemate, a threefold repetition, the
+ * fifty-move rule, too little material to mate, or a length limit (a draw).
+ * Each game is written as one line: its number, the opening, the side playing
+ * WHITE, the result, the plies played and how it ended.
+ *
+ * The tournament stops as soon as a sequential probability ratio test decides
+ * between "the test is no stronger than elo0" and "the test is at least elo1
+ * stronger", with the error rates alpha and beta. The log-likelihood ratio
+ * uses the normal approximation of the trinomial (win, draw, loss) scores of
+ * the test configuration with the logistic Elo model.
+ *
+ * Usage:
+ * <pre>
+ * java -cp Chess.jar chess.tools.Tournament [--games n] [--threads n] [--millis ms | --depth n] [--hash mb]
+ *         [--openings file] [--plies n] [--base options] [--test options] [--elo0 e] [--elo1 e]
+ *         [--alpha a] [--beta b] [--out file]
+ * </pre>
+ * The options of a configuration are a comma separated list of nullmove,
+ * lmr and ordering, each with =on or =off (all on by default), for example
+ * {@code --test lmr=off}. The defaults are 20000 games, 100 ms per move, 16 MB
+ * tables, the first 8 plies of data/openings.txt and the test [0, 10] with
+ * alpha = beta = 0.05; the records are written to the file if one is given.
+ *
+ * @author Asus
+ */
+public class Tournament {
+
+    //The longest game in plies, a game still going on is a draw
+    private static final int MAX_PLIES = 400;
+    //The number of games between two status lines
+    private static final int REPORT_EVERY = 10;
+    //The index of each configuration in the tables and the counts
+    private static final int BASE = 0, TEST = 1;
+
+    /**
+     * The Config class, the switches of the engine for one side.
+     */
+    private static class Config {
+
+        //The name written in the records
+        private final String name;
+        //The switches of the search
+        private boolean nullMove = true, reductions = true, ordering = true;
+
+        /**
+         * Constructor of class Config.
+         *
+         * @param name - The name written in the records
+         * @param options - The comma separated options, empty for the
+         * defaults
+         * @throws IllegalArgumentException - If an option is unknown, throws
+         * IllegalArgumentException
+         */
+        Config(String name, String options) throws IllegalArgumentException {
+            this.name = name;
+            for (String option : options.split(",")) {
+                if (option.isEmpty()) {
+                    continue;
+                }
+                String[] pair = option.split("=");
+                if (pair.length != 2 || !(pair[1].equals("on") || pair[1].equals("off"))) {
+                    throw new IllegalArgumentException("Invalid option " + option);
+                }
+                boolean on = pair[1].equals("on");
+                if (pair[0].equals("nullmove")) {
+                    this.nullMove = on;
+                } else if (pair[0].equals("lmr")) {
+                    this.reductions = on;
+                } else if (pair[0].equals("ordering")) {
+                    this.ordering = on;
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + pair[0]);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (nullmove=%s, lmr=%s, ordering=%s)", this.name, this.nullMove ? "on" : "off",
+                    this.reductions ? "on" : "off", this.ordering ? "on" : "off");
+        }
+    }
+
+    //The configurations, indexed by BASE and TEST
+    private final Config[] configs;
+    //The starting positions
+    private final List<Position> openings;
+    //The number of games, the time per move in milliseconds and the depth per move (0 for a search on time)
+    private final int games;
+    private final long millis;
+    private final int depth;
+    //The size of each table in megabytes
+    private final int hash;
+    //The bounds of the test in Elo and its error rates
+    private final double elo0, elo1;
+    private final double alpha, beta;
+    //The file the records are written to, or null
+    private final PrintWriter out;
+    //The number of the next game to play
+    private final AtomicInteger next;
+    //The wins, draws and losses of the test configuration
+    private int wins, draws, losses;
+    //The decision of the test, null while it goes on
+    private volatile String decision;
+
+    /**
+     * Constructor of class Tournament.
+     *
+     * @param configs - The configurations, indexed by BASE and TEST
+     * @param openings - The starting positions
+     * @param games - The largest number of games
+     * @param millis - The time per move in milliseconds
+     * @param depth - The depth per move, 0 for a search on time
+     * @param hash - The size of each table in megabytes
+     * @param sprt - The bounds elo0 and elo1 and the error rates alpha and
+     * beta of the test
+     * @param out - The file the records are written to, or null
+     */
+    private Tournament(Config[] configs, List<Position> openings, int games, long millis, int depth, int hash,
+            double[] sprt, PrintWriter out) {
+        this.configs = configs;
+        this.openings = openings;
+        this.games = games;
+        this.millis = millis;
+        this.depth = depth;
+        this.hash = hash;
+        this.elo0 = sprt[0];
+        this.elo1 = sprt[1];
+        this.alpha = sprt[2];
+        this.beta = sprt[3];
+        this.out = out;
+        this.next = new AtomicInteger();
+    }
+
+    /**
+     * The main method of the tool.
+     *
+     * @param args - The command line arguments
+     */
+    public static void main(String[] args) {
+        int games = 20000, threads = Runtime.getRuntime().availableProcessors(), depth = 0, hash = 16, plies = 8;
+        long millis = 100L;
+        String openingFile = "./data/openings.txt", output = null, base = "", test = "";
+        double[] sprt = {0.0, 10.0, 0.05, 0.05};
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--games")) {
+                    games = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--millis")) {
+                    millis = Long.parseLong(args[++i]);
+                } else if (args[i].equals("--depth")) {
+                    depth = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--hash")) {
+                    hash = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--openings")) {
+                    openingFile = args[++i];
+                } else if (args[i].equals("--plies")) {
+                    plies = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--base")) {
+                    base = args[++i];
+                } else if (args[i].equals("--test")) {
+                    test = args[++i];
+                } else if (args[i].equals("--elo0")) {
+                    sprt[0] = Double.parseDouble(args[++i]);
+                } else if (args[i].equals("--elo1")) {
+                    sprt[1] = Double.parseDouble(args[++i]);
+                } else if (args[i].equals("--alpha")) {
+                    sprt[2] = Double.parseDouble(args[++i]);
+                } else if (args[i].equals("--beta")) {
+                    sprt[3] = Double.parseDouble(args[++i]);
+                } else if (args[i].equals("--out")) {
+                    output = args[++i];
+                } else {
+                    throw new NumberFormatException(args[i]);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Usage: Tournament [--games n] [--threads n] [--millis ms | --depth n] [--hash mb]"
+                    + " [--openings file] [--plies n] [--base options] [--test options] [--elo0 e] [--elo1 e]"
+                    + " [--alpha a] [--beta b] [--out file]");
+            System.exit(2);
+        }
+
+        try {
+            if (games < 1 || threads < 1 || millis < 1 || depth < 0 || depth > Search.MAX_DEPTH || plies < 0
+                    || sprt[0] >= sprt[1] || sprt[2] <= 0 || sprt[2] >= 1 || sprt[3] <= 0 || sprt[3] >= 1) {
+                throw new IllegalArgumentException("Invalid settings");
+            }
+            Config[] configs = {new Config("base", base), new Config("test", test)};
+            List<Position> openings = readOpenings(openingFile, plies);
+            try (PrintWriter out = output == null ? null : new PrintWriter(new FileWriter(output))) {
+                Tournament tournament = new Tournament(configs, openings, games, millis, depth, hash, sprt, out);
+                System.out.printf("%s against %s, %d openings, %s per move, %d threads%n", configs[TEST], configs[BASE],
+                        openings.size(), depth > 0 ? "depth " + depth : millis + " ms", threads);
+                System.out.printf("SPRT elo0 %.1f, elo1 %.1f, alpha %.2f, beta %.2f, bounds [%.2f, %.2f]%n", sprt[0],
+                        sprt[1], sprt[2], sprt[3], Math.log(sprt[3] / (1 - sprt[2])), Math.log((1 - sprt[3]) / sprt[2]));
+                tournament.run(threads);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper method, read the starting positions: the position after the
+     * first plies of each line of the opening file, each position once.
+     *
+     * @param file - The opening file, in the format of BookBuilder
+     * @param plies - The number of plies played from each line
+     * @return - The starting positions
+     * @throws IOException - If the file cannot be read, throws IOException
+     * @throws IllegalArgumentException - If a line has an illegal move or
+     * there is no position, throws IllegalArgumentException
+     */
+    private static List<Position> readOpenings(String file, int plies) throws IOException, IllegalArgumentException {
+        List<Position> openings = new ArrayList<>();
+        Set<Long> keys = new HashSet<>();
+        List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        int[] moves = new int[Position.MAX_MOVES];
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            Position pos = new Position();
+            pos.loadFen(BookBuilder.START);
+            String[] tokens = line.split("\\s+");
+            for (int ply = 0; ply < tokens.length && ply < plies; ply++) {
+                int move = BookBuilder.find(pos, moves, tokens[ply]);
+                if (move == Move.NONE) {
+                    throw new IllegalArgumentException(String.format("Line %d: illegal move %s", n + 1, tokens[ply]));
+                }
+                pos.makeMove(move);
+            }
+            //Lines sharing their first plies give the same position, it is played once
+            if (keys.add(pos.getKey())) {
+                openings.add(pos);
+            }
+        }
+        if (openings.isEmpty()) {
+            throw new IllegalArgumentException("No opening in " + file);
+        }
+        return openings;
+    }
+
+    /**
+     * Helper method, play the games on the threads until they are all played
+     * or the test has decided, then write the result.
+     *
+     * @param threads - The number of threads
+     * @throws InterruptedException - If the waiting thread is interrupted,
+     * throws InterruptedException
+     */
+    private void run(int threads) throws InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Engine.daemon("tournament"));
+        for (int i = 0; i < threads; i++) {
+            executor.execute(this::work);
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        synchronized (this) {
+            //The last status line is written unless the last game already wrote it
+            if ((this.wins + this.draws + this.losses) % REPORT_EVERY != 0) {
+                System.out.println(status());
+            }
+            System.out.printf("%s after %.1f s%n", this.decision != null ? this.decision : "No decision",
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    /**
+     * Helper method, the loop of one thread: take the next game and play it,
+     * until there is none left or the test has decided. The thread keeps its
+     * own tables for each side, emptied before every game.
+     */
+    private void work() {
+        TranspositionTable[] tables = {new TranspositionTable(this.hash), new TranspositionTable(this.hash)};
+        PawnTable[] pawns = {new PawnTable(), new PawnTable()};
+        int game;
+        while (this.decision == null && (game = this.next.getAndIncrement()) < this.games) {
+            for (int side = BASE; side <= TEST; side++) {
+                tables[side].clear();
+                pawns[side].clear();
+            }
+            play(game, tables, pawns);
+        }
+    }
+
+    /**
+     * Helper method, play one game and record its result. The even games give
+     * WHITE to the test configuration, the odd ones give it to the base, from
+     * the same opening.
+     *
+     * @param game - The number of the game
+     * @param tables - The transposition tables, indexed by BASE and TEST
+     * @param pawns - The Pawn structure caches, indexed by BASE and TEST
+     */
+    private void play(int game, TranspositionTable[] tables, PawnTable[] pawns) {
+        int opening = (game / 2) % this.openings.size();
+        Position pos = new Position(this.openings.get(opening));
+        //The configuration playing each color, indexed by color ordinal
+        int[] players = new int[2];
+        players[Position.WHITE] = game % 2 == 0 ? TEST : BASE;
+        players[Position.BLACK] = TEST + BASE - players[Position.WHITE];
+
+        //The keys of the positions of the game, for the repetitions
+        long[] keys = new long[MAX_PLIES + 1];
+        int[] moves = new int[Position.MAX_MOVES];
+        int plies = 0, result = 0;
+        String reason = "length";
+        while (plies < MAX_PLIES) {
+            keys[plies] = pos.getKey();
+            if (pos.generateMoves(moves) == 0) {
+                //The side to move loses if it is mated, a stalemate is a draw
+                if (pos.isInCheck(pos.getSideToMove())) {
+                    result = pos.getSideToMove() == Position.WHITE ? -1 : 1;
+                    reason = "mate";
+                } else {
+                    reason = "stalemate";
+                }
+                break;
+            }
+            if (pos.getHalfmoveClock() >= 100) {
+                reason = "fifty";
+                break;
+            }
+            if (isThreefold(keys, plies, pos.getHalfmoveClock())) {
+                reason = "repetition";
+                break;
+            }
+            if (isInsufficient(pos)) {
+                reason = "material";
+                break;
+            }
+            int player = players[pos.getSideToMove()];
+            Config config = this.configs[player];
+            Search search = new Search(pos, tables[player], pawns[player]);
+            search.setNullMove(config.nullMove);
+            search.setReductions(config.reductions);
+            search.setOrdering(config.ordering);
+            tables[player].newSearch();
+            SearchResult best = this.depth > 0
+                    ? search.search(Search.UNLIMITED, this.depth)
+                    : search.search(this.millis, Search.MAX_DEPTH);
+            pos.makeMove(best.getBestMove());
+            plies++;
+        }
+        record(game, opening, players[Position.WHITE], result, plies, reason);
+    }
+
+    /**
+     * Helper method, check whether the current position happened twice
+     * before. Only the positions since the last capture or Pawn move can
+     * repeat, every second one.
+     *
+     * @param keys - The keys of the positions of the game
+     * @param ply - The ply of the current position
+     * @param halfmoveClock - The plies since the last capture or Pawn move
+     * @return - The boolean value, true on a threefold repetition
+     */
+    private static boolean isThreefold(long[] keys, int ply, int halfmoveClock) {
+        int seen = 0;
+        for (int i = ply - 2; i >= Math.max(0, ply - halfmoveClock); i -= 2) {
+            if (keys[i] == keys[ply] && ++seen == 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Helper method, check whether neither side has the material to mate: no
+     * Pawn, Rook or Queen, and at most one Knight or Bishop on each side.
+     *
+     * @param pos - The position
+     * @return - The boolean value, true if no mate is possible
+     */
+    private static boolean isInsufficient(Position pos) {
+        long heavy = 0L;
+        for (int color = Position.BLACK; color <= Position.WHITE; color++) {
+            heavy |= pos.pieces(color, Position.PAWN) | pos.pieces(color, Position.ROOK) | pos.pieces(color, Position.QUEEN);
+            if (Long.bitCount(pos.pieces(color, Position.KNIGHT) | pos.pieces(color, Position.BISHOP)) > 1) {
+                return false;
+            }
+        }
+        return heavy == 0L;
+    }
+
+    /**
+     * Helper method, count the result of a game for the test configuration,
+     * write its record and update the test.
+     *
+     * @param game - The number of the game
+     * @param opening - The index of its opening
+     * @param white - The configuration playing WHITE
+     * @param result - The result for WHITE: 1, 0 or -1
+     * @param plies - The plies played
+     * @param reason - How the game ended
+     */
+    private synchronized void record(int game, int opening, int white, int result, int plies, String reason) {
+        int score = white == TEST ? result : -result;
+        if (score > 0) {
+            this.wins++;
+        } else if (score < 0) {
+            this.losses++;
+        } else {
+            this.draws++;
+        }
+        String text = String.format("%d %d %s %s %d %s", game, opening, this.configs[white].name,
+                result > 0 ? "1-0" : result < 0 ? "0-1" : "1/2-1/2", plies, reason);
+        if (this.out != null) {
+            this.out.println(text);
+            this.out.flush();
+        }
+
+        int played = this.wins + this.draws + this.losses;
+        double llr = llr(this.wins, this.draws, this.losses, this.elo0, this.elo1);
+        if (this.decision == null) {
+            if (llr >= Math.log((1 - this.beta) / this.alpha)) {
+                this.decision = String.format("H1 accepted: test is at least %.1f Elo stronger", this.elo1);
+            } else if (llr <= Math.log(this.beta / (1 - this.alpha))) {
+                this.decision = String.format("H0 accepted: test is not %.1f Elo stronger", this.elo1);
+            }
+        }
+        if (played % REPORT_EVERY == 0) {
+            System.out.println(status());
+        }
+    }
+
+    /**
+     * Helper method, write the counts of the test configuration so far, its
+     * Elo difference with a 95% interval and the log-likelihood ratio.
+     *
+     * @return - The status text
+     */
+    private String status() {
+        int played = this.wins + this.draws + this.losses;
+        double score = played == 0 ? 0.5 : (this.wins + this.draws / 2.0) / played;
+        double deviation = played == 0 ? 0.0 : Math.sqrt(variance(this.wins, this.draws, this.losses) / played);
+        return String.format("Games %d: +%d =%d -%d, score %.1f%%, Elo %+.1f [%+.1f, %+.1f], LLR %.2f", played,
+                this.wins, this.draws, this.losses, 100.0 * score, elo(score), elo(score - 1.96 * deviation),
+                elo(score + 1.96 * deviation), llr(this.wins, this.draws, this.losses, this.elo0, this.elo1));
+    }
+
+    /**
+     * Helper method, get the variance of the score of one game.
+     *
+     * @param wins - The number of wins
+     * @param draws - The number of draws
+     * @param losses - The number of losses
+     * @return - The variance of the score of one game
+     */
+    private static double variance(int wins, int draws, int losses) {
+        int n = wins + draws + losses;
+        double score = (wins + draws / 2.0) / n;
+        return (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score) + losses * score * score) / n;
+    }
+
+    /**
+     * Helper method, get the log-likelihood ratio of the hypotheses "the
+     * difference is elo1" against "the difference is elo0", with the normal
+     * approximation of the mean score. It is 0 until there are both wins and
+     * losses, as the variance is not known before.
+     *
+     * @param wins - The number of wins
+     * @param draws - The number of draws
+     * @param losses - The number of losses
+     * @param elo0 - The difference of the null hypothesis
+     * @param elo1 - The difference of the alternative hypothesis
+     * @return - The log-likelihood ratio
+     */
+    private static double llr(int wins, int draws, int losses, double elo0, double elo1) {
+        if (wins == 0 || losses == 0) {
+            return 0.0;
+        }
+        int n = wins + draws + losses;
+        double score = (wins + draws / 2.0) / n;
+        double s0 = expected(elo0), s1 = expected(elo1);
+        return (s1 - s0) * (2 * score - s0 - s1) * n / (2 * variance(wins, draws, losses));
+    }
+
+    /**
+     * Helper method, get the expected score of an Elo difference.
+     *
+     * @param elo - The Elo difference
+     * @return - The expected score, between 0 and 1
+     */
+    private static double expected(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * Helper method, get the Elo difference of an expected score.
+     *
+     * @param score - The score, clamped between 0 and 1
+     * @return - The Elo difference
+     */
+    private static double elo(double score) {
+        double clamped = Math.max(1e-6, Math.min(1 - 1e-6, score));
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.util;
+
+/**
+ * Helper library for the 64-bit board masks (bitboards) used by the model.
+ * Square index is row * 8 + col, so square 0 is (0, 0) (BLACK's corner) and
+ * square 63 is (7, 7) (WHITE's corner). Bit n of a mask is set if square n
+ * belongs to the set.
+ *
+ * @author Asus
+ */
+public class BitboardLib {
+
+    //Directions as {row, col} unit vectors: N, E, S, W, NW, NE, SE, SW
+    private static final int[][] DIRECTIONS = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}, {-1, -1}, {-1, 1}, {1, 1}, {1, -1}};
+
+    //The squares a Knight attacks from each square
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    //The squares a King attacks from each square
+    public static final long[] KING_ATTACKS = new long[64];
+    //The squares a Pawn attacks from each square, indexed by [color ordinal][square] (BLACK moves down, WHITE moves up)
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+    //The squares strictly between two squares on the same row, column or diagonal, 0 if they are not aligned
+    public static final long[][] BETWEEN = new long[64][64];
+    //The squares a Rook/Bishop attacks from each square on an empty board
+    public static final long[] ROOK_RAYS = new long[64];
+    public static final long[] BISHOP_RAYS = new long[64];
+
+    static {
+        int[][] knightJumps = {{-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}, {1, 2}, {2, 1}, {2, -1}, {1, -2}};
+        for (int sq = 0; sq < 64; sq++) {
+            int row = row(sq), col = col(sq);
+            for (int[] jump : knightJumps) {
+                KNIGHT_ATTACKS[sq] |= maskOf(row + jump[0], col + jump[1]);
+            }
+            for (int[] dir : DIRECTIONS) {
+                KING_ATTACKS[sq] |= maskOf(row + dir[0], col + dir[1]);
+            }
+            //BLACK pawns move toward row 7, WHITE pawns move toward row 0
+            PAWN_ATTACKS[0][sq] = maskOf(row + 1, col - 1) | maskOf(row + 1, col + 1);
+            PAWN_ATTACKS[1][sq] = maskOf(row - 1, col - 1) | maskOf(row - 1, col + 1);
+            ROOK_RAYS[sq] = rookRayAttacks(sq, 0L);
+            BISHOP_RAYS[sq] = bishopRayAttacks(sq, 0L);
+
+            //Walk each direction, every square reached is aligned with sq and the walked squares are between
+            for (int[] dir : DIRECTIONS) {
+                long between = 0L;
+                int r = row + dir[0], c = col + dir[1];
+                while (ModelLib.isCoorValid(r, c)) {
+                    BETWEEN[sq][square(r, c)] = between;
+                    between |= bit(square(r, c));
+                    r += dir[0];
+                    c += dir[1];
+                }
+            }
+        }
+    }
+
+    /**
+     * Method for converting a pair of coordinates to a square index.
+     *
+     * @param row - The row (0 - 7)
+     * @param col - The column (0 - 7)
+     * @return - The square index (0 - 63)
+     */
+    public static int square(int row, int col) {
+        return (row << 3) | col;
+    }
+
+    /**
+     * Method for getting the row of a square index.
+     *
+     * @param sq - The square index
+     * @return - The row of the square
+     */
+    public static int row(int sq) {
+        return sq >>> 3;
+    }
+
+    /**
+     * Method for getting the column of a square index.
+     *
+     * @param sq - The square index
+     * @return - The column of the square
+     */
+    public static int col(int sq) {
+        return sq & 7;
+    }
+
+    /**
+     * Method for getting the single-bit mask of a square.
+     *
+     * @param sq - The square index
+     * @return - The mask with only that square set
+     */
+    public static long bit(int sq) {
+        return 1L << sq;
+    }
+
+    /**
+     * Helper method, return the mask of (row, col), or an empty mask if the
+     * coordinates are outside the board.
+     *
+     * @param row - The row
+     * @param col - The column
+     * @return - The mask of that square, 0 if invalid
+     */
+    private static long maskOf(int row, int col) {
+        return ModelLib.isCoorValid(row, col) ? bit(square(row, col)) : 0L;
+    }
+
+    /**
+     * Method for getting the lowest square in a mask. The mask must not be
+     * empty.
+     *
+     * @param mask - The mask
+     * @return - The index of the lowest set square
+     */
+    public static int first(long mask) {
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Method for counting the squares in a mask.
+     *
+     * @param mask - The mask
+     * @return - The number of set squares
+     */
+    public static int count(long mask) {
+        return Long.bitCount(mask);
+    }
+
+    /**
+     * Helper method, walk the rays of the given directions from a square and
+     * collect every square until (and including) the first occupied one.
+     *
+     * @param sq - The starting square
+     * @param occupied - The mask of all occupied squares
+     * @param from - The first direction index (inclusive)
+     * @param to - The last direction index (exclusive)
+     * @return - The mask of attacked squares
+     */
+    private static long rayAttacks(int sq, long occupied, int from, int to) {
+        long attacks = 0L;
+        for (int i = from; i < to; i++) {
+            int row = row(sq) + DIRECTIONS[i][0];
+            int col = col(sq) + DIRECTIONS[i][1];
+            while (ModelLib.isCoorValid(row, col)) {
+                long b = bit(square(row, col));
+                attacks |= b;
+                //Stop at the first obstacle, whichever side it belongs to
+                if ((occupied & b) != 0) {
+                    break;
+                }
+                row += DIRECTIONS[i][0];
+                col += DIRECTIONS[i][1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Method for calculating the squares a Rook attacks by walking its rays.
+     * This is the slow reference used to build and check the magic tables.
+     *
+     * @param sq - The square of the Rook
+     * @param occupied - The mask of all occupied squares
+     * @return - The mask of attacked squares (including the blockers)
+     */
+    public static long rookRayAttacks(int sq, long occupied) {
+        return rayAttacks(sq, occupied, 0, 4);
+    }
+
+    /**
+     * Method for calculating the squares a Bishop attacks by walking its
+     * rays. This is the slow reference used to build and check the magic
+     * tables.
+     *
+     * @param sq - The square of the Bishop
+     * @param occupied - The mask of all occupied squares
+     * @return - The mask of attacked squares (including the blockers)
+     */
+    public static long bishopRayAttacks(int sq, long occupied) {
+        return rayAttacks(sq, occupied, 4, 8);
+    }
+
+    /**
+     * Method for getting the squares a Rook attacks (magic lookup).
+     *
+     * @param sq - The square of the Rook
+     * @param occupied - The mask of all occupied squares
+     * @return - The mask of attacked squares (including the blockers)
+     */
+    public static long rookAttacks(int sq, long occupied) {
+        return MagicLib.rookAttacks(sq, occupied);
+    }
+
+    /**
+     * Method for getting the squares a Bishop attacks (magic lookup).
+     *
+     * @param sq - The square of the Bishop
+     * @param occupied - The mask of all occupied squares
+     * @return - The mask of attacked squares (including the blockers)
+     */
+    public static long bishopAttacks(int sq, long occupied) {
+        return MagicLib.bishopAttacks(sq, occupied);
+    }
+
+    /**
+     * Method for getting the squares a Queen attacks (magic lookup).
+     *
+     * @param sq - The square of the Queen
+     * @param occupied - The mask of all occupied squares
+     * @return - The mask of attacked squares (including the blockers)
+     */
+    public static long queenAttacks(int sq, long occupied) {
+        return MagicLib.rookAttacks(sq, occupied) | MagicLib.bishopAttacks(sq, occupied);
+    }
+}
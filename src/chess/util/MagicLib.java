@@ -0,0 +1,259 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package chess.util;
+
+import java.util.SplittableRandom;
+
+/**
+ * Helper library for the sliding piece attacks with magic bitboards. For each
+ * square, only the squares that can block the piece matter (the relevant
+ * mask, without the board edge). Multiplying those blockers by a magic number
+ * and shifting gives a unique index into a precomputed table of attacks, so
+ * the attacks of a Rook or Bishop cost a multiply, a shift and a lookup
+ * instead of a walk along each ray. The tables are filled once at class load
+ * with the ray walking attacks of BitboardLib, using the magic numbers found
+ * by a random search (searching them at load time takes most of a second, so
+ * they are kept here; a new search runs only if one of them does not fit).
+ *
+ * @author Asus
+ */
+public class MagicLib {
+
+    //The seed of the magic number search, a fixed seed gives the same tables and build time in every run
+    private static final long SEED = 0x2C7A11E5L;
+
+    //The relevant blockers mask, magic number, shift and table offset of each square
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+
+    //The attack tables, all squares packed one after another
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_TABLE;
+
+    //The time taken to build the tables at class load, in nanoseconds
+    public static final long BUILD_NANOS;
+
+    //The magic numbers found by searchMagics with the seed above (see MagicCheck --search)
+    private static final long[] KNOWN_ROOK_MAGICS = {
+        0x0880004000801022L, 0x10C0002000700040L, 0x0200120080082040L, 0x02000440100A0020L,
+        0x0200080402002011L, 0x0300180400020100L, 0x0880020000804100L, 0x0E00032484090042L,
+        0x0011800082400020L, 0x0420808040002000L, 0x8116802000100080L, 0x4020808010000800L,
+        0x0099800800040080L, 0x0000800400020080L, 0x0801000200010004L, 0x0800800180086700L,
+        0x000C8C8004400020L, 0x0202020021048C41L, 0x0706020020104081L, 0x0002828008005000L,
+        0x0088010010050008L, 0x0140808004000200L, 0x00C08C000A811008L, 0x0060020000844524L,
+        0xC040803080004002L, 0x0020200080804000L, 0x000041010020001AL, 0x4000082100100100L,
+        0x0400080080040080L, 0x4001200801400410L, 0x1000010080800200L, 0x0008240200084099L,
+        0x5000400184800421L, 0x2000802000804000L, 0x8000200082801000L, 0x0400100101000820L,
+        0x2088008008800400L, 0x840E000802001004L, 0x8042800100800200L, 0x0400043082000845L,
+        0x4003C00080228005L, 0xC000402010014000L, 0x0800200700110040L, 0x1005042010010008L,
+        0x0024000800808004L, 0x2082002010040400L, 0x0204C81001040002L, 0x0120008044020021L,
+        0x8080003100488100L, 0x00400050012000C0L, 0x1000102001084100L, 0x1040100008008480L,
+        0x0205080004028080L, 0x0402000904100200L, 0x0434080210010400L, 0x0201000042308100L,
+        0x0082800040230015L, 0x000200102A804102L, 0x8920010038204213L, 0x0003042100100009L,
+        0x4001001800300215L, 0x0082000810048102L, 0x061800C102300804L, 0x0421001040802201L
+    };
+    private static final long[] KNOWN_BISHOP_MAGICS = {
+        0x80341C1840440082L, 0x4208010102161100L, 0x2008208C08801450L, 0x10020A0200000000L,
+        0x8402021000000180L, 0x0004242008006200L, 0x0090540220100449L, 0x0A00420201014020L,
+        0x0820881010420042L, 0x00000208420C0440L, 0x8200040820810A00L, 0x1200040522000000L,
+        0x1020020210510808L, 0x0009024120200080L, 0x00408114100A5864L, 0x200006008404023EL,
+        0x0220004028119118L, 0x0002422002440110L, 0x8001002081030200L, 0x040800042020A218L,
+        0x0004204202010000L, 0x04040A0200820800L, 0x8000404404240402L, 0x048040022C020800L,
+        0x28080440A1A00200L, 0x0012208008080080L, 0x0104884010004200L, 0x10040800002200C0L,
+        0x1010840002802000L, 0x0308408064100408L, 0x2045052104140100L, 0x0014822004840C40L,
+        0xA101600820A10801L, 0x0404101400184150L, 0x0044084100E80204L, 0x4C00200501080108L,
+        0x4040002020220080L, 0xA002004100020080L, 0x0198062080006800L, 0x2002166102004400L,
+        0x1008823040001001L, 0x0001009011400442L, 0x0002001044000800L, 0x0801024010400200L,
+        0x8002281010401404L, 0x0194012462000900L, 0x40A0018400800101L, 0x0008910400884020L,
+        0x2001140202420000L, 0x40020224A4040004L, 0x0020008048080002L, 0x0040A00084040080L,
+        0x410004C1082201E0L, 0x0000089004482080L, 0x0008909082044100L, 0x0408015102021201L,
+        0x4020804100A02022L, 0x4000002C02080400L, 0x001800020C841120L, 0x0800000000421A00L,
+        0x0000A00841082208L, 0x0400084810902080L, 0x0000200902080040L, 0x5020415000810040L
+    };
+
+    static {
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(SEED);
+        ROOK_TABLE = build(true, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, KNOWN_ROOK_MAGICS, random);
+        BISHOP_TABLE = build(false, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, KNOWN_BISHOP_MAGICS, random);
+        BUILD_NANOS = System.nanoTime() - start;
+    }
+
+    /**
+     * Private constructor, this class only has static methods.
+     */
+    private MagicLib() {
+    }
+
+    /**
+     * Helper method, calculate the relevant blockers mask of a square: the
+     * empty board rays without the last square of each ray, since a piece on
+     * the edge never changes what is attacked.
+     *
+     * @param sq - The square
+     * @param rook - True for a Rook, false for a Bishop
+     * @return - The relevant mask
+     */
+    private static long relevantMask(int sq, boolean rook) {
+        long rows = 0xFFL | (0xFFL << 56), cols = 0x0101010101010101L | (0x0101010101010101L << 7);
+        if (rook) {
+            //The edge of the own row or column of the Rook is still relevant in the other direction
+            long edges = (rows & ~(0xFFL << (BitboardLib.row(sq) * 8))) | (cols & ~(0x0101010101010101L << BitboardLib.col(sq)));
+            return BitboardLib.rookRayAttacks(sq, 0L) & ~edges;
+        }
+        return BitboardLib.bishopRayAttacks(sq, 0L) & ~(rows | cols);
+    }
+
+    /**
+     * Helper method, find the magic number of every square and fill the
+     * attack table. The known magic of a square is tried first, the random
+     * search only runs if it is missing or does not fit.
+     *
+     * @param rook - True for a Rook, false for a Bishop
+     * @param masks - The relevant masks to fill
+     * @param magics - The magic numbers to fill
+     * @param shifts - The shifts to fill
+     * @param offsets - The table offsets to fill
+     * @param known - The known magic numbers, or null to search them all
+     * @param random - The random source of the candidate magics
+     * @return - The attack table
+     */
+    private static long[] build(boolean rook, long[] masks, long[] magics, int[] shifts, int[] offsets, long[] known,
+            SplittableRandom random) {
+        int size = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            masks[sq] = relevantMask(sq, rook);
+            int bits = BitboardLib.count(masks[sq]);
+            shifts[sq] = 64 - bits;
+            offsets[sq] = size;
+            size += 1 << bits;
+        }
+        long[] table = new long[size];
+
+        //Scratch arrays, at most 2^12 blocker subsets for a Rook in the corner
+        long[] occupancies = new long[4096];
+        long[] attacks = new long[4096];
+        int[] used = new int[4096];
+        int attempt = 0;
+
+        for (int sq = 0; sq < 64; sq++) {
+            //Enumerate every subset of the mask (carry-rippler) with its attacks
+            int n = 0;
+            long occ = 0L;
+            do {
+                occupancies[n] = occ;
+                attacks[n] = rook ? BitboardLib.rookRayAttacks(sq, occ) : BitboardLib.bishopRayAttacks(sq, occ);
+                n++;
+                occ = (occ - masks[sq]) & masks[sq];
+            } while (occ != 0);
+
+            //Try the known magic, then sparse random numbers until one maps every subset without a wrong collision
+            boolean first = known != null;
+            while (true) {
+                long magic = first ? known[sq] : random.nextLong() & random.nextLong() & random.nextLong();
+                first = false;
+                if (Long.bitCount((masks[sq] * magic) >>> 56) < 6) {
+                    continue;
+                }
+                attempt++;
+                boolean ok = true;
+                for (int i = 0; i < n && ok; i++) {
+                    int index = (int) ((occupancies[i] * magic) >>> shifts[sq]);
+                    //Two subsets may share an index only if they have the same attacks
+                    if (used[index] != attempt) {
+                        used[index] = attempt;
+                        table[offsets[sq] + index] = attacks[i];
+                    } else if (table[offsets[sq] + index] != attacks[i]) {
+                        ok = false;
+                    }
+                }
+                if (ok) {
+                    magics[sq] = magic;
+                    break;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Method for searching the magic numbers of every square from scratch.
+     *
+     * @param rook - True for a Rook, false for a Bishop
+     * @param seed - The seed of the random search
+     * @return - The magic number of each square
+     */
+    public static long[] searchMagics(boolean rook, long seed) {
+        long[] magics = new long[64];
+        build(rook, new long[64], magics, new int[64], new int[64], null, new SplittableRandom(seed));
+        return magics;
+    }
+
+    /**
+     * Method for getting the seed the known magic numbers were searched with.
+     *
+     * @return - The seed
+     */
+    public static long seed() {
+        return SEED;
+    }
+
+    /**
+     * Method for getting the squares a Rook attacks.
+     *
+     * @param sq - The square of the Rook
+     * @param occupied - The mask of all occupied squares
+     * @return - The mask of attacked squares (including the blockers)
+     */
+    public static long rookAttacks(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[sq] + (int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+
+    /**
+     * Method for getting the squares a Bishop attacks.
+     *
+     * @param sq - The square of the Bishop
+     * @param occupied - The mask of all occupied squares
+     * @return - The mask of attacked squares (including the blockers)
+     */
+    public static long bishopAttacks(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq] + (int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+    }
+
+    /**
+     * Method for getting the memory used by the tables (attack tables plus
+     * the per-square masks, magics, shifts and offsets).
+     *
+     * @return - The size in bytes
+     */
+    public static long tableBytes() {
+        return 8L * (ROOK_TABLE.length + BISHOP_TABLE.length) + 2 * 64 * (8 + 8 + 4 + 4);
+    }
+
+    /**
+     * Method for getting the number of entries of the Rook attack table.
+     *
+     * @return - The number of entries
+     */
+    public static int rookTableSize() {
+        return ROOK_TABLE.length;
+    }
+
+    /**
+     * Method for getting the number of entries of the Bishop attack table.
+     *
+     * @return - The number of entries
+     */
+    public static int bishopTableSize() {
+        return BISHOP_TABLE.length;
+    }
+}